@@ -19,25 +19,32 @@
  */
 package org.sonarlint.intellij.actions;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
 import com.intellij.openapi.actionSystem.ActionPlaces;
 import com.intellij.openapi.actionSystem.AnActionEvent;
-import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 
 import java.util.Collection;
+import java.util.function.Consumer;
 
-import org.sonarlint.intellij.analysis.SonarLintJobManager;
+import org.sonarlint.intellij.analysis.ScopeAnalysisPipeline;
 import org.sonarlint.intellij.analysis.SonarLintStatus;
-import org.sonarlint.intellij.trigger.TriggerType;
 import org.sonarlint.intellij.ui.SonarLintConsole;
 import org.sonarlint.intellij.ui.scope.AbstractScope;
-import org.sonarlint.intellij.util.SonarLintAppUtils;
-import org.sonarlint.intellij.util.SonarLintUtils;
 
 public class SonarAnalyzeScopeAction extends AbstractSonarAction {
+  private final Consumer<Task> runner;
+
+  public SonarAnalyzeScopeAction() {
+    this(task -> ProgressManager.getInstance().run(task));
+  }
+
+  SonarAnalyzeScopeAction(Consumer<Task> runner) {
+    this.runner = runner;
+  }
+
   @Override
   protected boolean isEnabled(Project project, SonarLintStatus status) {
     return !status.isRunning();
@@ -50,7 +57,6 @@ public class SonarAnalyzeScopeAction extends AbstractSonarAction {
       return;
     }
     SonarLintConsole console = SonarLintConsole.get(p);
-    SonarLintAppUtils utils = SonarLintUtils.get(SonarLintAppUtils.class);
 
     AbstractScope scope = e.getData(AbstractScope.SCOPE_DATA_KEY);
     if (scope == null) {
@@ -65,27 +71,8 @@ public class SonarAnalyzeScopeAction extends AbstractSonarAction {
       return;
     }
 
-    Multimap<Module, VirtualFile> filesByModule = HashMultimap.create();
-    for (VirtualFile file : files) {
-      Module m = utils.findModuleForFile(file, p);
-      if (!utils.shouldAnalyze(file, m)) {
-        console.info("File '" + file + "' cannot be analyzed");
-        continue;
-      }
-
-      filesByModule.put(m, file);
-    }
-
-    if (!filesByModule.isEmpty()) {
-      SonarLintJobManager analyzer = SonarLintUtils.get(p, SonarLintJobManager.class);
-      for (Module m : filesByModule.keySet()) {
-        if (executeBackground(e)) {
-          analyzer.submitAsync(m, filesByModule.get(m), TriggerType.ACTION);
-        } else {
-          analyzer.submit(m, filesByModule.get(m), TriggerType.ACTION);
-        }
-      }
-    }
+    // files are filtered in the background, since big scopes can contain many files
+    runner.accept(new ScopeAnalysisPipeline(p, files, scope.getCheckpointKey(), !executeBackground(e)));
   }
 
   /**
@@ -0,0 +1,103 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Files already analyzed by a scope analysis that didn't complete. A file is only considered as analyzed if it wasn't
+ * modified since.
+ * Each line of the file holds the timestamp of an analyzed file and its path, separated by a tab.
+ */
+@ThreadSafe
+class AnalysisCheckpoint {
+  private static final Logger LOGGER = Logger.getInstance(AnalysisCheckpoint.class);
+  private final Path file;
+  private final Map<String, Long> done;
+
+  private AnalysisCheckpoint(Path file, Map<String, Long> done) {
+    this.file = file;
+    this.done = done;
+  }
+
+  static AnalysisCheckpoint open(Path file) {
+    Map<String, Long> done = new HashMap<>();
+    if (Files.exists(file)) {
+      try {
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+          int idx = line.indexOf('\t');
+          if (idx > 0) {
+            done.put(line.substring(idx + 1), Long.parseLong(line.substring(0, idx)));
+          }
+        }
+      } catch (IOException | NumberFormatException e) {
+        LOGGER.warn("Ignoring invalid checkpoint " + file, e);
+        done.clear();
+      }
+    }
+    return new AnalysisCheckpoint(file, done);
+  }
+
+  synchronized boolean isDone(VirtualFile vFile) {
+    Long timestamp = done.get(vFile.getPath());
+    return timestamp != null && timestamp == vFile.getTimeStamp();
+  }
+
+  synchronized int size() {
+    return done.size();
+  }
+
+  /**
+   * Failing to save the checkpoint only means that the files will be analyzed again if the analysis is resumed.
+   */
+  synchronized void done(Collection<VirtualFile> files) {
+    List<String> lines = files.stream()
+      .map(f -> f.getTimeStamp() + "\t" + f.getPath())
+      .collect(Collectors.toList());
+    try {
+      Files.createDirectories(file.getParent());
+      Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      files.forEach(f -> done.put(f.getPath(), f.getTimeStamp()));
+    } catch (IOException e) {
+      LOGGER.warn("Failed to save checkpoint " + file, e);
+    }
+  }
+
+  synchronized void delete() {
+    done.clear();
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOGGER.warn("Failed to delete checkpoint " + file, e);
+    }
+  }
+}
@@ -21,12 +21,31 @@ package org.sonarlint.intellij.analysis;
 
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.vfs.VirtualFile;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 
 public interface AnalysisConfigurator {
   // Name is constructed from plugin-id.extension-point-name
   ExtensionPointName<AnalysisConfigurator> EP_NAME = ExtensionPointName.create("org.sonarlint.idea.AnalysisConfiguration");
 
   Map<String, String> configure(Module module);
+
+  /**
+   * Configures the analysis of some files of the module. By default, the configuration doesn't depend on the files.
+   */
+  default Map<String, String> configure(Module module, Collection<VirtualFile> filesToAnalyze) {
+    return configure(module);
+  }
+
+  /**
+   * Properties listing paths specific to each module, such as its compiler outputs, separated by commas.
+   * Modules whose configurations only differ by these properties are analyzed together, joining their values.
+   */
+  default Set<String> modulePathProperties() {
+    return Collections.emptySet();
+  }
 }
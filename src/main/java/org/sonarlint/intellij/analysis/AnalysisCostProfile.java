@@ -0,0 +1,210 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.components.AbstractProjectComponent;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.sonarlint.intellij.ui.SonarLintConsole;
+import org.sonarlint.intellij.util.SonarLintUtils;
+
+/**
+ * Keeps the recent analysis durations of files and file extensions.
+ * <p>
+ * The engine doesn't report how long each file took, so the duration of a multi-file analysis is evenly shared by its files.
+ * Only analyses of a single file, such as the ones triggered by the editor, are accurate enough to demote a file: after
+ * {@link #DEMOTION_STRIKES} such analyses in a row over {@link #BUDGET_MS}, the file is no longer analyzed while typing, but only
+ * on save and compilation. It is promoted back as soon as an analysis of the file alone is under the budget.
+ */
+@ThreadSafe
+public class AnalysisCostProfile extends AbstractProjectComponent {
+  static final int WINDOW = 10;
+  static final int MAX_FILES = 500;
+  static final long BUDGET_MS = 3000;
+  static final int DEMOTION_STRIKES = 3;
+  private static final String NO_EXTENSION = "(none)";
+
+  private final SonarLintConsole console;
+
+  // all guarded by this
+  private final Map<VirtualFile, FileSamples> files = new LinkedHashMap<VirtualFile, FileSamples>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<VirtualFile, FileSamples> eldest) {
+      return size() > MAX_FILES;
+    }
+  };
+  private final Map<String, Samples> extensions = new HashMap<>();
+
+  public AnalysisCostProfile(Project project, SonarLintConsole console) {
+    super(project);
+    this.console = console;
+  }
+
+  /**
+   * Records the duration of an analysis of the given files
+   */
+  public synchronized void record(Collection<VirtualFile> analyzed, long ms) {
+    if (analyzed.isEmpty()) {
+      return;
+    }
+    long share = ms / analyzed.size();
+    for (VirtualFile file : analyzed) {
+      FileSamples samples = files.computeIfAbsent(file, f -> new FileSamples());
+      samples.add(share);
+      extensions.computeIfAbsent(extensionOf(file), e -> new Samples()).add(share);
+      if (analyzed.size() == 1) {
+        updateDemotion(file, samples, ms);
+      }
+    }
+  }
+
+  private void updateDemotion(VirtualFile file, FileSamples samples, long ms) {
+    if (ms <= BUDGET_MS) {
+      samples.strikes = 0;
+      if (samples.demoted) {
+        samples.demoted = false;
+        console.info("'" + file.getName() + "' is analyzed within " + BUDGET_MS + "ms again, it will be analyzed while typing");
+      }
+      return;
+    }
+    samples.strikes++;
+    if (!samples.demoted && samples.strikes >= DEMOTION_STRIKES) {
+      samples.demoted = true;
+      console.info("Analysis of '" + file.getName() + "' took more than " + BUDGET_MS + "ms " + samples.strikes
+        + " times in a row, it will only be analyzed on save and compilation");
+    }
+  }
+
+  /**
+   * Whether the file is too slow to analyze while typing
+   */
+  public synchronized boolean isDemoted(VirtualFile file) {
+    FileSamples samples = files.get(file);
+    return samples != null && samples.demoted;
+  }
+
+  public synchronized List<Cost> slowestFiles(int max) {
+    return slowest(files.entrySet().stream()
+      .map(e -> e.getValue().toCost(SonarLintUtils.getRelativePath(myProject, e.getKey()), e.getValue().demoted)), max);
+  }
+
+  public synchronized List<Cost> slowestExtensions(int max) {
+    return slowest(extensions.entrySet().stream()
+      .map(e -> e.getValue().toCost(e.getKey(), false)), max);
+  }
+
+  public synchronized void clear() {
+    files.clear();
+    extensions.clear();
+  }
+
+  private static List<Cost> slowest(Stream<Cost> costs, int max) {
+    return costs
+      .sorted(Comparator.comparingLong(Cost::averageMs).reversed())
+      .limit(max)
+      .collect(Collectors.toList());
+  }
+
+  private static String extensionOf(VirtualFile file) {
+    String extension = file.getExtension();
+    return extension != null ? extension.toLowerCase() : NO_EXTENSION;
+  }
+
+  /**
+   * Last {@link #WINDOW} durations, and totals since the beginning
+   */
+  private static class Samples {
+    private final long[] window = new long[WINDOW];
+    private int next = 0;
+    private int count = 0;
+    private long maxMs = 0;
+
+    void add(long ms) {
+      window[next] = ms;
+      next = (next + 1) % WINDOW;
+      count++;
+      maxMs = Math.max(maxMs, ms);
+    }
+
+    Cost toCost(String name, boolean demoted) {
+      int size = Math.min(count, WINDOW);
+      long sum = 0;
+      for (int i = 0; i < size; i++) {
+        sum += window[i];
+      }
+      return new Cost(name, count, size > 0 ? (sum / size) : 0, maxMs, demoted);
+    }
+  }
+
+  private static class FileSamples extends Samples {
+    private int strikes = 0;
+    private boolean demoted = false;
+  }
+
+  @Immutable
+  public static class Cost {
+    private final String name;
+    private final int analyses;
+    private final long averageMs;
+    private final long maxMs;
+    private final boolean demoted;
+
+    Cost(String name, int analyses, long averageMs, long maxMs, boolean demoted) {
+      this.name = name;
+      this.analyses = analyses;
+      this.averageMs = averageMs;
+      this.maxMs = maxMs;
+      this.demoted = demoted;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public int analyses() {
+      return analyses;
+    }
+
+    /**
+     * Average of the recent analyses
+     */
+    public long averageMs() {
+      return averageMs;
+    }
+
+    public long maxMs() {
+      return maxMs;
+    }
+
+    public boolean demoted() {
+      return demoted;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.components.AbstractProjectComponent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.codec.binary.Hex;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.ui.SonarLintConsole;
+
+/**
+ * Files whose analysis exceeded the time budget, see {@link #budgetMs(int)}.
+ * <p>
+ * A file analyzed alone that exceeds the budget is quarantined with the hash of its content, and is only analyzed again once its
+ * content changes. When several files analyzed together exceed the budget, the culprit is unknown: they all become suspects, and
+ * are analyzed one by one until they complete within the budget or get quarantined.
+ */
+@ThreadSafe
+public class AnalysisQuarantine extends AbstractProjectComponent {
+  private static final Logger LOGGER = Logger.getInstance(AnalysisQuarantine.class);
+
+  private final SonarLintGlobalSettings globalSettings;
+  private final SonarLintConsole console;
+  private final Map<VirtualFile, String> quarantined = new ConcurrentHashMap<>();
+  private final Set<VirtualFile> suspects = ConcurrentHashMap.newKeySet();
+
+  public AnalysisQuarantine(Project project, SonarLintGlobalSettings globalSettings, SonarLintConsole console) {
+    super(project);
+    this.globalSettings = globalSettings;
+    this.console = console;
+  }
+
+  /**
+   * Maximum duration of an analysis of the given number of files, or 0 if it is not limited
+   */
+  public long budgetMs(int fileCount) {
+    return globalSettings.getAnalysisTimeBudgetSec() * 1000L * Math.max(1, fileCount);
+  }
+
+  /**
+   * A quarantined file is released if its content changed
+   */
+  public boolean isQuarantined(VirtualFile file, DefaultInputFile inputFile) {
+    String hash = quarantined.get(file);
+    if (hash == null) {
+      return false;
+    }
+    if (hash.equals(hash(inputFile))) {
+      return true;
+    }
+    quarantined.remove(file, hash);
+    console.info("'" + file.getName() + "' changed, it is no longer quarantined");
+    return false;
+  }
+
+  public void quarantine(VirtualFile file, DefaultInputFile inputFile) {
+    suspects.remove(file);
+    String hash = hash(inputFile);
+    if (hash == null) {
+      return;
+    }
+    quarantined.put(file, hash);
+    console.info("Analysis of '" + file.getName() + "' exceeded " + budgetMs(1) / 1000 + "s, it won't be analyzed again until it changes");
+  }
+
+  public void suspect(Collection<VirtualFile> files) {
+    suspects.addAll(files);
+  }
+
+  public boolean isSuspect(VirtualFile file) {
+    return suspects.contains(file);
+  }
+
+  /**
+   * Files that were analyzed within the budget
+   */
+  public void cleared(Collection<VirtualFile> files) {
+    suspects.removeAll(files);
+  }
+
+  public void clear() {
+    quarantined.clear();
+    suspects.clear();
+  }
+
+  /**
+   * Hash of the content, as it is read by the analyzers
+   */
+  @CheckForNull
+  private static String hash(DefaultInputFile inputFile) {
+    try (InputStream is = inputFile.inputStream()) {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+      return Hex.encodeHexString(digest.digest());
+    } catch (IOException | NoSuchAlgorithmException e) {
+      LOGGER.debug("Failed to compute the hash of " + inputFile.getPath(), e);
+      return null;
+    }
+  }
+}
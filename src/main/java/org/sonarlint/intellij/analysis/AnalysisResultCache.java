@@ -0,0 +1,300 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.components.AbstractProjectComponent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.codec.binary.Hex;
+import org.sonarlint.intellij.proto.Sonarlint;
+import org.sonarlint.intellij.util.SonarLintUtils;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueLocation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Issues found in files, keyed by a hash of their content, path and the fingerprint of the analysis configuration.
+ * A file that didn't change since it was last analyzed with the same configuration doesn't need to be analyzed again:
+ * its issues are replayed instead.
+ * <p>
+ * Entries are saved on disk, one file each. The least recently used ones are deleted when there are more than {@link #MAX_ENTRIES}.
+ * Dependencies of a file, such as other files or the compiled classpath, are not part of the key.
+ */
+@ThreadSafe
+public class AnalysisResultCache extends AbstractProjectComponent {
+  private static final Logger LOGGER = Logger.getInstance(AnalysisResultCache.class);
+  static final int MAX_ENTRIES = 5000;
+  // part of the keys, so that entries saved in an older format are not replayed. They end up being evicted
+  private static final byte FORMAT_VERSION = 2;
+
+  private final Path basePath;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  // guarded by itself. Keys in access order, least recently used first
+  private final Map<String, Boolean> lru = new LinkedHashMap<>(16, 0.75f, true);
+  private boolean loaded = false;
+
+  public AnalysisResultCache(Project project) {
+    this(project, Paths.get(project.getBaseDir().getPath(), Project.DIRECTORY_STORE_FOLDER, "sonarlint", "resultcache"));
+  }
+
+  AnalysisResultCache(Project project, Path basePath) {
+    super(project);
+    this.basePath = basePath;
+  }
+
+  /**
+   * @return the key of the current content of the file, as it is read by the analyzers, or null if it can't be read
+   */
+  @CheckForNull
+  public String key(String fingerprint, DefaultInputFile inputFile) {
+    VirtualFile file = inputFile.getClientObject();
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      digest.update(FORMAT_VERSION);
+      digest.update(fingerprint.getBytes(UTF_8));
+      digest.update((byte) 0);
+      digest.update(SonarLintUtils.getRelativePath(myProject, file).getBytes(UTF_8));
+      digest.update((byte) 0);
+      try (InputStream is = inputFile.inputStream()) {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+          digest.update(buffer, 0, read);
+        }
+      }
+      return Hex.encodeHexString(digest.digest());
+    } catch (IOException | NoSuchAlgorithmException e) {
+      LOGGER.debug("Failed to compute the key of " + file.getPath(), e);
+      return null;
+    }
+  }
+
+  /**
+   * @param inputFile file to which the replayed issues are attached
+   * @return the issues of the entry, or null if there is none
+   */
+  @CheckForNull
+  public List<Issue> get(String key, ClientInputFile inputFile) {
+    Path path = path(key);
+    synchronized (lru) {
+      loadIfNeeded();
+      if (lru.get(key) == null) {
+        misses.incrementAndGet();
+        return null;
+      }
+    }
+
+    try (InputStream is = Files.newInputStream(path)) {
+      Sonarlint.AnalysisResult result = Sonarlint.AnalysisResult.parseFrom(is);
+      path.toFile().setLastModified(System.currentTimeMillis());
+      hits.incrementAndGet();
+      return result.getIssueList().stream()
+        .map(i -> replay(i, inputFile))
+        .collect(Collectors.toList());
+    } catch (IOException e) {
+      LOGGER.debug("Failed to read cached analysis results", e);
+      synchronized (lru) {
+        lru.remove(key);
+      }
+      misses.incrementAndGet();
+      return null;
+    }
+  }
+
+  public void put(String key, Collection<Issue> issues) {
+    Sonarlint.AnalysisResult.Builder builder = Sonarlint.AnalysisResult.newBuilder();
+    issues.stream().map(AnalysisResultCache::toProto).forEach(builder::addIssue);
+
+    Path path = path(key);
+    try {
+      Files.createDirectories(path.getParent());
+      try (OutputStream os = Files.newOutputStream(path)) {
+        builder.build().writeTo(os);
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Failed to save analysis results", e);
+      return;
+    }
+
+    synchronized (lru) {
+      loadIfNeeded();
+      lru.put(key, Boolean.TRUE);
+      evict();
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  private Path path(String key) {
+    return basePath.resolve(key.substring(0, 2)).resolve(key);
+  }
+
+  /**
+   * The order of use of entries is restored from the last modification time of their files, which is updated on each hit.
+   * Must be called while holding the lock.
+   */
+  private void loadIfNeeded() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    if (!basePath.toFile().isDirectory()) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(basePath, 2)) {
+      files.map(Path::toFile)
+        .filter(File::isFile)
+        .sorted(Comparator.comparingLong(File::lastModified))
+        .forEach(f -> lru.put(f.getName(), Boolean.TRUE));
+    } catch (IOException e) {
+      LOGGER.debug("Failed to load cached analysis results", e);
+    }
+    evict();
+  }
+
+  /**
+   * Must be called while holding the lock.
+   */
+  private void evict() {
+    Iterator<String> it = lru.keySet().iterator();
+    while (lru.size() > MAX_ENTRIES && it.hasNext()) {
+      String key = it.next();
+      it.remove();
+      try {
+        Files.deleteIfExists(path(key));
+      } catch (IOException e) {
+        LOGGER.debug("Failed to delete cached analysis results", e);
+      }
+    }
+  }
+
+  private static Sonarlint.AnalysisResult.RawIssue toProto(Issue issue) {
+    Sonarlint.AnalysisResult.RawIssue.Builder builder = Sonarlint.AnalysisResult.RawIssue.newBuilder()
+      .setRuleKey(issue.getRuleKey());
+    if (issue.getRuleName() != null) {
+      builder.setRuleName(issue.getRuleName());
+    }
+    if (issue.getSeverity() != null) {
+      builder.setSeverity(issue.getSeverity());
+    }
+    if (issue.getMessage() != null) {
+      builder.setMessage(issue.getMessage());
+    }
+    if (issue.getStartLine() != null) {
+      builder.setRange(toProtoRange(issue));
+    }
+    for (Issue.Flow flow : issue.flows()) {
+      Sonarlint.AnalysisResult.Flow.Builder flowBuilder = builder.addFlowBuilder();
+      for (IssueLocation location : flow.locations()) {
+        Sonarlint.AnalysisResult.Location.Builder locationBuilder = flowBuilder.addLocationBuilder();
+        if (location.getStartLine() != null) {
+          locationBuilder.setRange(toProtoRange(location));
+        }
+        if (location.getMessage() != null) {
+          locationBuilder.setMessage(location.getMessage());
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  private static Sonarlint.AnalysisResult.TextRange toProtoRange(IssueLocation location) {
+    return Sonarlint.AnalysisResult.TextRange.newBuilder()
+      .setStartLine(location.getStartLine())
+      .setStartLineOffset(valueOrZero(location.getStartLineOffset()))
+      .setEndLine(location.getEndLine() != null ? location.getEndLine() : location.getStartLine())
+      .setEndLineOffset(valueOrZero(location.getEndLineOffset()))
+      .build();
+  }
+
+  private static int valueOrZero(@CheckForNull Integer i) {
+    return i != null ? i : 0;
+  }
+
+  /**
+   * Locations of flows are attached to the same file as the issue, since each entry only holds the issues of one file.
+   */
+  static Issue replay(Sonarlint.AnalysisResult.RawIssue raw, ClientInputFile inputFile) {
+    List<Issue.Flow> flows = new ArrayList<>(raw.getFlowCount());
+    for (Sonarlint.AnalysisResult.Flow flow : raw.getFlowList()) {
+      List<IssueLocation> locations = new ArrayList<>(flow.getLocationCount());
+      for (Sonarlint.AnalysisResult.Location location : flow.getLocationList()) {
+        locations.add(replay(location.hasRange() ? location.getRange() : null, location.getMessage(), inputFile));
+      }
+      flows.add(new CachedIssue.CachedFlow(locations));
+    }
+    CachedIssue.CachedLocation location = replay(raw.hasRange() ? raw.getRange() : null, raw.getMessage(), inputFile);
+    return new CachedIssue(raw.getRuleKey(), raw.getRuleName(), raw.getSeverity(), location, flows);
+  }
+
+  private static CachedIssue.CachedLocation replay(@Nullable Sonarlint.AnalysisResult.TextRange range, String message, ClientInputFile inputFile) {
+    if (range == null) {
+      return new CachedIssue.CachedLocation(null, null, null, null, message, inputFile);
+    }
+    return new CachedIssue.CachedLocation(range.getStartLine(), range.getStartLineOffset(), range.getEndLine(), range.getEndLineOffset(), message, inputFile);
+  }
+
+  /**
+   * Groups issues per file
+   */
+  static Map<VirtualFile, List<Issue>> byFile(Collection<Issue> issues) {
+    Map<VirtualFile, List<Issue>> map = new HashMap<>();
+    for (Issue issue : issues) {
+      ClientInputFile inputFile = issue.getInputFile();
+      if (inputFile != null) {
+        map.computeIfAbsent(inputFile.getClientObject(), f -> new ArrayList<>()).add(issue);
+      }
+    }
+    return map;
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.components.ApplicationComponent;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.IdeFocusManager;
+import com.intellij.openapi.wm.IdeFrame;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.trigger.TriggerScheduler;
+
+/**
+ * Owns the running slots shared by all opened projects, since they all use the same engines.
+ * Free slots are given to the projects with queued jobs in a weighted round-robin: the project of the focused window can
+ * launch {@link #FOCUSED_WEIGHT} jobs in its turn, the other projects a single one.
+ * <p>
+ * While the {@link CpuGovernor} throttles analyses, only the exempt jobs are given a slot, and the queued jobs are dispatched
+ * again once the CPU budget allows it.
+ * <p>
+ * Clients must never call the scheduler while holding their own lock, since the scheduler calls them while holding its lock.
+ */
+@ThreadSafe
+public class AnalysisScheduler extends ApplicationComponent.Adapter {
+  static final int FOCUSED_WEIGHT = 3;
+  private static final long ACQUIRE_POLL_MS = 200;
+
+  private final SonarLintGlobalSettings globalSettings;
+  private final CpuGovernor governor;
+  private final TriggerScheduler triggerScheduler;
+  private final Supplier<Project> focusedProject;
+  private final Object wakeUpKey = new Object();
+  // all guarded by this
+  private final List<Client> clients = new ArrayList<>();
+  private int cursor = 0;
+  private int credits = 0;
+  private int used = 0;
+
+  interface Client {
+    Project project();
+
+    int queueDepth();
+
+    /**
+     * Takes the next job that can run, giving it one of the slots.
+     * @param onlyExempt whether only jobs exempt from the CPU budget can run
+     * @return the action launching the job, or null if no job can run
+     */
+    @CheckForNull
+    Runnable takeNext(boolean onlyExempt);
+  }
+
+  public AnalysisScheduler(SonarLintGlobalSettings globalSettings, CpuGovernor governor, TriggerScheduler triggerScheduler) {
+    this(globalSettings, governor, triggerScheduler, AnalysisScheduler::lastFocusedProject);
+  }
+
+  AnalysisScheduler(SonarLintGlobalSettings globalSettings, CpuGovernor governor, TriggerScheduler triggerScheduler,
+    Supplier<Project> focusedProject) {
+    this.globalSettings = globalSettings;
+    this.governor = governor;
+    this.triggerScheduler = triggerScheduler;
+    this.focusedProject = focusedProject;
+  }
+
+  @CheckForNull
+  private static Project lastFocusedProject() {
+    IdeFrame frame = IdeFocusManager.getGlobalInstance().getLastFocusedFrame();
+    return frame != null ? frame.getProject() : null;
+  }
+
+  synchronized void register(Client client) {
+    clients.add(client);
+  }
+
+  synchronized void unregister(Client client) {
+    int idx = clients.indexOf(client);
+    if (idx < 0) {
+      return;
+    }
+    clients.remove(idx);
+    if (idx < cursor) {
+      cursor--;
+    } else if (idx == cursor) {
+      credits = 0;
+    }
+  }
+
+  /**
+   * Takes a slot for a job that is launched immediately, without being queued.
+   */
+  public synchronized boolean tryAcquire() {
+    if (used >= globalSettings.computeMaxConcurrentAnalyses()) {
+      return false;
+    }
+    used++;
+    return true;
+  }
+
+  /**
+   * Waits for a free slot, for analyses that are not queued as jobs. Queued jobs might get the slots first.
+   * @return false if cancelled before a slot was available
+   */
+  synchronized boolean acquire(CancellationToken token) {
+    while (!token.isCancelled()) {
+      if (used < globalSettings.computeMaxConcurrentAnalyses()) {
+        used++;
+        return true;
+      }
+      try {
+        wait(ACQUIRE_POLL_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Frees a slot and gives it to the next project.
+   */
+  public void release() {
+    synchronized (this) {
+      used = Math.max(0, used - 1);
+      notifyAll();
+    }
+    dispatch();
+  }
+
+  /**
+   * Gives the free slots to the queued jobs, if any.
+   */
+  void dispatch() {
+    List<Runnable> toLaunch = new ArrayList<>();
+    long throttleMs = governor.delayMs();
+    synchronized (this) {
+      while (used < globalSettings.computeMaxConcurrentAnalyses()) {
+        Runnable next = takeFairly(throttleMs > 0);
+        if (next == null) {
+          break;
+        }
+        used++;
+        toLaunch.add(next);
+      }
+      if (throttleMs > 0 && clients.stream().anyMatch(c -> c.queueDepth() > 0)) {
+        triggerScheduler.schedule(wakeUpKey, throttleMs, this::dispatch);
+      }
+    }
+
+    //don't lock while launching jobs
+    toLaunch.forEach(Runnable::run);
+  }
+
+  /**
+   * Must be called while holding the lock
+   */
+  @CheckForNull
+  private Runnable takeFairly(boolean onlyExempt) {
+    Project focused = focusedProject.get();
+    for (int i = 0; i < clients.size(); i++) {
+      if (cursor >= clients.size()) {
+        cursor = 0;
+        credits = 0;
+      }
+      Client client = clients.get(cursor);
+      if (credits <= 0) {
+        credits = client.project().equals(focused) ? FOCUSED_WEIGHT : 1;
+      }
+      Runnable next = client.takeNext(onlyExempt);
+      if (next != null) {
+        credits--;
+        if (credits <= 0) {
+          nextClient();
+        }
+        return next;
+      }
+      nextClient();
+    }
+    return null;
+  }
+
+  private void nextClient() {
+    cursor = clients.isEmpty() ? 0 : ((cursor + 1) % clients.size());
+    credits = 0;
+  }
+
+  public synchronized int getUsedSlots() {
+    return used;
+  }
+
+  /**
+   * Number of jobs waiting for a slot, per project.
+   */
+  public Map<Project, Integer> getQueueDepths() {
+    List<Client> copy;
+    synchronized (this) {
+      copy = new ArrayList<>(clients);
+    }
+    Map<Project, Integer> depths = new LinkedHashMap<>();
+    for (Client c : copy) {
+      depths.merge(c.project(), c.queueDepth(), Integer::sum);
+    }
+    return depths;
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueLocation;
+
+/**
+ * An issue replayed from the {@link AnalysisResultCache}, with the attributes that were saved when it was reported.
+ */
+class CachedIssue implements Issue {
+  private final String ruleKey;
+  private final String ruleName;
+  private final String severity;
+  private final CachedLocation location;
+  private final List<Flow> flows;
+
+  CachedIssue(String ruleKey, String ruleName, String severity, CachedLocation location, List<Flow> flows) {
+    this.ruleKey = ruleKey;
+    this.ruleName = ruleName;
+    this.severity = severity;
+    this.location = location;
+    this.flows = Collections.unmodifiableList(flows);
+  }
+
+  @Override public String getRuleKey() {
+    return ruleKey;
+  }
+
+  @Override public String getRuleName() {
+    return ruleName;
+  }
+
+  @Override public String getSeverity() {
+    return severity;
+  }
+
+  @CheckForNull
+  @Override public String getMessage() {
+    return location.getMessage();
+  }
+
+  @CheckForNull
+  @Override public Integer getStartLine() {
+    return location.getStartLine();
+  }
+
+  @CheckForNull
+  @Override public Integer getStartLineOffset() {
+    return location.getStartLineOffset();
+  }
+
+  @CheckForNull
+  @Override public Integer getEndLine() {
+    return location.getEndLine();
+  }
+
+  @CheckForNull
+  @Override public Integer getEndLineOffset() {
+    return location.getEndLineOffset();
+  }
+
+  @CheckForNull
+  @Override public ClientInputFile getInputFile() {
+    return location.getInputFile();
+  }
+
+  @Override public List<Flow> flows() {
+    return flows;
+  }
+
+  @Override public String toString() {
+    return "Cached issue " + ruleKey + " at line " + getStartLine();
+  }
+
+  static class CachedFlow implements Flow {
+    private final List<IssueLocation> locations;
+
+    CachedFlow(List<IssueLocation> locations) {
+      this.locations = Collections.unmodifiableList(locations);
+    }
+
+    @Override public List<IssueLocation> locations() {
+      return locations;
+    }
+  }
+
+  /**
+   * Range is null for file level locations.
+   */
+  static class CachedLocation implements IssueLocation {
+    private final Integer startLine;
+    private final Integer startLineOffset;
+    private final Integer endLine;
+    private final Integer endLineOffset;
+    private final String message;
+    private final ClientInputFile inputFile;
+
+    CachedLocation(@Nullable Integer startLine, @Nullable Integer startLineOffset, @Nullable Integer endLine, @Nullable Integer endLineOffset,
+      @Nullable String message, @Nullable ClientInputFile inputFile) {
+      this.startLine = startLine;
+      this.startLineOffset = startLineOffset;
+      this.endLine = endLine;
+      this.endLineOffset = endLineOffset;
+      this.message = message;
+      this.inputFile = inputFile;
+    }
+
+    @CheckForNull
+    @Override public Integer getStartLine() {
+      return startLine;
+    }
+
+    @CheckForNull
+    @Override public Integer getStartLineOffset() {
+      return startLineOffset;
+    }
+
+    @CheckForNull
+    @Override public Integer getEndLine() {
+      return endLine;
+    }
+
+    @CheckForNull
+    @Override public Integer getEndLineOffset() {
+      return endLineOffset;
+    }
+
+    @CheckForNull
+    @Override public String getMessage() {
+      return message;
+    }
+
+    @CheckForNull
+    public ClientInputFile getInputFile() {
+      return inputFile;
+    }
+  }
+}
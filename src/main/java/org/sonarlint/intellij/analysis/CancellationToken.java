@@ -0,0 +1,66 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Signals the cancellation of a task to the registered callbacks, in the thread that cancels it.
+ * Cancelling more than once has no effect.
+ */
+@ThreadSafe
+public class CancellationToken {
+  private final List<Runnable> callbacks = new ArrayList<>();
+  private boolean cancelled = false;
+
+  public synchronized boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * The callback is called immediately if the token was already cancelled.
+   */
+  public void onCancel(Runnable callback) {
+    synchronized (this) {
+      if (!cancelled) {
+        callbacks.add(callback);
+        return;
+      }
+    }
+    callback.run();
+  }
+
+  public void cancel() {
+    List<Runnable> toCall;
+    synchronized (this) {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      toCall = new ArrayList<>(callbacks);
+      callbacks.clear();
+    }
+
+    //don't lock while calling callbacks
+    toCall.forEach(Runnable::run);
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.CompilerModuleExtension;
+import com.intellij.openapi.roots.LibraryOrderEntry;
+import com.intellij.openapi.roots.OrderEntry;
+import com.intellij.openapi.roots.OrderRootType;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiImportList;
+import com.intellij.psi.PsiImportStatementBase;
+import com.intellij.psi.PsiImportStaticStatement;
+import com.intellij.psi.PsiJavaCodeReferenceElement;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiPackage;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiUtilCore;
+import com.intellij.util.TimeoutUtil;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+
+/**
+ * Finds the libraries and the outputs of other modules providing the classes referenced by Java files, with their super classes,
+ * so that the analyzers don't open the whole classpath of a module to analyze a few files.
+ * References are taken from the imports, the package of the files and the fully qualified names used in the code. If any of them
+ * can't be resolved, the classpath is left untouched.
+ * <p>
+ * The PSI is walked in read actions that give way to write actions, and are retried a few times before giving up.
+ */
+class ClasspathPruner {
+  private static final int MAX_ATTEMPTS = 10;
+  private static final long RETRY_DELAY_MS = 50;
+
+  private final Module module;
+  private final ProjectFileIndex fileIndex;
+  private final GlobalSearchScope scope;
+  private final Set<String> roots = new HashSet<>();
+  private final Set<PsiClass> visited = new HashSet<>();
+  private boolean complete = true;
+
+  private ClasspathPruner(Module module) {
+    this.module = module;
+    this.fileIndex = ProjectRootManager.getInstance(module.getProject()).getFileIndex();
+    this.scope = module.getModuleWithDependenciesAndLibrariesScope(true);
+  }
+
+  /**
+   * Paths of the classpath entries referenced by the files, in the same form as they are passed to the analyzers.
+   * Null if it couldn't be determined, for example while the project is being indexed.
+   */
+  @CheckForNull
+  static Set<String> referencedRoots(Module module, Collection<VirtualFile> files) {
+    Project project = module.getProject();
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      if (project.isDisposed() || DumbService.getInstance(project).isDumb()) {
+        return null;
+      }
+      Ref<Set<String>> result = new Ref<>();
+      // the read action is cancelled as soon as a write action is waiting, so that the PSI walk never blocks the EDT
+      if (ProgressManager.getInstance().runInReadActionWithWriteActionPriority(() -> result.set(new ClasspathPruner(module).collect(files)))) {
+        return result.get();
+      }
+      // the analysis itself was cancelled
+      ProgressManager.checkCanceled();
+      TimeoutUtil.sleep(RETRY_DELAY_MS);
+    }
+    return null;
+  }
+
+  /**
+   * Keeps the entries of a classpath that are referenced, in the same order
+   */
+  static String prune(String classpath, char separator, Set<String> referencedRoots) {
+    return Arrays.stream(classpath.split(String.valueOf(separator)))
+      .filter(referencedRoots::contains)
+      .collect(Collectors.joining(String.valueOf(separator)));
+  }
+
+  @CheckForNull
+  private Set<String> collect(Collection<VirtualFile> files) {
+    PsiManager psiManager = PsiManager.getInstance(module.getProject());
+    for (VirtualFile file : files) {
+      ProgressManager.checkCanceled();
+      if (!file.isValid()) {
+        return null;
+      }
+      PsiFile psiFile = psiManager.findFile(file);
+      if (psiFile instanceof PsiJavaFile) {
+        collect((PsiJavaFile) psiFile);
+      }
+      if (!complete) {
+        return null;
+      }
+    }
+    return roots;
+  }
+
+  private void collect(PsiJavaFile javaFile) {
+    // classes of the same package don't need to be imported
+    String packageName = javaFile.getPackageName();
+    PsiPackage ownPackage = packageName.isEmpty() ? null : JavaPsiFacade.getInstance(module.getProject()).findPackage(packageName);
+    if (ownPackage != null) {
+      addPackage(ownPackage);
+    }
+
+    PsiImportList imports = javaFile.getImportList();
+    if (imports != null) {
+      for (PsiImportStatementBase statement : imports.getAllImportStatements()) {
+        PsiElement target = statement instanceof PsiImportStaticStatement
+          ? ((PsiImportStaticStatement) statement).resolveTargetClass()
+          : statement.resolve();
+        add(target);
+      }
+    }
+
+    javaFile.accept(new JavaRecursiveElementWalkingVisitor() {
+      @Override
+      public void visitImportList(PsiImportList list) {
+        // already done
+      }
+
+      // also called for reference expressions
+      @Override
+      public void visitReferenceElement(PsiJavaCodeReferenceElement reference) {
+        ProgressManager.checkCanceled();
+        super.visitReferenceElement(reference);
+        addIfFullyQualified(reference);
+      }
+    });
+  }
+
+  /**
+   * Only qualifiers need to be resolved to find fully qualified names, other references are resolved through the imports
+   */
+  private void addIfFullyQualified(PsiJavaCodeReferenceElement reference) {
+    PsiElement qualifier = reference.getQualifier();
+    if (complete && qualifier instanceof PsiJavaCodeReferenceElement
+      && ((PsiJavaCodeReferenceElement) qualifier).resolve() instanceof PsiPackage) {
+      PsiElement target = reference.resolve();
+      // intermediate packages of a qualified name would bring all the libraries sharing them
+      if (!(target instanceof PsiPackage)) {
+        add(target);
+      }
+    }
+  }
+
+  private void add(PsiElement target) {
+    if (target instanceof PsiClass) {
+      addClass((PsiClass) target);
+    } else if (target instanceof PsiPackage) {
+      addPackage((PsiPackage) target);
+    } else {
+      complete = false;
+    }
+  }
+
+  private void addPackage(PsiPackage psiPackage) {
+    for (PsiDirectory dir : psiPackage.getDirectories(scope)) {
+      addRoot(dir.getVirtualFile());
+    }
+  }
+
+  /**
+   * The analyzers need the hierarchy of the referenced classes, which might be spread over several libraries
+   */
+  private void addClass(PsiClass psiClass) {
+    if (!visited.add(psiClass)) {
+      return;
+    }
+    VirtualFile file = PsiUtilCore.getVirtualFile(psiClass);
+    if (file == null) {
+      complete = false;
+      return;
+    }
+    addRoot(file);
+    for (PsiClass superClass : psiClass.getSupers()) {
+      addClass(superClass);
+    }
+  }
+
+  private void addRoot(VirtualFile file) {
+    if (fileIndex.isInLibrarySource(file)) {
+      // the classes are in other roots of the same libraries
+      for (OrderEntry entry : fileIndex.getOrderEntriesForFile(file)) {
+        if (entry instanceof LibraryOrderEntry) {
+          for (VirtualFile root : ((LibraryOrderEntry) entry).getRootFiles(OrderRootType.CLASSES)) {
+            roots.add(JavaAnalysisConfigurator.toFile(root.getPath()));
+          }
+        }
+      }
+      return;
+    }
+
+    VirtualFile classRoot = fileIndex.getClassRootForFile(file);
+    if (classRoot != null) {
+      roots.add(JavaAnalysisConfigurator.toFile(classRoot.getPath()));
+      return;
+    }
+
+    Module owner = fileIndex.getModuleForFile(file);
+    if (owner == null) {
+      complete = false;
+    } else if (!owner.equals(module)) {
+      CompilerModuleExtension extension = CompilerModuleExtension.getInstance(owner);
+      String outputUrl = extension != null ? extension.getCompilerOutputUrl() : null;
+      if (outputUrl != null) {
+        roots.add(VfsUtilCore.urlToPath(outputUrl));
+      }
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.components.ApplicationComponent;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.function.LongSupplier;
+import javax.annotation.concurrent.ThreadSafe;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.trigger.TriggerType;
+
+/**
+ * Keeps the CPU used by analyses under a share of the machine's CPU, configured in {@link SonarLintGlobalSettings#getCpuBudgetPercent()}.
+ * <p>
+ * The CPU time of the analyses, measured per thread, is accumulated in a bucket that leaks at the allowed rate.
+ * Once the bucket holds more than {@link #BURST_NS}, jobs have to wait before starting, except the ones explicitly requested
+ * by the user.
+ */
+@ThreadSafe
+public class CpuGovernor extends ApplicationComponent.Adapter {
+  static final long BURST_NS = 2_000_000_000L;
+  static final int CHUNK_SIZE = 10;
+
+  private final SonarLintGlobalSettings globalSettings;
+  private final ThreadMXBean threadBean;
+  private final LongSupplier nanoClock;
+  private final int cores;
+  // both guarded by this
+  private long usedNs = 0;
+  private long lastLeak;
+
+  public CpuGovernor(SonarLintGlobalSettings globalSettings) {
+    this(globalSettings, System::nanoTime, Runtime.getRuntime().availableProcessors());
+  }
+
+  CpuGovernor(SonarLintGlobalSettings globalSettings, LongSupplier nanoClock, int cores) {
+    this.globalSettings = globalSettings;
+    this.threadBean = ManagementFactory.getThreadMXBean();
+    this.nanoClock = nanoClock;
+    this.cores = cores;
+    this.lastLeak = nanoClock.getAsLong();
+  }
+
+  public boolean isEnabled() {
+    return globalSettings.getCpuBudgetPercent() < 100;
+  }
+
+  public static boolean isExempt(TriggerType trigger) {
+    return trigger == TriggerType.ACTION || trigger == TriggerType.SCOPE;
+  }
+
+  /**
+   * CPU time of the current thread, or the wall time if the JVM can't measure it.
+   */
+  public long currentThreadCpuTime() {
+    if (threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled()) {
+      return threadBean.getCurrentThreadCpuTime();
+    }
+    return nanoClock.getAsLong();
+  }
+
+  public synchronized void consumed(long cpuNs) {
+    leak();
+    usedNs += Math.max(0, cpuNs);
+  }
+
+  /**
+   * @return how long jobs that are not exempt should wait before using more CPU, 0 if they can start now
+   */
+  public synchronized long delayMs() {
+    if (!isEnabled()) {
+      return 0;
+    }
+    leak();
+    long excessNs = usedNs - BURST_NS;
+    if (excessNs <= 0) {
+      return 0;
+    }
+    return (long) Math.ceil(excessNs / allowedRate() / 1_000_000);
+  }
+
+  /**
+   * CPU nanoseconds allowed per elapsed nanosecond
+   */
+  private double allowedRate() {
+    return cores * globalSettings.getCpuBudgetPercent() / 100.0;
+  }
+
+  private void leak() {
+    long now = nanoClock.getAsLong();
+    long elapsed = now - lastLeak;
+    lastLeak = now;
+    usedNs = Math.max(0, usedNs - (long) (elapsed * allowedRate()));
+  }
+}
@@ -20,22 +20,86 @@
 package org.sonarlint.intellij.analysis;
 
 import com.intellij.openapi.vfs.VirtualFile;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import javax.annotation.Nullable;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
 
+/**
+ * A file given to the engine. Unsaved changes of a file are analyzed from a snapshot of its document, so that files don't
+ * need to be saved before being analyzed. The engine reads files from their path, so the snapshot is written to a work
+ * directory before the analysis (see {@link #writeSnapshot(Path)}).
+ */
 public class DefaultInputFile implements ClientInputFile {
   private final Path p;
   private final boolean test;
   private final Charset charset;
   private final VirtualFile vFile;
+  @Nullable
+  private final CharSequence contents;
+  private final long modificationStamp;
 
   DefaultInputFile(VirtualFile vFile, boolean isTest, Charset charset) {
-    this.p = Paths.get(vFile.getPath());
+    this(vFile, isTest, charset, null, -1);
+  }
+
+  /**
+   * @param contents snapshot of the document of the file, if it has unsaved changes
+   * @param modificationStamp stamp of the document when the snapshot was taken
+   */
+  DefaultInputFile(VirtualFile vFile, boolean isTest, Charset charset, @Nullable CharSequence contents, long modificationStamp) {
+    this(vFile, Paths.get(vFile.getPath()), isTest, charset, contents, modificationStamp);
+  }
+
+  private DefaultInputFile(VirtualFile vFile, Path p, boolean isTest, Charset charset, @Nullable CharSequence contents, long modificationStamp) {
+    this.p = p;
     this.test = isTest;
     this.charset = charset;
     this.vFile = vFile;
+    this.contents = contents;
+    this.modificationStamp = modificationStamp;
+  }
+
+  /**
+   * @return whether the file has unsaved changes, analyzed from a snapshot of its document
+   */
+  public boolean hasSnapshot() {
+    return contents != null;
+  }
+
+  /**
+   * @return the modification stamp of the document from which the snapshot was taken, or -1 if the file is read from disk
+   */
+  public long getModificationStamp() {
+    return modificationStamp;
+  }
+
+  /**
+   * Content of the file, as it is read by the analyzers
+   */
+  public InputStream inputStream() throws IOException {
+    if (contents != null) {
+      return new ByteArrayInputStream(contents.toString().getBytes(charset));
+    }
+    return Files.newInputStream(p);
+  }
+
+  /**
+   * Writes the snapshot of the document to the given path
+   * @return the same file, read by the analyzers from the written snapshot
+   */
+  DefaultInputFile writeSnapshot(Path snapshot) throws IOException {
+    if (contents == null) {
+      return this;
+    }
+    Files.createDirectories(snapshot.getParent());
+    Files.write(snapshot, contents.toString().getBytes(charset));
+    return new DefaultInputFile(vFile, snapshot, test, charset, contents, modificationStamp);
   }
 
   @Override public Path getPath() {
@@ -36,13 +36,20 @@ import com.intellij.pom.java.LanguageLevel;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.ui.SonarLintConsole;
+import org.sonarlint.intellij.util.SonarLintUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -61,30 +68,86 @@ public class JavaAnalysisConfigurator implements AnalysisConfigurator {
   private static final String JAR_REGEXP = "(.*)!/";
   private static final Pattern JAR_PATTERN = Pattern.compile(JAR_REGEXP);
 
+  /**
+   * Everything but the bytecode target is cached, since its changes are not notified and it is cheap to get
+   */
   @Override
   public Map<String, String> configure(@NotNull Module ijModule) {
+    JavaConfigurationCache cache = SonarLintUtils.get(ijModule.getProject(), JavaConfigurationCache.class);
+    Map<String, String> properties = new HashMap<>(cache.get(ijModule, JavaAnalysisConfigurator::configureCacheable));
+    configureJavaTarget(ijModule, properties);
+    return properties;
+  }
+
+  @Override
+  public Map<String, String> configure(@NotNull Module ijModule, Collection<VirtualFile> filesToAnalyze) {
+    Map<String, String> properties = configure(ijModule);
+    if (SonarLintUtils.get(SonarLintGlobalSettings.class).isPruneClasspath()) {
+      pruneLibraries(ijModule, filesToAnalyze, properties);
+    }
+    return properties;
+  }
+
+  @Override
+  public Set<String> modulePathProperties() {
+    return new HashSet<>(Arrays.asList(JAVA_BINARIES_PROPERTY, JAVA_TEST_BINARIES_PROPERTY));
+  }
+
+  private static void pruneLibraries(Module ijModule, Collection<VirtualFile> filesToAnalyze, Map<String, String> properties) {
+    String libs = properties.get(JAVA_LIBRARIES_PROPERTY);
+    if (libs == null) {
+      return;
+    }
+    SonarLintConsole console = SonarLintUtils.get(ijModule.getProject(), SonarLintConsole.class);
+    Set<String> referencedRoots = ClasspathPruner.referencedRoots(ijModule, filesToAnalyze);
+    if (referencedRoots == null) {
+      console.debug("Unable to resolve all references of the analyzed files, using the whole classpath");
+      return;
+    }
+    String prunedLibs = ClasspathPruner.prune(libs, SEPARATOR, referencedRoots);
+    if (prunedLibs.isEmpty()) {
+      properties.remove(JAVA_LIBRARIES_PROPERTY);
+      properties.remove(JAVA_TEST_LIBRARIES_PROPERTY);
+    } else {
+      properties.put(JAVA_LIBRARIES_PROPERTY, prunedLibs);
+      properties.put(JAVA_TEST_LIBRARIES_PROPERTY, prunedLibs);
+    }
+    console.debug("Classpath pruned to the libraries referenced by the analyzed files");
+  }
+
+  static Map<String, String> configureCacheable(Module ijModule) {
     Map<String, String> properties = new HashMap<>();
     configureLibraries(ijModule, properties);
     configureBinaries(ijModule, properties);
-    configureJavaSourceTarget(ijModule, properties);
+    configureJavaSource(ijModule, properties);
     return properties;
   }
 
-  private static void configureJavaSourceTarget(final Module ijModule, Map<String, String> properties) {
+  private static void configureJavaSource(final Module ijModule, Map<String, String> properties) {
     try {
       LanguageLevel languageLevel = ApplicationManager.getApplication()
         .runReadAction((Computable<LanguageLevel>) () -> EffectiveLanguageLevelUtil.getEffectiveLanguageLevel(ijModule));
-      final String languageLevelStr = getLanguageLevelOption(languageLevel);
+      properties.put(JAVA_SOURCE_PROPERTY, getLanguageLevelOption(languageLevel));
+    } catch (BootstrapMethodError | NoClassDefFoundError e) {
+      // (DM): some components are not available in some flavours, for example ConpilerConfiguration and Language Level in PHP storm or CLion.
+      // Even though this class should now only be loaded when the Java extensions are available, I leave this to be safe
+    }
+  }
+
+  private static void configureJavaTarget(final Module ijModule, Map<String, String> properties) {
+    String languageLevelStr = properties.get(JAVA_SOURCE_PROPERTY);
+    if (languageLevelStr == null) {
+      return;
+    }
+    try {
       String bytecodeTarget = CompilerConfiguration.getInstance(ijModule.getProject()).getBytecodeTargetLevel(ijModule);
       if (isEmpty(bytecodeTarget)) {
         // according to IDEA rule: if not specified explicitly, set target to be the same as source language level
         bytecodeTarget = languageLevelStr;
       }
-      properties.put(JAVA_SOURCE_PROPERTY, languageLevelStr);
       properties.put(JAVA_TARGET_PROPERTY, bytecodeTarget);
     } catch (BootstrapMethodError | NoClassDefFoundError e) {
-      // (DM): some components are not available in some flavours, for example ConpilerConfiguration and Language Level in PHP storm or CLion.
-      // Even though this class should now only be loaded when the Java extensions are available, I leave this to be safe
+      // see configureJavaSource
     }
   }
 
@@ -206,7 +269,7 @@ public class JavaAnalysisConfigurator implements AnalysisConfigurator {
     return file.exists();
   }
 
-  private static String toFile(String path) {
+  static String toFile(String path) {
     Matcher m = JAR_PATTERN.matcher(path);
     if (m.matches()) {
       return m.group(1);
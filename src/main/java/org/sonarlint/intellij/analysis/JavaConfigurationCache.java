@@ -0,0 +1,75 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.components.AbstractProjectComponent;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootAdapter;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Java properties of the modules, which are costly to compute: the classpath resolves all libraries and the compiler output
+ * directories are refreshed from disk.
+ * They are computed again after the roots of the project change, which includes dependencies, compiler output paths and
+ * language levels, and after a build, which may create the compiler output directories.
+ */
+@ThreadSafe
+public class JavaConfigurationCache extends AbstractProjectComponent {
+  private final Map<Module, Map<String, String>> cache = new ConcurrentHashMap<>();
+  private volatile long version = 0;
+
+  public JavaConfigurationCache(Project project) {
+    super(project);
+    project.getMessageBus().connect(project).subscribe(ModuleRootListener.TOPIC, new ModuleRootAdapter() {
+      @Override public void rootsChanged(ModuleRootEvent event) {
+        invalidate();
+      }
+    });
+  }
+
+  public Map<String, String> get(Module module, Function<Module, Map<String, String>> loader) {
+    Map<String, String> properties = cache.get(module);
+    if (properties != null) {
+      return properties;
+    }
+    long v = version;
+    properties = Collections.unmodifiableMap(new HashMap<>(loader.apply(module)));
+    synchronized (this) {
+      // invalidated while loading it
+      if (v == version) {
+        cache.put(module, properties);
+      }
+    }
+    return properties;
+  }
+
+  public synchronized void invalidate() {
+    version++;
+    cache.clear();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+import org.jetbrains.annotations.NotNull;
+import org.sonarlint.intellij.trigger.TriggerType;
+
+/**
+ * Computes the priority of new jobs, based on which editors are visible.
+ * Editor selection is tracked with events, since the {@link FileEditorManager} should only be queried in the EDT, while jobs
+ * can be submitted from any thread.
+ */
+@ThreadSafe
+class JobPrioritizer {
+  private volatile VirtualFile selected;
+  private volatile Set<VirtualFile> visible = Collections.emptySet();
+
+  JobPrioritizer(Project project) {
+    project.getMessageBus().connect(project).subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, new FileEditorManagerListener() {
+      @Override public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+        update(source, null);
+      }
+
+      @Override public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+        update(source, null);
+      }
+
+      @Override public void selectionChanged(@NotNull FileEditorManagerEvent event) {
+        update(event.getManager(), event.getNewFile());
+      }
+    });
+  }
+
+  private void update(FileEditorManager editorManager, @CheckForNull VirtualFile newSelected) {
+    if (newSelected != null) {
+      selected = newSelected;
+    }
+    // files selected in each of the split editors are the ones that are visible
+    visible = new HashSet<>(Arrays.asList(editorManager.getSelectedFiles()));
+    if (selected != null && !visible.contains(selected)) {
+      selected = null;
+    }
+  }
+
+  JobPriority priorityOf(TriggerType trigger, Collection<VirtualFile> files) {
+    VirtualFile currentSelected = selected;
+    Set<VirtualFile> currentVisible = visible;
+    boolean isSelected = currentSelected != null && files.contains(currentSelected);
+    boolean isVisible = files.stream().anyMatch(currentVisible::contains);
+    return JobPriority.of(trigger, isSelected, isVisible);
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import org.sonarlint.intellij.trigger.TriggerType;
+
+/**
+ * Priority of a queued job, from the most to the least urgent.
+ */
+public enum JobPriority {
+  SELECTED_EDITOR,
+  VISIBLE_EDITOR,
+  ACTION,
+  EDITOR_OPEN,
+  COMPILATION,
+  IDLE,
+  BACKGROUND;
+
+  public static JobPriority of(TriggerType trigger) {
+    return of(trigger, false, false);
+  }
+
+  public static JobPriority of(TriggerType trigger, boolean selected, boolean visible) {
+    switch (trigger) {
+      case EDITOR_CHANGE:
+        if (selected) {
+          return SELECTED_EDITOR;
+        }
+        return visible ? VISIBLE_EDITOR : EDITOR_OPEN;
+      case EDITOR_OPEN:
+      case SAVE:
+        return (selected || visible) ? VISIBLE_EDITOR : EDITOR_OPEN;
+      case ACTION:
+      case SCOPE:
+        return ACTION;
+      case IDLE:
+        return IDLE;
+      case BACKGROUND:
+        return BACKGROUND;
+      default:
+        return COMPILATION;
+    }
+  }
+
+  public static JobPriority highest(JobPriority p1, JobPriority p2) {
+    return p1.compareTo(p2) <= 0 ? p1 : p2;
+  }
+}
@@ -20,81 +20,244 @@
 package org.sonarlint.intellij.analysis;
 
 import com.google.common.base.Preconditions;
+import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+import org.sonarlint.intellij.trigger.TriggerType;
 
 /**
+ * Jobs are returned by priority (see {@link JobPriority}). A job gains one priority level for each {@link #AGING_STEP_MS} it waits,
+ * so that jobs with a low priority are not starved.
+ * When the queue is full, the {@link OverflowPolicy} decides what happens with the new job.
  * NOT thread safe
  */
 public class JobQueue {
-  public static final int CAPACITY = 5;
+  public static final int DEFAULT_CAPACITY = 10;
+  static final long AGING_STEP_MS = 10_000;
+
   private final Project project;
-  private final LinkedList<SonarLintJob> queue;
+  private final int capacity;
+  private final OverflowPolicy overflowPolicy;
+  private final LongSupplier clock;
+  private final List<SonarLintJob> queue;
+  // jobs that didn't fit in the queue, with the policies COALESCE and SPILL
+  private final Map<Module, SonarLintJob> coalesced;
+  private final LinkedList<SonarLintJob> spilled;
+  // when each job (or the oldest of the jobs merged into it) was queued
+  private final Map<SonarLintJob, Long> queuedTime;
+
+  public enum OverflowPolicy {
+    /**
+     * Jobs that don't fit are put aside and merged per module, until there is space in the queue
+     */
+    COALESCE,
+    /**
+     * The job with the lowest priority is dropped, the oldest one if several have the same priority
+     */
+    DROP_OLDEST,
+    /**
+     * Jobs that don't fit are put aside as they are, until there is space in the queue
+     */
+    SPILL
+  }
 
   public JobQueue(Project project) {
+    this(project, DEFAULT_CAPACITY, OverflowPolicy.COALESCE);
+  }
+
+  public JobQueue(Project project, int capacity, OverflowPolicy overflowPolicy) {
+    this(project, capacity, overflowPolicy, System::currentTimeMillis);
+  }
+
+  JobQueue(Project project, int capacity, OverflowPolicy overflowPolicy, LongSupplier clock) {
+    Preconditions.checkArgument(capacity > 0, "capacity must be positive");
     this.project = project;
-    this.queue = new LinkedList<>();
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+    this.clock = clock;
+    this.queue = new ArrayList<>();
+    this.coalesced = new LinkedHashMap<>();
+    this.spilled = new LinkedList<>();
+    this.queuedTime = new IdentityHashMap<>();
   }
 
-  public void queue(SonarLintJob job, boolean optimize) throws NoCapacityException {
+  /**
+   * @return the job that was dropped to respect the capacity, if any
+   */
+  @CheckForNull
+  public SonarLintJob queue(SonarLintJob job, boolean optimize) {
     Preconditions.checkArgument(job.module().getProject().equals(project), "job belongs to a different project");
     Preconditions.checkArgument(!job.files().isEmpty(), "no files to analyze");
 
-    if (optimize && tryAddToExisting(job)) {
-      return;
+    queuedTime.put(job, clock.getAsLong());
+    // chunks of a scope keep their size
+    if (optimize && job.trigger() != TriggerType.SCOPE && tryAddToExisting(job)) {
+      return null;
+    }
+
+    if (queue.size() < capacity) {
+      queue.add(job);
+      return null;
+    }
+
+    switch (overflowPolicy) {
+      case COALESCE:
+        coalesced.merge(job.module(), job, this::merge);
+        return null;
+      case SPILL:
+        spilled.addLast(job);
+        return null;
+      case DROP_OLDEST:
+      default:
+        return dropOldest(job);
     }
+  }
+
+  @CheckForNull
+  public SonarLintJob queue(SonarLintJob job) {
+    return queue(job, true);
+  }
 
-    if (queue.size() >= CAPACITY) {
-      throw new NoCapacityException();
+  private SonarLintJob dropOldest(SonarLintJob newJob) {
+    SonarLintJob toDrop = newJob;
+    for (SonarLintJob j : queue) {
+      if (isWorse(j, toDrop)) {
+        toDrop = j;
+      }
     }
-    queue.addLast(job);
+    if (toDrop != newJob) {
+      queue.remove(toDrop);
+      queue.add(newJob);
+    }
+    queuedTime.remove(toDrop);
+    return toDrop;
+  }
+
+  private static boolean isWorse(SonarLintJob j1, SonarLintJob j2) {
+    int cmp = j1.priority().compareTo(j2.priority());
+    return cmp > 0 || (cmp == 0 && j1.creationTime() < j2.creationTime());
   }
 
   private boolean tryAddToExisting(SonarLintJob job) {
-    if (queue.isEmpty()) {
-      return false;
+    if (tryAddToExisting(queue, job)) {
+      return true;
+    }
+    if (coalesced.containsKey(job.module())) {
+      coalesced.merge(job.module(), job, this::merge);
+      return true;
     }
+    return tryAddToExisting(spilled, job);
+  }
+
+  private SonarLintJob merge(SonarLintJob job1, SonarLintJob job2) {
+    SonarLintJob combined = new SonarLintJob(job1, job2);
+    long now = clock.getAsLong();
+    long time1 = queuedTime.getOrDefault(job1, now);
+    long time2 = queuedTime.getOrDefault(job2, now);
+    queuedTime.remove(job1);
+    queuedTime.remove(job2);
+    queuedTime.put(combined, Math.min(time1, time2));
+    return combined;
+  }
 
-    ListIterator<SonarLintJob> it = queue.listIterator();
+  private boolean tryAddToExisting(List<SonarLintJob> jobs, SonarLintJob job) {
+    ListIterator<SonarLintJob> it = jobs.listIterator();
     while (it.hasNext()) {
       SonarLintJob j = it.next();
-      if (!j.module().equals(job.module())) {
+      if (!j.module().equals(job.module()) || j.trigger() == TriggerType.SCOPE) {
         continue;
       }
 
-      SonarLintJob combined = new SonarLintJob(job, j);
-      it.set(combined);
+      it.set(merge(job, j));
       return true;
     }
 
     return false;
   }
 
+  /**
+   * @return number of queued jobs, including the ones waiting for space in the queue
+   */
   public int size() {
-    return queue.size();
-  }
-
-  public void queue(SonarLintJob job) throws NoCapacityException {
-    queue(job, true);
+    return queue.size() + coalesced.size() + spilled.size();
   }
 
   /**
    * It's callers responsibility to check if there is an element in the queue
-   * @return Next queued job
+   * @return Next queued job with the highest priority, taking into account how long it has been waiting
    * @throws NoSuchElementException if the queue is empty
    */
   public SonarLintJob get() {
-    return queue.removeFirst();
+    SonarLintJob job = get(j -> true);
+    if (job == null) {
+      throw new NoSuchElementException();
+    }
+    return job;
   }
 
-  public void clear() {
-    queue.clear();
+  /**
+   * Removes and returns the queued job with the highest priority accepted by the filter.
+   * @return null if no queued job is accepted
+   */
+  @CheckForNull
+  public SonarLintJob get(Predicate<SonarLintJob> filter) {
+    long now = clock.getAsLong();
+    SonarLintJob best = null;
+    for (SonarLintJob job : queue) {
+      if (filter.test(job) && (best == null || rank(job, now) < rank(best, now))) {
+        best = job;
+      }
+    }
+    if (best != null) {
+      queue.remove(best);
+      queuedTime.remove(best);
+      refill();
+    }
+    return best;
   }
 
-  public static class NoCapacityException extends Exception {
+  /**
+   * Lower is more urgent. Ties are won by the oldest job, since it was queued first.
+   */
+  private double rank(SonarLintJob job, long now) {
+    long waited = Math.max(0, now - queuedTime.getOrDefault(job, now));
+    return job.priority().ordinal() - ((double) waited / AGING_STEP_MS);
+  }
+
+  private void refill() {
+    Iterator<SonarLintJob> it = coalesced.values().iterator();
+    while (queue.size() < capacity && it.hasNext()) {
+      queue.add(it.next());
+      it.remove();
+    }
+    while (queue.size() < capacity && !spilled.isEmpty()) {
+      queue.add(spilled.removeFirst());
+    }
+  }
 
+  /**
+   * @return whether a queued job, including the ones waiting for space in the queue, is accepted by the filter
+   */
+  public boolean anyMatch(Predicate<SonarLintJob> filter) {
+    return queue.stream().anyMatch(filter) || coalesced.values().stream().anyMatch(filter) || spilled.stream().anyMatch(filter);
+  }
+
+  public void clear() {
+    queue.clear();
+    coalesced.clear();
+    spilled.clear();
+    queuedTime.clear();
   }
 }
@@ -0,0 +1,277 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.messages.MessageBusConnection;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.issue.LiveIssue;
+import org.sonarlint.intellij.messages.IssueStoreListener;
+import org.sonarlint.intellij.trigger.TriggerType;
+import org.sonarlint.intellij.ui.SonarLintConsole;
+import org.sonarlint.intellij.util.SonarLintAppUtils;
+import org.sonarlint.intellij.util.SonarLintUtils;
+
+/**
+ * Analyzes the files of a scope, which can be as big as the whole project.
+ * <p>
+ * The files that can be analyzed are selected in the background, and submitted to the {@link SonarLintJobManager}. Their jobs are
+ * scheduled and analyzed like any other job, in chunks whose issues are processed as soon as they are analyzed.
+ * <p>
+ * Scopes with a checkpoint key are split in chunks of similar size, analyzed with the trigger {@link TriggerType#SCOPE}. This task
+ * feeds the chunks to the job manager, keeping as many of them pending as analyses can run concurrently, so that chunks of the same
+ * module are analyzed in parallel while jobs of other triggers can still get ahead of them in the queue. Files whose issues are stored
+ * are recorded in a checkpoint, and they are skipped if an interrupted analysis of the same scope is started again.
+ */
+public class ScopeAnalysisPipeline extends Task.Backgroundable {
+  private static final long POLL_MS = 200;
+  static final long TARGET_CHUNK_BYTES = 512 * 1024;
+  static final int MAX_CHUNK_FILES = 100;
+
+  private final Collection<VirtualFile> files;
+  @Nullable
+  private final String checkpointKey;
+  private final boolean foreground;
+
+  /**
+   * @param checkpointKey key of the checkpoint of big scopes, null for scopes that are analyzed like an explicit action on a few files
+   * @param foreground whether the analysis of a scope without checkpoint runs in the foreground
+   */
+  public ScopeAnalysisPipeline(Project project, Collection<VirtualFile> files, @Nullable String checkpointKey, boolean foreground) {
+    super(project, "SonarLint Analysis", true);
+    this.files = files;
+    this.checkpointKey = checkpointKey;
+    this.foreground = foreground;
+  }
+
+  @Override
+  public void run(ProgressIndicator indicator) {
+    SonarLintConsole console = SonarLintConsole.get(myProject);
+    SonarLintJobManager jobManager = SonarLintUtils.get(myProject, SonarLintJobManager.class);
+
+    indicator.setText("Collecting files to analyze");
+    Map<Module, Collection<VirtualFile>> filesByModule = collect(indicator);
+    if (filesByModule.isEmpty() || myProject.isDisposed()) {
+      console.info("No files to analyze");
+      return;
+    }
+
+    if (checkpointKey == null) {
+      if (foreground) {
+        jobManager.submit(filesByModule, TriggerType.ACTION);
+      } else {
+        jobManager.submitAsync(filesByModule, TriggerType.ACTION);
+      }
+      return;
+    }
+
+    AnalysisCheckpoint checkpoint = AnalysisCheckpoint.open(checkpointPath(checkpointKey));
+    Set<VirtualFile> remaining = ConcurrentHashMap.newKeySet();
+    Deque<Chunk> chunks = new ArrayDeque<>();
+    int skipped = 0;
+    for (Map.Entry<Module, Collection<VirtualFile>> e : filesByModule.entrySet()) {
+      List<VirtualFile> notDone = e.getValue().stream().filter(f -> !checkpoint.isDone(f)).collect(Collectors.toList());
+      skipped += e.getValue().size() - notDone.size();
+      remaining.addAll(notDone);
+      balancedChunks(notDone, TARGET_CHUNK_BYTES, MAX_CHUNK_FILES).forEach(c -> chunks.add(new Chunk(e.getKey(), c)));
+    }
+    if (skipped > 0) {
+      console.info("Resuming previous analysis, skipping " + skipped + " file(s) already analyzed");
+    }
+    if (remaining.isEmpty()) {
+      checkpoint.delete();
+      return;
+    }
+
+    int total = remaining.size();
+    console.info(String.format("Analyzing %d file(s) in %d chunk(s)", total, chunks.size()));
+    indicator.setText("Running SonarLint Analysis for " + total + " files");
+    indicator.setIndeterminate(false);
+
+    MessageBusConnection connection = myProject.getMessageBus().connect();
+    connection.subscribe(IssueStoreListener.SONARLINT_ISSUE_STORE_TOPIC, new IssueStoreListener() {
+      @Override public void filesChanged(Map<VirtualFile, Collection<LiveIssue>> map) {
+        List<VirtualFile> analyzed = map.keySet().stream().filter(remaining::remove).collect(Collectors.toList());
+        if (!analyzed.isEmpty()) {
+          checkpoint.done(analyzed);
+        }
+      }
+
+      @Override public void allChanged() {
+        // nothing to do
+      }
+    });
+    try {
+      analyzeChunks(jobManager, indicator, chunks, remaining, total);
+    } finally {
+      connection.disconnect();
+    }
+
+    if (remaining.isEmpty()) {
+      checkpoint.delete();
+      console.info("Analysis of " + total + " file(s) done");
+    } else {
+      console.info(String.format("Analysis stopped after %d file(s), it will resume from there if the analysis of this scope is started again",
+        total - remaining.size()));
+    }
+  }
+
+  /**
+   * Files that can't be analyzed, such as resources, are ignored. Each file is checked in its own read action, so that
+   * write actions don't wait for the whole scope.
+   */
+  private Map<Module, Collection<VirtualFile>> collect(ProgressIndicator indicator) {
+    Application app = ApplicationManager.getApplication();
+    SonarLintAppUtils utils = SonarLintUtils.get(SonarLintAppUtils.class);
+    SonarLintConsole console = SonarLintConsole.get(myProject);
+
+    Map<Module, Collection<VirtualFile>> filesByModule = new LinkedHashMap<>();
+    for (VirtualFile file : files) {
+      indicator.checkCanceled();
+      Module m = app.runReadAction((Computable<Module>) () -> {
+        Module module = file.isValid() && !myProject.isDisposed() ? utils.findModuleForFile(file, myProject) : null;
+        return utils.shouldAnalyze(file, module) ? module : null;
+      });
+      if (m != null) {
+        filesByModule.computeIfAbsent(m, k -> new ArrayList<>()).add(file);
+      } else if (checkpointKey == null) {
+        // big scopes contain many files that can't be analyzed
+        console.info("File '" + file + "' cannot be analyzed");
+      }
+    }
+    return filesByModule;
+  }
+
+  /**
+   * Submits the chunks, at most as many pending at a time as analyses can run concurrently, and waits until none of them is queued
+   * or being analyzed. Cancelling this task, or all analyses of the project, cancels the jobs of the scope.
+   */
+  private void analyzeChunks(SonarLintJobManager jobManager, ProgressIndicator indicator, Deque<Chunk> chunks, Set<VirtualFile> remaining,
+    int total) {
+    SonarLintStatus status = SonarLintStatus.get(myProject);
+    SonarLintGlobalSettings globalSettings = SonarLintUtils.get(SonarLintGlobalSettings.class);
+    CancellationToken token = new CancellationToken();
+    token.onCancel(() -> jobManager.cancel(TriggerType.SCOPE));
+    status.register(token);
+    List<Chunk> pending = new ArrayList<>();
+    try {
+      while (!token.isCancelled() && !myProject.isDisposed()) {
+        if (indicator.isCanceled()) {
+          token.cancel();
+          return;
+        }
+        pending.removeIf(c -> !jobManager.hasPending(c.files));
+        int maxPending = Math.max(1, globalSettings.computeMaxConcurrentAnalyses());
+        while (pending.size() < maxPending && !chunks.isEmpty()) {
+          Chunk c = chunks.poll();
+          jobManager.submitAsync(c.module, c.files, TriggerType.SCOPE);
+          pending.add(c);
+        }
+        if (pending.isEmpty()) {
+          return;
+        }
+        int done = total - remaining.size();
+        indicator.setFraction((double) done / total);
+        indicator.setText2(done + "/" + total + " files");
+        Thread.sleep(POLL_MS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      token.cancel();
+    } finally {
+      status.unregister(token);
+    }
+  }
+
+  private Path checkpointPath(String key) {
+    Path ideaDir = new File(myProject.getBaseDir().getPath(), Project.DIRECTORY_STORE_FOLDER).toPath();
+    return ideaDir.resolve("sonarlint").resolve("checkpoints").resolve(key);
+  }
+
+  /**
+   * Splits the files in chunks with a similar total size, by adding the biggest files first to the smallest chunk.
+   */
+  static List<List<VirtualFile>> balancedChunks(Collection<VirtualFile> files, long targetBytes, int maxFiles) {
+    if (files.isEmpty()) {
+      return new ArrayList<>();
+    }
+    long totalBytes = files.stream().mapToLong(VirtualFile::getLength).sum();
+    int count = (int) Math.max((totalBytes + targetBytes - 1) / targetBytes, (files.size() + maxFiles - 1) / maxFiles);
+    count = Math.max(1, Math.min(count, files.size()));
+
+    PriorityQueue<Bin> bins = new PriorityQueue<>(Comparator.comparingLong(b -> b.bytes));
+    List<Bin> all = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Bin b = new Bin();
+      bins.add(b);
+      all.add(b);
+    }
+
+    List<VirtualFile> sorted = new ArrayList<>(files);
+    sorted.sort(Comparator.comparingLong(VirtualFile::getLength).reversed());
+    for (VirtualFile f : sorted) {
+      // there is always a bin with space left, since count * maxFiles >= files.size()
+      Bin smallest = bins.poll();
+      smallest.files.add(f);
+      smallest.bytes += f.getLength();
+      if (smallest.files.size() < maxFiles) {
+        bins.add(smallest);
+      }
+    }
+    return all.stream().map(b -> b.files).collect(Collectors.toList());
+  }
+
+  private static class Bin {
+    private final List<VirtualFile> files = new ArrayList<>();
+    private long bytes = 0;
+  }
+
+  private static class Chunk {
+    private final Module module;
+    private final List<VirtualFile> files;
+
+    private Chunk(Module module, List<VirtualFile> files) {
+      this.module = module;
+      this.files = files;
+    }
+  }
+}
@@ -19,56 +19,75 @@
  */
 package org.sonarlint.intellij.analysis;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.module.Module;
-import com.intellij.openapi.roots.ContentEntry;
-import com.intellij.openapi.roots.ModuleRootManager;
-import com.intellij.openapi.roots.SourceFolder;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.encoding.EncodingProjectManager;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import org.jetbrains.annotations.NotNull;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.core.JobWorkDirs;
 import org.sonarlint.intellij.core.ProjectBindingManager;
 import org.sonarlint.intellij.core.SonarLintFacade;
 import org.sonarlint.intellij.ui.SonarLintConsole;
+import org.sonarlint.intellij.util.FileClassificationIndex;
+import org.sonarlint.intellij.util.SonarLintUtils;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 public class SonarLintAnalyzer {
   private final ProjectBindingManager projectBindingManager;
   private final EncodingProjectManager encodingProjectManager;
   private final SonarLintConsole console;
+  private final FileClassificationIndex classificationIndex;
+  private final FileDocumentManager fileDocumentManager;
 
-  public SonarLintAnalyzer(ProjectBindingManager projectBindingManager, EncodingProjectManager encodingProjectManager, SonarLintConsole console) {
+  public SonarLintAnalyzer(ProjectBindingManager projectBindingManager, EncodingProjectManager encodingProjectManager, SonarLintConsole console,
+    FileClassificationIndex classificationIndex, FileDocumentManager fileDocumentManager) {
     this.projectBindingManager = projectBindingManager;
     this.encodingProjectManager = encodingProjectManager;
     this.console = console;
+    this.classificationIndex = classificationIndex;
+    this.fileDocumentManager = fileDocumentManager;
   }
 
   public AnalysisResults analyzeModule(Module module, Collection<VirtualFile> filesToAnalyze, IssueListener listener) {
-    // Configure plugin properties. Nothing might be done if there is no configurator available for the extensions loaded in runtime.
-    Map<String, String> pluginProps = new HashMap<>();
-    AnalysisConfigurator[] analysisConfigurators = AnalysisConfigurator.EP_NAME.getExtensions();
-    if (analysisConfigurators.length > 0) {
-      for (AnalysisConfigurator config : analysisConfigurators) {
-        console.debug("Configuring analysis with " + config.getClass().getName());
-        pluginProps.putAll(config.configure(module));
-      }
-    } else {
-      console.info("No analysis configurator found");
-    }
+    return analyzeModules(Collections.singletonList(module), filesToAnalyze, listener);
+  }
+
+  /**
+   * Analyzes files of several modules in a single run, using their joined configuration.
+   * @see #groupByConfiguration(Collection)
+   */
+  public AnalysisResults analyzeModules(List<Module> modules, Collection<VirtualFile> filesToAnalyze, IssueListener listener) {
+    Map<String, String> pluginProps = configure(modules, filesToAnalyze);
 
     // configure files
-    ModuleRootManager moduleRootManager = ModuleRootManager.getInstance(module);
-    List<ClientInputFile> inputFiles = getInputFiles(moduleRootManager, filesToAnalyze);
+    List<ClientInputFile> inputFiles = getInputFiles(filesToAnalyze);
+    Project project = modules.get(0).getProject();
+    Path snapshotDir = writeSnapshots(project, inputFiles);
 
     // Analyze
     long start = System.currentTimeMillis();
@@ -83,38 +102,163 @@ public class SonarLintAnalyzer {
     }
 
     console.info("Analysing " + what + "...");
-    AnalysisResults result = facade.startAnalysis(inputFiles, listener, pluginProps);
-    console.debug("Done in " + (System.currentTimeMillis() - start) + "ms\n");
-    return result;
+    try {
+      AnalysisResults result = facade.startAnalysis(inputFiles, listener, pluginProps);
+      console.debug("Done in " + (System.currentTimeMillis() - start) + "ms\n");
+      return result;
+    } finally {
+      if (snapshotDir != null) {
+        JobWorkDirs.delete(snapshotDir);
+      }
+    }
+  }
+
+  /**
+   * The engine reads files from their path, so the snapshots of files with unsaved changes are written to a work directory,
+   * keeping their path relative to the project, and analyzed from there.
+   * Unlike saving the documents, it doesn't need a write action in the EDT and doesn't fire VFS events.
+   * @return the work directory, or null if no file has unsaved changes
+   */
+  @CheckForNull
+  private static Path writeSnapshots(Project project, List<ClientInputFile> inputFiles) {
+    Path snapshotDir = null;
+    for (ListIterator<ClientInputFile> it = inputFiles.listIterator(); it.hasNext();) {
+      DefaultInputFile inputFile = (DefaultInputFile) it.next();
+      if (!inputFile.hasSnapshot()) {
+        continue;
+      }
+      if (snapshotDir == null) {
+        snapshotDir = JobWorkDirs.create(Paths.get(project.getBasePath()));
+      }
+      Path snapshot = snapshotDir.resolve(SonarLintUtils.getRelativePath(project, inputFile.getClientObject())).normalize();
+      if (!snapshot.startsWith(snapshotDir)) {
+        // outside of the project
+        snapshot = snapshotDir.resolve(inputFile.getClientObject().getName());
+      }
+      try {
+        it.set(inputFile.writeSnapshot(snapshot));
+      } catch (IOException e) {
+        JobWorkDirs.delete(snapshotDir);
+        throw new IllegalStateException("Unable to write the unsaved changes of " + inputFile.getPath(), e);
+      }
+    }
+    return snapshotDir;
+  }
+
+  /**
+   * Identifies the configuration used to analyze files of the module: two analyses of the same file with the same fingerprint
+   * give the same issues, as long as other files don't change.
+   * It doesn't depend on the files analyzed together, which can only narrow the configuration.
+   */
+  public String getConfigurationFingerprint(Module module) {
+    return getConfigurationFingerprint(Collections.singletonList(module));
+  }
+
+  public String getConfigurationFingerprint(List<Module> modules) {
+    return getConfigurationFingerprint(modules, null);
+  }
+
+  /**
+   * Fingerprint of the configuration used to analyze the files of a job.
+   * The classpath can be pruned to the libraries referenced by the analyzed files (see {@link AnalysisConfigurator#configure(Module, Collection)}),
+   * so the configuration is computed once for all the files of the job when pruning is enabled, and issues found with a pruned classpath
+   * are not reused with another one.
+   * Analyzing a file together with other files only adds libraries that it doesn't reference, which doesn't change its issues.
+   */
+  public String getConfigurationFingerprint(List<Module> modules, @Nullable Collection<VirtualFile> files) {
+    SonarLintFacade facade = projectBindingManager.getFacadeForAnalysis();
+    boolean pruned = files != null && SonarLintUtils.get(SonarLintGlobalSettings.class).isPruneClasspath();
+    String fingerprint = facade.getConfigurationFingerprint() + ";" + new TreeMap<>(configure(modules, pruned ? files : null));
+    return pruned ? (fingerprint + ";pruned") : fingerprint;
+  }
+
+  /**
+   * Groups the modules that can be analyzed in a single run, because their configurations are equal, except for the paths
+   * specific to each module, such as their compiler outputs. Each engine run sets up all sensors, which is costly for small modules.
+   * It computes the configuration of each module, so it shouldn't be called from the EDT.
+   */
+  public Collection<List<Module>> groupByConfiguration(Collection<Module> modules) {
+    Set<String> modulePathProperties = getModulePathProperties();
+    Map<Map<String, String>, List<Module>> groups = new LinkedHashMap<>();
+    for (Module module : modules) {
+      Map<String, String> props = configure(module, null);
+      props.keySet().removeAll(modulePathProperties);
+      groups.computeIfAbsent(props, p -> new ArrayList<>()).add(module);
+    }
+    return groups.values();
+  }
+
+  /**
+   * Configuration of the first module, with the paths specific to the other modules appended
+   */
+  private Map<String, String> configure(List<Module> modules, @Nullable Collection<VirtualFile> filesToAnalyze) {
+    Map<String, String> pluginProps = configure(modules.get(0), filesToAnalyze);
+    if (modules.size() > 1) {
+      Set<String> modulePathProperties = getModulePathProperties();
+      for (Module other : modules.subList(1, modules.size())) {
+        Map<String, String> otherProps = configure(other, null);
+        for (String key : modulePathProperties) {
+          String value = otherProps.get(key);
+          if (value != null) {
+            pluginProps.merge(key, value, (v1, v2) -> v1 + "," + v2);
+          }
+        }
+      }
+    }
+    return pluginProps;
+  }
+
+  private static Set<String> getModulePathProperties() {
+    Set<String> properties = new HashSet<>();
+    for (AnalysisConfigurator config : AnalysisConfigurator.EP_NAME.getExtensions()) {
+      properties.addAll(config.modulePathProperties());
+    }
+    return properties;
+  }
+
+  /**
+   * Configure plugin properties. Nothing might be done if there is no configurator available for the extensions loaded in runtime.
+   */
+  private Map<String, String> configure(Module module, @Nullable Collection<VirtualFile> filesToAnalyze) {
+    Map<String, String> pluginProps = new HashMap<>();
+    AnalysisConfigurator[] analysisConfigurators = AnalysisConfigurator.EP_NAME.getExtensions();
+    if (analysisConfigurators.length > 0) {
+      for (AnalysisConfigurator config : analysisConfigurators) {
+        console.debug("Configuring analysis with " + config.getClass().getName());
+        pluginProps.putAll(filesToAnalyze != null ? config.configure(module, filesToAnalyze) : config.configure(module));
+      }
+    } else {
+      console.info("No analysis configurator found");
+    }
+    return pluginProps;
   }
 
-  private List<ClientInputFile> getInputFiles(ModuleRootManager moduleRootManager, Collection<VirtualFile> filesToAnalyze) {
-    Collection<String> testFolderPrefix = findTestFolderPrefixes(moduleRootManager);
+  private List<ClientInputFile> getInputFiles(Collection<VirtualFile> filesToAnalyze) {
     List<ClientInputFile> inputFiles = new LinkedList<>();
 
     for (VirtualFile f : filesToAnalyze) {
-      boolean test = isTestFile(testFolderPrefix, f);
-      Charset charset = getEncoding(f);
-      inputFiles.add(new DefaultInputFile(f, test, charset));
+      inputFiles.add(createInputFile(f));
     }
 
     return inputFiles;
   }
 
-  @NotNull
-  private static Collection<String> findTestFolderPrefixes(ModuleRootManager moduleRootManager) {
-    Collection<String> testFolderPrefix = new ArrayList<>();
-    for (ContentEntry contentEntry : moduleRootManager.getContentEntries()) {
-      final SourceFolder[] sourceFolders = contentEntry.getSourceFolders();
-      for (SourceFolder sourceFolder : sourceFolders) {
-        final VirtualFile file = sourceFolder.getFile();
-        if (file != null && sourceFolder.isTestSource()) {
-          testFolderPrefix.add(file.getPath());
-        }
+  /**
+   * Unsaved changes of the file are taken from its document, in a read action together with the modification stamp of the document
+   */
+  public DefaultInputFile createInputFile(VirtualFile file) {
+    boolean test = classificationIndex.classify(file).isTest();
+    Charset charset = getEncoding(file);
+    if (fileDocumentManager.isFileModified(file)) {
+      DefaultInputFile snapshot = ApplicationManager.getApplication().runReadAction((Computable<DefaultInputFile>) () -> {
+        Document doc = fileDocumentManager.getCachedDocument(file);
+        return doc != null ? new DefaultInputFile(file, test, charset, doc.getImmutableCharSequence(), doc.getModificationStamp()) : null;
+      });
+      if (snapshot != null) {
+        return snapshot;
       }
     }
-
-    return testFolderPrefix;
+    return new DefaultInputFile(file, test, charset);
   }
 
   private Charset getEncoding(@Nullable VirtualFile f) {
@@ -126,15 +270,4 @@ public class SonarLintAnalyzer {
     }
     return Charset.defaultCharset();
   }
-
-  private static boolean isTestFile(Collection<String> testFolderPrefix, VirtualFile f) {
-    String filePath = f.getPath();
-    for (String testPrefix : testFolderPrefix) {
-      if (filePath.startsWith(testPrefix)) {
-        return true;
-      }
-    }
-    return false;
-  }
-
 }
@@ -22,9 +22,12 @@ package org.sonarlint.intellij.analysis;
 import com.google.common.base.Preconditions;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.vfs.VirtualFile;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import javax.annotation.concurrent.Immutable;
 import org.sonarlint.intellij.trigger.TriggerType;
@@ -32,20 +35,37 @@ import org.sonarlint.intellij.trigger.TriggerType;
 @Immutable
 public class SonarLintJob {
   private final Module m;
+  private final List<Module> modules;
   private final Set<VirtualFile> files;
   private final TriggerType trigger;
+  private final JobPriority priority;
   private final long creationTime;
 
   SonarLintJob(Module m, Collection<VirtualFile> files, TriggerType trigger) {
-    Preconditions.checkNotNull(m);
+    this(m, files, trigger, JobPriority.of(trigger));
+  }
+
+  SonarLintJob(Module m, Collection<VirtualFile> files, TriggerType trigger, JobPriority priority) {
+    this(Collections.singletonList(m), files, trigger, priority);
+  }
+
+  /**
+   * Job analyzing together the files of modules that share the same configuration
+   */
+  SonarLintJob(List<Module> modules, Collection<VirtualFile> files, TriggerType trigger, JobPriority priority) {
+    Preconditions.checkArgument(!modules.isEmpty(), "List of modules is empty");
+    Preconditions.checkNotNull(modules.get(0));
     Preconditions.checkNotNull(trigger);
+    Preconditions.checkNotNull(priority);
     Preconditions.checkArgument(!files.isEmpty(), "List of files is empty");
 
-    this.m = m;
+    this.m = modules.get(0);
+    this.modules = Collections.unmodifiableList(new ArrayList<>(modules));
     Set<VirtualFile> fileSet = new HashSet<>();
     fileSet.addAll(files);
     this.files = Collections.unmodifiableSet(fileSet);
     this.trigger = trigger;
+    this.priority = priority;
     this.creationTime = System.currentTimeMillis();
   }
 
@@ -53,23 +73,53 @@ public class SonarLintJob {
     Preconditions.checkArgument(job1.module().equals(job2.module()), "Jobs must belong to the same module");
 
     this.m = job1.module();
+    Set<Module> moduleSet = new LinkedHashSet<>();
+    moduleSet.addAll(job1.modules());
+    moduleSet.addAll(job2.modules());
+    this.modules = Collections.unmodifiableList(new ArrayList<>(moduleSet));
     SonarLintJob oldest = job1.creationTime() < job2.creationTime() ? job1 : job2;
     Set<VirtualFile> fileSet = new HashSet<>();
     fileSet.addAll(job1.files());
     fileSet.addAll(job2.files());
     this.files = Collections.unmodifiableSet(fileSet);
     this.creationTime = oldest.creationTime();
-    this.trigger = oldest.trigger();
+    this.trigger = mergedTrigger(job1, job2, oldest);
+    this.priority = JobPriority.highest(job1.priority(), job2.priority());
+  }
+
+  /**
+   * An explicit action keeps its trigger, which exempts it from the CPU budget and from being superseded while typing.
+   * Otherwise the trigger comes with the most urgent job, the oldest one if both are as urgent.
+   */
+  private static TriggerType mergedTrigger(SonarLintJob job1, SonarLintJob job2, SonarLintJob oldest) {
+    if (job1.trigger() == TriggerType.ACTION || job2.trigger() == TriggerType.ACTION) {
+      return TriggerType.ACTION;
+    }
+    int cmp = job1.priority().compareTo(job2.priority());
+    if (cmp == 0) {
+      return oldest.trigger();
+    }
+    return cmp < 0 ? job1.trigger() : job2.trigger();
   }
 
   public long creationTime() {
     return creationTime;
   }
 
+  /**
+   * Module whose configuration is used to analyze the files
+   */
   public Module module() {
     return m;
   }
 
+  /**
+   * All modules that the files belong to, starting with {@link #module()}
+   */
+  public List<Module> modules() {
+    return modules;
+  }
+
   public Set<VirtualFile> files() {
     return files;
   }
@@ -77,4 +127,8 @@ public class SonarLintJob {
   public TriggerType trigger() {
     return trigger;
   }
+
+  public JobPriority priority() {
+    return priority;
+  }
 }
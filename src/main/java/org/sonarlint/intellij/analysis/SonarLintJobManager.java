@@ -29,32 +29,66 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.messages.MessageBus;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
 
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
 import org.sonarlint.intellij.issue.IssueProcessor;
 import org.sonarlint.intellij.messages.TaskListener;
 import org.sonarlint.intellij.trigger.TriggerType;
 import org.sonarlint.intellij.ui.SonarLintConsole;
 import org.sonarlint.intellij.util.SonarLintUtils;
 
+/**
+ * Queues analysis jobs and runs them in the slots given by the {@link AnalysisScheduler}, which are shared by all projects.
+ * {@link SonarLintStatus} counts the jobs running in this project.
+ * Jobs of different modules can run concurrently, but there is never more than one job running per module, except for the chunks of
+ * a scope analysis, which have distinct files.
+ * <p>
+ * Every EDITOR_CHANGE, SAVE or BULK_CHANGE submission increases the generation of its files. Results of a running job for a file whose generation
+ * increased since the job started are stale, and a running job is cancelled if a newer job of these triggers covers all its files.
+ */
 public class SonarLintJobManager extends AbstractProjectComponent {
   private static final Logger LOGGER = Logger.getInstance(SonarLintJobManager.class);
   private final IssueProcessor processor;
+  private final SonarLintGlobalSettings globalSettings;
   private final MessageBus messageBus;
   private final JobQueue queue;
+  private final JobPrioritizer prioritizer;
   // used to synchronize the handling of queue and running status together
   private final Object lock;
   private final SonarLintStatus status;
   private final SonarLintConsole console;
+  private final AnalysisScheduler scheduler;
+  private final SchedulerClient schedulerClient;
+  // all guarded by the lock
+  private final Map<SonarLintJob, RunningJob> running;
+  private final Map<VirtualFile, Long> generations;
 
-  public SonarLintJobManager(Project project, IssueProcessor processor) {
+  public SonarLintJobManager(Project project, IssueProcessor processor, SonarLintGlobalSettings globalSettings, AnalysisScheduler scheduler) {
     super(project);
     this.processor = processor;
+    this.globalSettings = globalSettings;
     this.messageBus = project.getMessageBus();
-    this.queue = new JobQueue(project);
+    this.queue = new JobQueue(project, JobQueue.DEFAULT_CAPACITY, globalSettings.getJobQueueOverflowPolicy());
+    this.prioritizer = new JobPrioritizer(project);
     this.lock = new Object();
     this.status = SonarLintStatus.get(this.myProject);
     this.console = SonarLintConsole.get(myProject);
+    this.running = new IdentityHashMap<>();
+    this.generations = new HashMap<>();
+    this.scheduler = scheduler;
+    this.schedulerClient = new SchedulerClient();
+    scheduler.register(schedulerClient);
 
     messageBus.connect(project).subscribe(TaskListener.SONARLINT_TASK_TOPIC, new TaskListener() {
       @Override public void started(SonarLintJob job) {
@@ -62,41 +96,151 @@ public class SonarLintJobManager extends AbstractProjectComponent {
       }
 
       @Override public void ended(SonarLintJob job) {
-        taskFinished();
+        taskFinished(job);
       }
     });
   }
 
   public void submitAsync(Module m, Collection<VirtualFile> files, TriggerType trigger) {
+    submitAsync(new SonarLintJob(m, files, trigger, prioritizer.priorityOf(trigger, files)));
+  }
+
+  /**
+   * Submits the files of several modules, modules with the same configuration being analyzed in a single job.
+   * When called from the EDT, the jobs are queued later, from a pooled thread.
+   * @see SonarLintAnalyzer#groupByConfiguration(Collection)
+   */
+  public void submitAsync(Map<Module, Collection<VirtualFile>> filesByModule, TriggerType trigger) {
+    forEachGroup(filesByModule, (group, files) -> submitAsync(new SonarLintJob(group, files, trigger, prioritizer.priorityOf(trigger, files))));
+  }
+
+  /**
+   * Submits again some files of a job that didn't complete, with the same configuration
+   */
+  void resubmit(SonarLintJob job, Collection<VirtualFile> files) {
+    submitAsync(new SonarLintJob(job.modules(), files, job.trigger(), job.priority()));
+  }
+
+  /**
+   * Grouping computes the configuration of each module, which can take a while, so it's not done in the EDT
+   */
+  private void forEachGroup(Map<Module, Collection<VirtualFile>> filesByModule, BiConsumer<List<Module>, List<VirtualFile>> submitter) {
+    Application app = ApplicationManager.getApplication();
+    if (filesByModule.size() > 1 && app.isDispatchThread()) {
+      Map<Module, Collection<VirtualFile>> copy = new LinkedHashMap<>();
+      filesByModule.forEach((m, files) -> copy.put(m, new ArrayList<>(files)));
+      app.executeOnPooledThread(() -> {
+        if (!myProject.isDisposed()) {
+          groupByConfiguration(copy).forEach(group -> submitter.accept(group, filesOf(group, copy)));
+        }
+      });
+    } else {
+      groupByConfiguration(filesByModule).forEach(group -> submitter.accept(group, filesOf(group, filesByModule)));
+    }
+  }
+
+  private Collection<List<Module>> groupByConfiguration(Map<Module, Collection<VirtualFile>> filesByModule) {
+    if (filesByModule.size() == 1) {
+      return Collections.singletonList(new ArrayList<>(filesByModule.keySet()));
+    }
+    Collection<List<Module>> groups = SonarLintUtils.get(myProject, SonarLintAnalyzer.class).groupByConfiguration(filesByModule.keySet());
+    if (groups.size() < filesByModule.size()) {
+      console.debug(String.format("Analyzing %d modules in %d group(s) of identical configuration", filesByModule.size(), groups.size()));
+    }
+    return groups;
+  }
+
+  private static List<VirtualFile> filesOf(List<Module> modules, Map<Module, Collection<VirtualFile>> filesByModule) {
+    return modules.stream()
+      .flatMap(m -> filesByModule.get(m).stream())
+      .collect(Collectors.toList());
+  }
+
+  private void submitAsync(SonarLintJob newJob) {
+    TriggerType trigger = newJob.trigger();
+    Collection<VirtualFile> files = newJob.files();
     if (console.debugEnabled()) {
       SonarLintConsole.get(myProject).debug(String.format("[%s] %d file(s) submitted", trigger.getName(), files.size()));
     }
 
-    SonarLintJob newJob = new SonarLintJob(m, files, trigger);
-    SonarLintJob nextJob;
-
     synchronized (lock) {
-      try {
-        queue.queue(newJob);
-      } catch (JobQueue.NoCapacityException e) {
-        String msg = "Not submitting SonarLint analysis because job queue is full";
-        SonarLintConsole.get(myProject).info(msg);
-        LOGGER.warn(msg);
-        return;
+      if (trigger == TriggerType.EDITOR_CHANGE || trigger == TriggerType.SAVE || trigger == TriggerType.BULK_CHANGE) {
+        newGeneration(files);
+        supersedeRunning(newJob);
       }
+      enqueue(newJob);
+    }
 
-      if (!status.tryRun()) {
-        return;
+    scheduler.dispatch();
+  }
+
+  /**
+   * Must be called while holding the lock. The overflow policy of a full queue might drop a job, which is logged.
+   */
+  private void enqueue(SonarLintJob job) {
+    SonarLintJob dropped = queue.queue(job);
+    if (dropped != null) {
+      String msg = String.format("[%s] Dropping analysis of %d file(s) because job queue is full", dropped.trigger().getName(), dropped.files().size());
+      console.info(msg);
+      LOGGER.warn(msg);
+    }
+  }
+
+  private void newGeneration(Collection<VirtualFile> files) {
+    for (VirtualFile f : files) {
+      generations.merge(f, 1L, Long::sum);
+    }
+  }
+
+  /**
+   * Cancels the background jobs whose files are all going to be analyzed again by the new job.
+   * The new job is launched when the cancelled job finishes and frees the module.
+   */
+  private void supersedeRunning(SonarLintJob newJob) {
+    for (RunningJob r : running.values()) {
+      if (r.task.shouldStartInBackground() && newJob.files().containsAll(r.job.files())) {
+        console.debug(String.format("Cancelling analysis of %d file(s) superseded by new changes", r.job.files().size()));
+        r.task.cancel();
+      }
+    }
+  }
+
+  /**
+   * Removes the queued jobs of a trigger and cancels its running background jobs.
+   */
+  public void cancel(TriggerType trigger) {
+    synchronized (lock) {
+      while (queue.get(j -> j.trigger() == trigger) != null) {
+        // drop it
       }
+      running.values().stream()
+        .filter(r -> r.job.trigger() == trigger && r.task.shouldStartInBackground())
+        .forEach(r -> r.task.cancel());
+    }
+  }
 
-      nextJob = queue.get();
+  /**
+   * Whether some of the files are queued or being analyzed
+   */
+  public boolean hasPending(Collection<VirtualFile> files) {
+    synchronized (lock) {
+      return running.keySet().stream().anyMatch(j -> !Collections.disjoint(j.files(), files))
+        || queue.anyMatch(j -> !Collections.disjoint(j.files(), files));
     }
+  }
 
-    launchAsync(nextJob);
+  /**
+   * Whether the file was changed and submitted again since the job started, in which case its results are obsolete.
+   */
+  public boolean isStale(SonarLintJob job, VirtualFile file) {
+    synchronized (lock) {
+      RunningJob r = running.get(job);
+      return r != null && r.generations.getOrDefault(file, 0L) < generations.getOrDefault(file, 0L);
+    }
   }
 
   /**
-   * Runs SonarLint analysis synchronously, if no analysis is already on going.
+   * Runs SonarLint analysis synchronously, if a running slot is available and the module is not already being analyzed.
    * It might queue the submission of the job in the EDT thread.
    * Once it starts, it will display a ProgressWindow with the EDT and run the analysis in a pooled thread.
    * The reason why we might want to queue the analysis instead of starting immediately is that the EDT might currently hold a write access.
@@ -105,18 +249,82 @@ public class SonarLintJobManager extends AbstractProjectComponent {
    * @see #submitAsync(Module, Collection, TriggerType)
    */
   public void submit(Module m, Collection<VirtualFile> files, TriggerType trigger) {
+    submit(new SonarLintJob(m, files, trigger));
+  }
+
+  /**
+   * Same as {@link #submitAsync(Map, TriggerType)}, but running each job synchronously.
+   * @see #submit(Module, Collection, TriggerType)
+   */
+  public void submit(Map<Module, Collection<VirtualFile>> filesByModule, TriggerType trigger) {
+    forEachGroup(filesByModule, (group, files) -> submit(new SonarLintJob(group, files, trigger, JobPriority.of(trigger))));
+  }
+
+  private void submit(SonarLintJob job) {
     if (console.debugEnabled()) {
-      SonarLintConsole.get(myProject).debug(String.format("[%s] %d file(s) submitted", trigger.getName(), files.size()));
+      SonarLintConsole.get(myProject).debug(String.format("[%s] %d file(s) submitted", job.trigger().getName(), job.files().size()));
+    }
+    SonarLintTask task = null;
+    if (!scheduler.tryAcquire()) {
+      return;
     }
     synchronized (lock) {
-      if (myProject.isDisposed() || !status.tryRun()) {
-        return;
+      status.setMaxConcurrent(globalSettings.computeMaxConcurrentAnalyses());
+      if (!myProject.isDisposed() && !isModuleRunning(job) && status.tryRun()) {
+        task = start(job, false);
       }
     }
+    if (task == null) {
+      scheduler.release();
+      return;
+    }
+
+    run(task, job);
+  }
 
-    final SonarLintJob job = new SonarLintJob(m, files, trigger);
-    final SonarLintTask task = SonarLintTask.createForeground(processor, job);
-    saveAndRun(task, job);
+  private boolean isModuleRunning(SonarLintJob job) {
+    return running.keySet().stream().anyMatch(j -> !Collections.disjoint(j.modules(), job.modules()) && !areScopeChunks(j, job));
+  }
+
+  private static boolean areScopeChunks(SonarLintJob job1, SonarLintJob job2) {
+    return job1.trigger() == TriggerType.SCOPE && job2.trigger() == TriggerType.SCOPE && Collections.disjoint(job1.files(), job2.files());
+  }
+
+  /**
+   * Must be called while holding the lock, once the job has a running slot.
+   */
+  private SonarLintTask start(SonarLintJob job, boolean background) {
+    SonarLintTask task = background ? SonarLintTask.createBackground(processor, job) : SonarLintTask.createForeground(processor, job);
+    Map<VirtualFile, Long> jobGenerations = new HashMap<>();
+    for (VirtualFile f : job.files()) {
+      jobGenerations.put(f, generations.getOrDefault(f, 0L));
+    }
+    running.put(job, new RunningJob(job, task, jobGenerations));
+    return task;
+  }
+
+  /**
+   * Takes the next queued job, skipping jobs of modules that are already being analyzed.
+   * Called by the scheduler once it has a free slot for this project.
+   */
+  @CheckForNull
+  private SonarLintTask takeNext(boolean onlyExempt) {
+    synchronized (lock) {
+      status.setMaxConcurrent(globalSettings.computeMaxConcurrentAnalyses());
+      if (myProject.isDisposed() || !status.canRun()) {
+        return null;
+      }
+      SonarLintJob job = queue.get(j -> !isModuleRunning(j) && (!onlyExempt || CpuGovernor.isExempt(j.trigger())));
+      if (job == null) {
+        return null;
+      }
+      if (!status.tryRun()) {
+        // cancelled in the meantime
+        enqueue(job);
+        return null;
+      }
+      return start(job, true);
+    }
   }
 
   /**
@@ -125,44 +333,99 @@ public class SonarLintJobManager extends AbstractProjectComponent {
    * might be changed with the editor at the same time, resulting in a bad placement of the issues in the editor.
    * @see #submit(Module, Collection, TriggerType)
    */
-  private void launchAsync(final SonarLintJob job) {
-    final SonarLintTask task = SonarLintTask.createBackground(processor, job);
-    saveAndRun(task, job);
+  private void launchAsync(final SonarLintTask task) {
+    run(task, task.getJob());
   }
 
-  private void saveAndRun(final SonarLintTask task, final SonarLintJob job) {
+  /**
+   * Files are not saved before being analyzed: their unsaved changes are analyzed from snapshots of their documents,
+   * taken when the analysis starts (see {@link SonarLintAnalyzer#createInputFile(VirtualFile)}).
+   */
+  private void run(final SonarLintTask task, final SonarLintJob job) {
     final Application app = ApplicationManager.getApplication();
     if (!app.isDispatchThread() || app.isWriteAccessAllowed()) {
       app.invokeLater(() -> {
         // check again is we are being closed
         if (job.module().getProject().isDisposed()) {
+          taskFinished(job);
           return;
         }
-        // we save as late as possible, even if job was queued up for a while to get the most up-to-date results
-        SonarLintUtils.saveFiles(job.files());
         notifyStart(job);
         ProgressManager.getInstance().run(task);
       });
     } else {
-      SonarLintUtils.saveFiles(job.files());
       notifyStart(job);
       ProgressManager.getInstance().run(task);
     }
   }
 
-  public void taskFinished() {
+  public void taskFinished(SonarLintJob finished) {
     synchronized (lock) {
-      if (queue.size() > 0) {
-        // try launch next, if there is any, without changing running status
-        SonarLintJob job = queue.get();
-        launchAsync(job);
-      } else {
-        status.stopRun();
+      if (running.remove(finished) == null) {
+        return;
       }
+      status.stopRun();
+      forgetGenerations();
+    }
+    // the slot might go to another project
+    scheduler.release();
+  }
+
+  @Override
+  public void disposeComponent() {
+    scheduler.unregister(schedulerClient);
+    int slots;
+    synchronized (lock) {
+      slots = running.size();
+      running.clear();
+      queue.clear();
+    }
+    // tasks still running won't be able to notify us anymore
+    for (int i = 0; i < slots; i++) {
+      scheduler.release();
+    }
+  }
+
+  /**
+   * Generations are only needed while a job of the file is running or queued.
+   */
+  private void forgetGenerations() {
+    if (running.isEmpty() && queue.size() == 0) {
+      generations.clear();
     }
   }
 
   private void notifyStart(SonarLintJob job) {
     messageBus.syncPublisher(TaskListener.SONARLINT_TASK_TOPIC).started(job);
   }
+
+  private class SchedulerClient implements AnalysisScheduler.Client {
+    @Override public Project project() {
+      return myProject;
+    }
+
+    @Override public int queueDepth() {
+      synchronized (lock) {
+        return queue.size();
+      }
+    }
+
+    @CheckForNull
+    @Override public Runnable takeNext(boolean onlyExempt) {
+      SonarLintTask task = SonarLintJobManager.this.takeNext(onlyExempt);
+      return task != null ? (() -> launchAsync(task)) : null;
+    }
+  }
+
+  private static class RunningJob {
+    private final SonarLintJob job;
+    private final SonarLintTask task;
+    private final Map<VirtualFile, Long> generations;
+
+    private RunningJob(SonarLintJob job, SonarLintTask task, Map<VirtualFile, Long> generations) {
+      this.job = job;
+      this.task = task;
+      this.generations = generations;
+    }
+  }
 }
@@ -19,15 +19,27 @@
  */
 package org.sonarlint.intellij.analysis;
 
+import com.google.common.base.Preconditions;
 import com.intellij.openapi.components.AbstractProjectComponent;
 import com.intellij.openapi.project.Project;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import javax.annotation.concurrent.ThreadSafe;
 import org.sonarlint.intellij.messages.StatusListener;
 
+/**
+ * Keeps track of the analyses running in a project. Up to {@link #getMaxConcurrent()} jobs can hold a running slot at the same time.
+ * The status is {@link Status#RUNNING} as long as at least one slot is taken.
+ */
 @ThreadSafe
 public class SonarLintStatus extends AbstractProjectComponent {
   private final StatusListener statusListener;
   private Status status = Status.STOPPED;
+  private int running = 0;
+  private int maxConcurrent = 1;
+  private final Set<CancellationToken> tokens = new HashSet<>();
 
   public SonarLintStatus(Project project) {
     super(project);
@@ -48,12 +60,35 @@ public class SonarLintStatus extends AbstractProjectComponent {
     return status == Status.CANCELLING;
   }
 
+  public synchronized int getRunningCount() {
+    return running;
+  }
+
+  public synchronized int getMaxConcurrent() {
+    return maxConcurrent;
+  }
+
+  /**
+   * Changes the number of slots. Jobs already running keep their slot if the number is reduced.
+   */
+  public synchronized void setMaxConcurrent(int maxConcurrent) {
+    Preconditions.checkArgument(maxConcurrent > 0, "At least one slot is needed");
+    this.maxConcurrent = maxConcurrent;
+  }
+
+  /**
+   * Releases one running slot. The status only changes to {@link Status#STOPPED} once the last slot is released.
+   */
   public void stopRun() {
     Status callback = null;
     synchronized (this) {
       if (isRunning()) {
-        status = Status.STOPPED;
-        callback = status;
+        running--;
+        if (running <= 0) {
+          running = 0;
+          status = Status.STOPPED;
+          callback = status;
+        }
       }
     }
 
@@ -63,25 +98,54 @@ public class SonarLintStatus extends AbstractProjectComponent {
     }
   }
 
+  /**
+   * The token will be cancelled if {@link #cancel()} is called, until it is unregistered.
+   */
+  public synchronized void register(CancellationToken token) {
+    tokens.add(token);
+  }
+
+  public synchronized void unregister(CancellationToken token) {
+    tokens.remove(token);
+  }
+
   public void cancel() {
     Status callback = null;
+    List<CancellationToken> toCancel = null;
     synchronized (this) {
       if (status == Status.RUNNING) {
         status = Status.CANCELLING;
         callback = Status.CANCELLING;
+        toCancel = new ArrayList<>(tokens);
       }
     }
 
     //don't lock while calling listeners
     if (callback != null) {
+      toCancel.forEach(CancellationToken::cancel);
       statusListener.changed(callback);
     }
   }
 
+  /**
+   * @return whether {@link #tryRun()} would currently succeed
+   */
+  public synchronized boolean canRun() {
+    return status != Status.CANCELLING && running < maxConcurrent;
+  }
+
+  /**
+   * Tries to take a running slot.
+   * @return false if all slots are taken or if the running jobs are being cancelled
+   */
   public boolean tryRun() {
     Status callback = null;
     synchronized (this) {
-      if (!isRunning()) {
+      if (!canRun()) {
+        return false;
+      }
+      running++;
+      if (status == Status.STOPPED) {
         status = Status.RUNNING;
         callback = Status.RUNNING;
       }
@@ -90,9 +154,7 @@ public class SonarLintStatus extends AbstractProjectComponent {
     //don't lock while calling listeners
     if (callback != null) {
       statusListener.changed(callback);
-      return true;
-    } else {
-      return false;
     }
+    return true;
   }
 }
@@ -22,28 +22,47 @@ package org.sonarlint.intellij.analysis;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.progress.util.AbstractProgressIndicatorExBase;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.wm.ex.ProgressIndicatorEx;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import org.sonarlint.intellij.editor.AccumulatorIssueListener;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.sonarlint.intellij.editor.StreamingIssueListener;
 import org.sonarlint.intellij.issue.IssueProcessor;
+import org.sonarlint.intellij.messages.AnalysisDurationListener;
 import org.sonarlint.intellij.messages.TaskListener;
+import org.sonarlint.intellij.trigger.TriggerScheduler;
+import org.sonarlint.intellij.trigger.TriggerType;
 import org.sonarlint.intellij.ui.SonarLintConsole;
 import org.sonarlint.intellij.util.SonarLintUtils;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
 
 public class SonarLintTask extends Task.Backgroundable {
   private static final Logger LOGGER = Logger.getInstance(SonarLintJobManager.class);
+  static final int MAX_CHUNK_SIZE = 64;
   private final IssueProcessor processor;
   private final SonarLintJob job;
   private final boolean startInBackground;
+  private final CancellationToken token;
+  // thread running the analysis, to be interrupted if cancelled
+  private Thread analysisThread;
 
   private SonarLintTask(IssueProcessor processor, SonarLintJob job, boolean background) {
     super(job.module().getProject(), "SonarLint Analysis", true);
     this.processor = processor;
     this.job = job;
     this.startInBackground = background;
+    this.token = new CancellationToken();
   }
 
   public static SonarLintTask createBackground(IssueProcessor processor, SonarLintJob job) {
@@ -59,6 +78,17 @@ public class SonarLintTask extends Task.Backgroundable {
     return startInBackground;
   }
 
+  public SonarLintJob getJob() {
+    return job;
+  }
+
+  /**
+   * Cancels only this task, as if it was cancelled in its progress indicator. It may not have started yet.
+   */
+  public void cancel() {
+    token.cancel();
+  }
+
   private static void stopRun(SonarLintJob job) {
     Project project = job.module().getProject();
     if (!project.isDisposed()) {
@@ -78,9 +108,21 @@ public class SonarLintTask extends Task.Backgroundable {
     SonarLintStatus status = SonarLintStatus.get(p);
     SonarLintConsole console = SonarLintConsole.get(p);
     SonarLintAnalyzer analyzer = SonarLintUtils.get(p, SonarLintAnalyzer.class);
+    CpuGovernor governor = SonarLintUtils.get(CpuGovernor.class);
+
+    status.register(token);
+    listenToIndicator(indicator);
+    token.onCancel(() -> {
+      // ensure that UI is canceled
+      if (!indicator.isCanceled()) {
+        indicator.cancel();
+      }
+      console.info("Canceling...");
+      interruptAnalysis();
+    });
 
     try {
-      if (indicator.isCanceled() || status.isCanceled()) {
+      if (isCanceled(indicator, status)) {
         return;
       }
 
@@ -91,90 +133,285 @@ public class SonarLintTask extends Task.Backgroundable {
         indicator.setText("Running SonarLint Analysis for '" + getFileName(job.files().iterator().next()) + "'");
       }
 
-      final AccumulatorIssueListener listener = new AccumulatorIssueListener();
+      StreamingIssueListener listener = new StreamingIssueListener();
       LOGGER.info(indicator.getText());
 
-      CancelMonitor monitor = new CancelMonitor(indicator, status, Thread.currentThread());
-      AnalysisResults result;
-
-      try {
-        monitor.start();
-        result = analyzer.analyzeModule(job.module(), job.files(), listener);
-        indicator.startNonCancelableSection();
-      } finally {
-        monitor.stopMonitor();
-      }
+      long analysisMs = analyze(analyzer, governor, listener, indicator, status);
 
-      //last chance to cancel (to avoid the possibility of having interrupt flag set)
-      if (indicator.isCanceled() || status.isCanceled() || p.isDisposed()) {
+      if (isCanceled(indicator, status) || p.isDisposed()) {
         return;
       }
 
-      LOGGER.info("SonarLint analysis done");
-
-      indicator.setIndeterminate(false);
-      indicator.setFraction(.9);
-
-      List<Issue> issues = listener.getIssues();
-      indicator.setText("Creating SonarLint issues: " + issues.size());
-
-      processor.process(job, issues, result.failedAnalysisFiles(), job.trigger());
+      if (analysisMs > 0) {
+        p.getMessageBus().syncPublisher(AnalysisDurationListener.SONARLINT_ANALYSIS_DURATION_TOPIC).analysisDone(job, analysisMs);
+      }
+      LOGGER.info("SonarLint analysis done, found " + listener.total() + " issues");
     } catch (RuntimeException e) {
       // if cancelled, ignore any errors since they were most likely caused by the interrupt
-      if (!indicator.isCanceled() && !status.isCanceled()) {
+      if (!isCanceled(indicator, status)) {
         String msg = "Error running SonarLint analysis";
         console.error(msg, e);
         LOGGER.warn(msg, e);
       }
     } finally {
+      status.unregister(token);
       stopRun(job);
     }
   }
 
-  private class CancelMonitor extends Thread {
-    private final ProgressIndicator indicator;
-    private final SonarLintStatus status;
-    private final Thread t;
-    private boolean stop = false;
+  /**
+   * Files of multi-file jobs are analyzed in chunks, and the issues of each chunk are processed as soon as it is done.
+   * Chunks start with a single file so that first results show up quickly, and then double in size to limit the overhead
+   * of starting analyses. Jobs that are not exempt from the CPU budget use smaller chunks, waiting before each chunk
+   * until the CPU used by analyses is back under the budget. Jobs of a scope analysis are already chunks, analyzed at once.
+   * <p>
+   * A watchdog cancels the task, as if it was cancelled by the user, when a chunk takes longer than its time budget. Files of the
+   * chunk are quarantined or become suspects (see {@link AnalysisQuarantine}), and the files that were not analyzed are submitted again.
+   * Suspects are analyzed first, each in its own chunk.
+   * @return time spent in the analysis, in ms
+   */
+  private long analyze(SonarLintAnalyzer analyzer, CpuGovernor governor, StreamingIssueListener listener, ProgressIndicator indicator,
+    SonarLintStatus status) {
+    Project p = job.module().getProject();
+    AnalysisResultCache cache = SonarLintUtils.get(p, AnalysisResultCache.class);
+    AnalysisCostProfile costProfile = SonarLintUtils.get(p, AnalysisCostProfile.class);
+    AnalysisQuarantine quarantine = SonarLintUtils.get(p, AnalysisQuarantine.class);
+    TriggerScheduler watchdog = SonarLintUtils.get(TriggerScheduler.class);
+    Map<VirtualFile, String> cacheKeys = new HashMap<>();
+    Collection<VirtualFile> files = replayCachedResults(analyzer, cache, quarantine, cacheKeys);
 
-    public CancelMonitor(ProgressIndicator indicator, SonarLintStatus status, Thread t) {
-      this.indicator = indicator;
-      this.status = status;
-      this.t = t;
-      this.setName("sonarlint-cancel-monitor");
-      this.setDaemon(true);
+    boolean budgeted = governor.isEnabled() && !CpuGovernor.isExempt(job.trigger());
+    List<Collection<VirtualFile>> chunks = new ArrayList<>();
+    List<VirtualFile> others = new ArrayList<>();
+    for (VirtualFile f : files) {
+      if (quarantine.isSuspect(f)) {
+        chunks.add(Collections.singletonList(f));
+      } else {
+        others.add(f);
+      }
     }
-
-    public synchronized void stopMonitor() {
-      stop = true;
+    if (chunks.isEmpty() && files.size() == 1) {
+      chunks.add(files);
+    } else if (!others.isEmpty() && job.trigger() == TriggerType.SCOPE) {
+      // already split in chunks of similar size by the scope analysis
+      chunks.add(others);
+    } else if (!others.isEmpty()) {
+      chunks.addAll(chunks(others, budgeted ? CpuGovernor.CHUNK_SIZE : MAX_CHUNK_SIZE));
     }
 
-    @Override
-    public void run() {
-      while (true) {
-        synchronized (this) {
-          // don't trust too much in isAlive: thread is probably pooled in a executor
-          if (stop || !t.isAlive() || !status.isRunning()) {
-            break;
-          }
+    long analysisMs = 0;
+    int analyzed = job.files().size() - files.size();
+    for (int i = 0; i < chunks.size() && !isCanceled(indicator, status); i++) {
+      Collection<VirtualFile> chunk = chunks.get(i);
+      AnalysisResults result = null;
+      boolean timedOut;
+      long chunkMs;
+      startAnalysis();
+      try {
+        if (i > 0 && budgeted) {
+          waitForCpuBudget(governor, indicator, status);
+        }
+        long start = System.currentTimeMillis();
+        long cpuStart = governor.currentThreadCpuTime();
+        long budgetMs = quarantine.budgetMs(chunk.size());
+        // set by whoever comes first: the analysis when it returns, or the watchdog when the budget is exceeded
+        AtomicBoolean settled = new AtomicBoolean();
+        if (budgetMs > 0) {
+          watchdog.schedule(this, budgetMs, () -> {
+            if (settled.compareAndSet(false, true)) {
+              token.cancel();
+            }
+          });
         }
-        if (indicator.isCanceled() || status.isCanceled()) {
-          // ensure that UI is canceled
-          if (!indicator.isCanceled()) {
-            indicator.cancel();
+        try {
+          result = analyzer.analyzeModules(job.modules(), chunk, listener);
+          // if the watchdog fired before the analysis returned, the chunk timed out even if it has results
+          timedOut = !settled.compareAndSet(false, true);
+        } catch (RuntimeException e) {
+          timedOut = !settled.compareAndSet(false, true);
+          if (!timedOut) {
+            throw e;
           }
-
-          SonarLintConsole.get(myProject).info("Canceling...");
-          t.interrupt();
-          break;
+          // most likely caused by the interrupt
+        } finally {
+          watchdog.cancel(this);
+          governor.consumed(governor.currentThreadCpuTime() - cpuStart);
+          chunkMs = System.currentTimeMillis() - start;
+          analysisMs += chunkMs;
         }
+      } finally {
+        stopAnalysis();
+      }
 
-        try {
-          Thread.sleep(100);
-        } catch (InterruptedException e) {
-          break;
+      if (timedOut) {
+        handleTimeout(analyzer, quarantine, chunks.subList(i, chunks.size()));
+        break;
+      }
+      // last chance to cancel
+      if (isCanceled(indicator, status) || job.module().getProject().isDisposed()) {
+        break;
+      }
+      quarantine.cleared(chunk);
+      costProfile.record(chunk, chunkMs);
+      List<Issue> issues = listener.drain();
+      processor.process(job, chunk, issues, result.failedAnalysisFiles(), job.trigger());
+      saveResults(cache, cacheKeys, chunk, issues, result.failedAnalysisFiles());
+      analyzed += chunk.size();
+      if (chunks.size() > 1) {
+        indicator.setIndeterminate(false);
+        indicator.setFraction((double) analyzed / job.files().size());
+      }
+    }
+    return analysisMs;
+  }
+
+  /**
+   * @param notAnalyzed chunks that were not analyzed, starting with the one that timed out
+   */
+  private void handleTimeout(SonarLintAnalyzer analyzer, AnalysisQuarantine quarantine, List<Collection<VirtualFile>> notAnalyzed) {
+    Project p = job.module().getProject();
+    Collection<VirtualFile> chunk = notAnalyzed.get(0);
+    List<VirtualFile> remaining = new ArrayList<>();
+    if (chunk.size() == 1) {
+      VirtualFile file = chunk.iterator().next();
+      quarantine.quarantine(file, analyzer.createInputFile(file));
+    } else {
+      SonarLintConsole.get(p).info(String.format("Analysis of %d files exceeded %ds, analyzing them one by one",
+        chunk.size(), quarantine.budgetMs(chunk.size()) / 1000));
+      quarantine.suspect(chunk);
+      remaining.addAll(chunk);
+    }
+    notAnalyzed.subList(1, notAnalyzed.size()).forEach(remaining::addAll);
+
+    if (!remaining.isEmpty() && !p.isDisposed()) {
+      SonarLintUtils.get(p, SonarLintJobManager.class).resubmit(job, remaining);
+    }
+  }
+
+  /**
+   * Issues of files that didn't change since they were last analyzed with the same configuration are processed right away.
+   * Quarantined files are skipped.
+   * @param cacheKeys filled with the keys of the files that need to be analyzed
+   * @return files that need to be analyzed
+   */
+  private Collection<VirtualFile> replayCachedResults(SonarLintAnalyzer analyzer, AnalysisResultCache cache, AnalysisQuarantine quarantine,
+    Map<VirtualFile, String> cacheKeys) {
+    String fingerprint = analyzer.getConfigurationFingerprint(job.modules(), job.files());
+    List<VirtualFile> hits = new ArrayList<>();
+    List<VirtualFile> misses = new ArrayList<>();
+    List<Issue> issues = new ArrayList<>();
+    int quarantined = 0;
+
+    for (VirtualFile file : job.files()) {
+      DefaultInputFile inputFile = analyzer.createInputFile(file);
+      if (quarantine.isQuarantined(file, inputFile)) {
+        quarantined++;
+        continue;
+      }
+      String key = cache.key(fingerprint, inputFile);
+      List<Issue> cached = key != null ? cache.get(key, inputFile) : null;
+      if (cached != null) {
+        hits.add(file);
+        issues.addAll(cached);
+      } else {
+        misses.add(file);
+        if (key != null) {
+          cacheKeys.put(file, key);
         }
       }
     }
+
+    if (quarantined > 0) {
+      SonarLintConsole.get(job.module().getProject()).debug(String.format("Skipping %d quarantined file(s)", quarantined));
+    }
+    if (hits.isEmpty()) {
+      return quarantined > 0 ? misses : job.files();
+    }
+    SonarLintConsole.get(job.module().getProject()).debug(String.format("Reusing the results of %d unchanged file(s) (cache hits: %d, misses: %d)",
+      hits.size(), cache.getHits(), cache.getMisses()));
+    processor.process(job, hits, issues, Collections.emptyList(), job.trigger());
+    return misses;
+  }
+
+  private void saveResults(AnalysisResultCache cache, Map<VirtualFile, String> cacheKeys, Collection<VirtualFile> files, Collection<Issue> issues,
+    Collection<ClientInputFile> failedAnalysisFiles) {
+    if (cacheKeys.isEmpty()) {
+      return;
+    }
+    SonarLintJobManager jobManager = SonarLintUtils.get(job.module().getProject(), SonarLintJobManager.class);
+    Set<Object> failed = failedAnalysisFiles.stream().map(ClientInputFile::getClientObject).collect(Collectors.toSet());
+    Map<VirtualFile, List<Issue>> issuesByFile = AnalysisResultCache.byFile(issues);
+
+    for (VirtualFile file : files) {
+      String key = cacheKeys.get(file);
+      // modified files might have been analyzed with a content that doesn't match the key
+      if (key != null && !failed.contains(file) && !jobManager.isStale(job, file)) {
+        cache.put(key, issuesByFile.getOrDefault(file, Collections.emptyList()));
+      }
+    }
+  }
+
+  static <T> List<List<T>> chunks(List<T> files, int maxChunkSize) {
+    List<List<T>> chunks = new ArrayList<>();
+    int size = 1;
+    for (int i = 0; i < files.size(); i += size, size = Math.min(size * 2, maxChunkSize)) {
+      chunks.add(files.subList(i, Math.min(i + size, files.size())));
+    }
+    return chunks;
+  }
+
+  private void waitForCpuBudget(CpuGovernor governor, ProgressIndicator indicator, SonarLintStatus status) {
+    long delay = governor.delayMs();
+    if (delay > 0) {
+      LOGGER.debug("Waiting " + delay + " ms for the CPU budget");
+    }
+    while (delay > 0 && !isCanceled(indicator, status)) {
+      try {
+        // cancelling interrupts the analysis thread
+        Thread.sleep(Math.min(delay, 1000));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      delay = governor.delayMs();
+    }
+  }
+
+  private boolean isCanceled(ProgressIndicator indicator, SonarLintStatus status) {
+    return token.isCancelled() || indicator.isCanceled() || status.isCanceled();
+  }
+
+  /**
+   * Cancelling the progress indicator, from the UI or from elsewhere, cancels the token.
+   */
+  private void listenToIndicator(ProgressIndicator indicator) {
+    if (indicator instanceof ProgressIndicatorEx) {
+      ((ProgressIndicatorEx) indicator).addStateDelegate(new AbstractProgressIndicatorExBase() {
+        @Override
+        public void cancel() {
+          token.cancel();
+        }
+      });
+    }
+  }
+
+  private synchronized void startAnalysis() {
+    analysisThread = Thread.currentThread();
+  }
+
+  private synchronized void stopAnalysis() {
+    analysisThread = null;
+    // clear the interrupted flag, if it was set by a cancellation, since the thread is pooled
+    Thread.interrupted();
+  }
+
+  /**
+   * The engine stops at the next check of the interrupted flag of its thread.
+   * Nothing is interrupted if the analysis is not running, to not affect whatever the pooled thread is doing.
+   */
+  private synchronized void interruptAnalysis() {
+    if (analysisThread != null) {
+      analysisThread.interrupt();
+    }
   }
 }
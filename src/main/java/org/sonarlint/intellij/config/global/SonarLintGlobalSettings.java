@@ -35,13 +35,32 @@ import java.util.List;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.sonarlint.intellij.analysis.JobQueue;
 import org.sonarlint.intellij.util.SonarLintBundle;
 import org.sonarlint.intellij.util.SonarLintUtils;
 
 @State(name = "SonarLintGlobalSettings", storages = {@Storage(id = "sonarlint", file = StoragePathMacros.APP_CONFIG + "/sonarlint.xml")})
 public final class SonarLintGlobalSettings extends ApplicationComponent.Adapter implements PersistentStateComponent<SonarLintGlobalSettings>, ExportableApplicationComponent {
 
+  /**
+   * Upper bound on the automatic number of concurrent analyses, each of them keeping its own AST in memory.
+   */
+  private static final int MAX_AUTO_CONCURRENT_ANALYSES = 4;
+  public static final int MIN_CPU_BUDGET_PERCENT = 10;
+
   private boolean autoTrigger = true;
+  // 0 means it is derived from the number of cores
+  private int maxConcurrentAnalyses = 0;
+  private JobQueue.OverflowPolicy jobQueueOverflowPolicy = JobQueue.OverflowPolicy.COALESCE;
+  // 0 disables the analysis of files while the IDE is idle
+  private int idleAnalysisDelaySec = 10;
+  // share of the machine's CPU that automatic analyses can use, 100 means no limit
+  private int cpuBudgetPercent = 50;
+  // maximum duration of the analysis of each file before it is cancelled, 0 means no limit
+  private int analysisTimeBudgetSec = 60;
+  private boolean backgroundAnalysis = true;
+  // only pass to the analyzers the libraries providing classes referenced by the analyzed files
+  private boolean pruneClasspath = false;
   private List<SonarQubeServer> servers = new LinkedList<>();
 
   public static SonarLintGlobalSettings getInstance() {
@@ -85,6 +104,73 @@ public final class SonarLintGlobalSettings extends ApplicationComponent.Adapter
     this.autoTrigger = autoTrigger;
   }
 
+  public int getMaxConcurrentAnalyses() {
+    return maxConcurrentAnalyses;
+  }
+
+  public void setMaxConcurrentAnalyses(int maxConcurrentAnalyses) {
+    this.maxConcurrentAnalyses = Math.max(0, maxConcurrentAnalyses);
+  }
+
+  public JobQueue.OverflowPolicy getJobQueueOverflowPolicy() {
+    return jobQueueOverflowPolicy;
+  }
+
+  public void setJobQueueOverflowPolicy(JobQueue.OverflowPolicy jobQueueOverflowPolicy) {
+    this.jobQueueOverflowPolicy = jobQueueOverflowPolicy;
+  }
+
+  public int getIdleAnalysisDelaySec() {
+    return idleAnalysisDelaySec;
+  }
+
+  public void setIdleAnalysisDelaySec(int idleAnalysisDelaySec) {
+    this.idleAnalysisDelaySec = Math.max(0, idleAnalysisDelaySec);
+  }
+
+  public boolean isBackgroundAnalysis() {
+    return backgroundAnalysis;
+  }
+
+  public void setBackgroundAnalysis(boolean backgroundAnalysis) {
+    this.backgroundAnalysis = backgroundAnalysis;
+  }
+
+  public boolean isPruneClasspath() {
+    return pruneClasspath;
+  }
+
+  public void setPruneClasspath(boolean pruneClasspath) {
+    this.pruneClasspath = pruneClasspath;
+  }
+
+  public int getAnalysisTimeBudgetSec() {
+    return analysisTimeBudgetSec;
+  }
+
+  public void setAnalysisTimeBudgetSec(int analysisTimeBudgetSec) {
+    this.analysisTimeBudgetSec = Math.max(0, analysisTimeBudgetSec);
+  }
+
+  public int getCpuBudgetPercent() {
+    return cpuBudgetPercent;
+  }
+
+  public void setCpuBudgetPercent(int cpuBudgetPercent) {
+    this.cpuBudgetPercent = Math.max(MIN_CPU_BUDGET_PERCENT, Math.min(100, cpuBudgetPercent));
+  }
+
+  /**
+   * Number of analyses that can run at the same time, either configured or derived from the number of cores.
+   */
+  public int computeMaxConcurrentAnalyses() {
+    if (maxConcurrentAnalyses > 0) {
+      return maxConcurrentAnalyses;
+    }
+    int cores = Runtime.getRuntime().availableProcessors();
+    return Math.max(1, Math.min(MAX_AUTO_CONCURRENT_ANALYSES, cores / 2));
+  }
+
   public void setSonarQubeServers(List<SonarQubeServer> servers) {
     this.servers = servers.stream().filter(s -> !SonarLintUtils.isBlank(s.getName())).collect(Collectors.toList());
     this.servers = Collections.unmodifiableList(this.servers);
@@ -22,10 +22,16 @@ package org.sonarlint.intellij.config.global;
 import com.intellij.openapi.ui.VerticalFlowLayout;
 
 import java.awt.BorderLayout;
+import java.awt.FlowLayout;
 import javax.swing.BorderFactory;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JComponent;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import org.sonarlint.intellij.analysis.JobQueue;
 
 /**
  * SonarLint for IntelliJ IDEA
@@ -49,6 +55,13 @@ import javax.swing.JPanel;
 public class SonarLintGlobalSettingsPanel {
   private JPanel rootPane;
   private JCheckBox autoTrigger;
+  private JCheckBox backgroundAnalysis;
+  private JCheckBox pruneClasspath;
+  private JSpinner maxConcurrentAnalyses;
+  private JComboBox<JobQueue.OverflowPolicy> overflowPolicy;
+  private JSpinner idleAnalysisDelay;
+  private JSpinner cpuBudget;
+  private JSpinner analysisTimeBudget;
 
   public SonarLintGlobalSettingsPanel(SonarLintGlobalSettings model) {
     load(model);
@@ -70,22 +83,91 @@ public class SonarLintGlobalSettingsPanel {
     tickOptions.setBorder(BorderFactory.createEmptyBorder(0, 0, 4, 0));
     tickOptions.add(autoTrigger);
 
+    backgroundAnalysis = new JCheckBox("Keep issues of files changed outside of the editor up to date in the background");
+    backgroundAnalysis.setFocusable(false);
+    tickOptions.add(backgroundAnalysis);
+
+    pruneClasspath = new JCheckBox("Only pass to the analysis the libraries referenced by the analyzed files");
+    pruneClasspath.setFocusable(false);
+    tickOptions.add(pruneClasspath);
+
+    maxConcurrentAnalyses = new JSpinner(new SpinnerNumberModel(0, 0, 32, 1));
+    JPanel concurrency = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+    JLabel concurrencyLabel = new JLabel("Maximum concurrent analyses (0 for automatic): ");
+    concurrencyLabel.setLabelFor(maxConcurrentAnalyses);
+    concurrency.add(concurrencyLabel);
+    concurrency.add(maxConcurrentAnalyses);
+    tickOptions.add(concurrency);
+
+    overflowPolicy = new JComboBox<>(JobQueue.OverflowPolicy.values());
+    JPanel overflow = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+    JLabel overflowLabel = new JLabel("When the analysis queue is full (applies to projects opened afterwards): ");
+    overflowLabel.setLabelFor(overflowPolicy);
+    overflow.add(overflowLabel);
+    overflow.add(overflowPolicy);
+    tickOptions.add(overflow);
+
+    idleAnalysisDelay = new JSpinner(new SpinnerNumberModel(0, 0, 3600, 1));
+    JPanel idle = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+    JLabel idleLabel = new JLabel("Analyze files when the IDE is idle for (seconds, 0 to disable, applies to projects opened afterwards): ");
+    idleLabel.setLabelFor(idleAnalysisDelay);
+    idle.add(idleLabel);
+    idle.add(idleAnalysisDelay);
+    tickOptions.add(idle);
+
+    cpuBudget = new JSpinner(new SpinnerNumberModel(100, SonarLintGlobalSettings.MIN_CPU_BUDGET_PERCENT, 100, 5));
+    JPanel cpu = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+    JLabel cpuLabel = new JLabel("Maximum share of CPU for automatic analyses (%, 100 for no limit): ");
+    cpuLabel.setLabelFor(cpuBudget);
+    cpu.add(cpuLabel);
+    cpu.add(cpuBudget);
+    tickOptions.add(cpu);
+
+    analysisTimeBudget = new JSpinner(new SpinnerNumberModel(0, 0, 3600, 10));
+    JPanel time = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+    JLabel timeLabel = new JLabel("Cancel analyses taking longer than (seconds per file, 0 for no limit): ");
+    timeLabel.setLabelFor(analysisTimeBudget);
+    time.add(timeLabel);
+    time.add(analysisTimeBudget);
+    tickOptions.add(time);
+
     return tickOptions;
   }
 
   public boolean isModified(SonarLintGlobalSettings model) {
     getComponent();
-    return model.isAutoTrigger() != autoTrigger.isSelected();
+    return model.isAutoTrigger() != autoTrigger.isSelected()
+      || model.isBackgroundAnalysis() != backgroundAnalysis.isSelected()
+      || model.isPruneClasspath() != pruneClasspath.isSelected()
+      || model.getMaxConcurrentAnalyses() != (Integer) maxConcurrentAnalyses.getValue()
+      || model.getJobQueueOverflowPolicy() != overflowPolicy.getSelectedItem()
+      || model.getIdleAnalysisDelaySec() != (Integer) idleAnalysisDelay.getValue()
+      || model.getCpuBudgetPercent() != (Integer) cpuBudget.getValue()
+      || model.getAnalysisTimeBudgetSec() != (Integer) analysisTimeBudget.getValue();
   }
 
   public void load(SonarLintGlobalSettings model) {
     getComponent();
     autoTrigger.setSelected(model.isAutoTrigger());
+    backgroundAnalysis.setSelected(model.isBackgroundAnalysis());
+    pruneClasspath.setSelected(model.isPruneClasspath());
+    maxConcurrentAnalyses.setValue(model.getMaxConcurrentAnalyses());
+    overflowPolicy.setSelectedItem(model.getJobQueueOverflowPolicy());
+    idleAnalysisDelay.setValue(model.getIdleAnalysisDelaySec());
+    cpuBudget.setValue(model.getCpuBudgetPercent());
+    analysisTimeBudget.setValue(model.getAnalysisTimeBudgetSec());
   }
 
   public void save(SonarLintGlobalSettings model) {
     getComponent();
     model.setAutoTrigger(autoTrigger.isSelected());
+    model.setBackgroundAnalysis(backgroundAnalysis.isSelected());
+    model.setPruneClasspath(pruneClasspath.isSelected());
+    model.setMaxConcurrentAnalyses((Integer) maxConcurrentAnalyses.getValue());
+    model.setJobQueueOverflowPolicy((JobQueue.OverflowPolicy) overflowPolicy.getSelectedItem());
+    model.setIdleAnalysisDelaySec((Integer) idleAnalysisDelay.getValue());
+    model.setCpuBudgetPercent((Integer) cpuBudget.getValue());
+    model.setAnalysisTimeBudgetSec((Integer) analysisTimeBudget.getValue());
   }
 }
 
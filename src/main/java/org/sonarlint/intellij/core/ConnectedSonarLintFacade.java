@@ -27,6 +27,7 @@ import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.annotation.Nullable;
 import org.sonarlint.intellij.config.project.SonarLintProjectSettings;
@@ -38,6 +39,8 @@ import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile
 import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
 import org.sonarsource.sonarlint.core.client.api.connected.ConnectedSonarLintEngine;
 import org.sonarsource.sonarlint.core.client.api.connected.ConnectedAnalysisConfiguration;
+import org.sonarsource.sonarlint.core.client.api.connected.GlobalUpdateStatus;
+import org.sonarsource.sonarlint.core.client.api.connected.ModuleUpdateStatus;
 
 public class ConnectedSonarLintFacade implements SonarLintFacade {
   private final ConnectedSonarLintEngine sonarlint;
@@ -80,16 +83,34 @@ public class ConnectedSonarLintFacade implements SonarLintFacade {
     return details.getName();
   }
 
+  /**
+   * Analyzers and quality profiles only change when the storage is updated
+   */
   @Override
-  public synchronized AnalysisResults startAnalysis(List<ClientInputFile> inputFiles, IssueListener issueListener, Map<String, String> additionalProps) {
+  public String getConfigurationFingerprint() {
+    GlobalUpdateStatus globalStatus = sonarlint.getUpdateStatus();
+    ModuleUpdateStatus moduleStatus = sonarlint.getModuleUpdateStatus(moduleKey);
+    return "connected;" + projectSettings.getServerId() + ";" + moduleKey
+      + ";" + (globalStatus != null ? globalStatus.getLastUpdateDate().getTime() : 0)
+      + ";" + (moduleStatus != null ? moduleStatus.getLastUpdateDate().getTime() : 0)
+      + ";" + new TreeMap<>(projectSettings.getAdditionalProperties());
+  }
+
+  @Override
+  public AnalysisResults startAnalysis(List<ClientInputFile> inputFiles, IssueListener issueListener, Map<String, String> additionalProps) {
     Path baseDir = Paths.get(project.getBasePath());
-    Path workDir = baseDir.resolve(Project.DIRECTORY_STORE_FOLDER).resolve("sonarlint").toAbsolutePath();
     Map<String, String> props = new HashMap<>();
     props.putAll(additionalProps);
     props.putAll(projectSettings.getAdditionalProperties());
-    ConnectedAnalysisConfiguration config = new ConnectedAnalysisConfiguration(moduleKey, baseDir, workDir, inputFiles, props);
-    console.debug("Starting analysis with configuration:\n" + config.toString());
+    // the engine supports concurrent analyses, but each of them needs its own work directory
+    Path workDir = JobWorkDirs.create(baseDir);
+    try {
+      ConnectedAnalysisConfiguration config = new ConnectedAnalysisConfiguration(moduleKey, baseDir, workDir, inputFiles, props);
+      console.debug("Starting analysis with configuration:\n" + config.toString());
 
-    return sonarlint.analyze(config, issueListener, new ProjectLogOutput(console, projectSettings));
+      return sonarlint.analyze(config, issueListener, new ProjectLogOutput(console, projectSettings));
+    } finally {
+      JobWorkDirs.delete(workDir);
+    }
   }
 }
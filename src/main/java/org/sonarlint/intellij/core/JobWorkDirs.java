@@ -0,0 +1,94 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.core;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.sonarsource.sonarlint.core.util.FileUtils;
+
+/**
+ * Each analysis gets its own work directory, so that analyses running concurrently don't share temporary files.
+ * They are deleted when the analysis ends, but they are left behind if the IDE is killed in the meantime, so the stale ones are purged
+ * when the project is opened (see {@link #markStale(Path)}).
+ */
+public class JobWorkDirs {
+  private static final Logger LOGGER = Logger.getInstance(JobWorkDirs.class);
+  private static final String WORK = "work";
+  private static final String STALE_PREFIX = "work-stale-";
+
+  private JobWorkDirs() {
+    // only static stuff
+  }
+
+  public static Path create(Path baseDir) {
+    Path parent = sonarlintDir(baseDir).resolve(WORK);
+    try {
+      FileUtils.forceMkDirs(parent);
+      return Files.createTempDirectory(parent, "job");
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to create work directory in " + parent, e);
+    }
+  }
+
+  public static void delete(Path workDir) {
+    FileUtils.deleteDirectory(workDir);
+  }
+
+  /**
+   * Must be called before any analysis of the project starts. Moving the work directories away is quick, so that they can be
+   * deleted in the background with {@link #deleteStale(Path)} while new analyses create their own.
+   */
+  static void markStale(Path baseDir) {
+    Path work = sonarlintDir(baseDir).resolve(WORK);
+    if (!Files.isDirectory(work)) {
+      return;
+    }
+    try {
+      Files.move(work, Files.createTempDirectory(sonarlintDir(baseDir), STALE_PREFIX).resolve(WORK));
+    } catch (IOException e) {
+      LOGGER.warn("Unable to move stale work directories in " + work, e);
+    }
+  }
+
+  /**
+   * Deletes the work directories marked as stale, including the ones of previous sessions that couldn't be deleted
+   */
+  static void deleteStale(Path baseDir) {
+    Path dir = sonarlintDir(baseDir);
+    if (!Files.isDirectory(dir)) {
+      return;
+    }
+    try (DirectoryStream<Path> stale = Files.newDirectoryStream(dir, STALE_PREFIX + "*")) {
+      for (Path p : stale) {
+        FileUtils.deleteDirectory(p);
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Unable to delete stale work directories in " + dir, e);
+    }
+  }
+
+  private static Path sonarlintDir(Path baseDir) {
+    return baseDir.resolve(Project.DIRECTORY_STORE_FOLDER).resolve("sonarlint").toAbsolutePath();
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.core;
+
+import com.intellij.openapi.components.ApplicationComponent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+import org.jetbrains.annotations.NotNull;
+import org.sonarlint.intellij.config.project.SonarLintProjectSettings;
+import org.sonarlint.intellij.util.SonarLintUtils;
+
+/**
+ * Skips the files of the usual languages whose analyzer isn't loaded in the engines, so that they are never submitted.
+ * Analyzers are identified by the key in the manifest of their plugin. The suffixes of the files of a language can be changed in the
+ * settings of a server, which the engines don't expose, so only the default suffixes of the languages known to be missing are
+ * skipped, and any other file is accepted. If a plugin is unknown, nothing is skipped. Suffixes set in the additional properties of
+ * a project are always accepted.
+ * <p>
+ * The connected engines share a cache of the plugins downloaded from all servers, so they are considered together.
+ */
+@ThreadSafe
+public class LanguageRegistry extends ApplicationComponent.Adapter {
+  private static final Logger LOGGER = Logger.getInstance(LanguageRegistry.class);
+  static final String PLUGIN_KEY_ATTRIBUTE = "Plugin-Key";
+  private static final String SUFFIXES_PROPERTY_SUFFIX = ".file.suffixes";
+
+  // default suffixes of the languages of the usual plugins
+  private static final Map<String, List<String>> SUFFIXES_BY_PLUGIN = new HashMap<>();
+  // extend the analyzers of other plugins, or don't analyze anything
+  private static final Set<String> PLUGINS_WITHOUT_LANGUAGE = new HashSet<>(Arrays.asList(
+    "checkstyle", "findbugs", "pmd", "fbcontrib", "findsecbugs", "jacoco", "scmgit", "scmsvn", "ldap", "github", "authgithub", "authsaml",
+    "l10nde", "l10nes", "l10nfr", "l10nja", "l10nko", "l10npt", "l10nru", "l10nzh", "sonarlintsupport"));
+
+  static {
+    SUFFIXES_BY_PLUGIN.put("java", Arrays.asList("java", "jav"));
+    SUFFIXES_BY_PLUGIN.put("javascript", Arrays.asList("js", "jsx", "vue"));
+    SUFFIXES_BY_PLUGIN.put("typescript", Arrays.asList("ts", "tsx"));
+    SUFFIXES_BY_PLUGIN.put("php", Arrays.asList("php", "php3", "php4", "php5", "phtml", "inc"));
+    SUFFIXES_BY_PLUGIN.put("python", Collections.singletonList("py"));
+    SUFFIXES_BY_PLUGIN.put("groovy", Collections.singletonList("groovy"));
+    SUFFIXES_BY_PLUGIN.put("kotlin", Collections.singletonList("kt"));
+    SUFFIXES_BY_PLUGIN.put("scala", Collections.singletonList("scala"));
+    SUFFIXES_BY_PLUGIN.put("ruby", Collections.singletonList("rb"));
+    SUFFIXES_BY_PLUGIN.put("go", Collections.singletonList("go"));
+    SUFFIXES_BY_PLUGIN.put("csharp", Collections.singletonList("cs"));
+    SUFFIXES_BY_PLUGIN.put("vbnet", Collections.singletonList("vb"));
+    SUFFIXES_BY_PLUGIN.put("swift", Collections.singletonList("swift"));
+    SUFFIXES_BY_PLUGIN.put("flex", Collections.singletonList("as"));
+    SUFFIXES_BY_PLUGIN.put("css", Arrays.asList("css", "less", "scss"));
+    SUFFIXES_BY_PLUGIN.put("xml", Arrays.asList("xml", "xsd", "xsl"));
+    SUFFIXES_BY_PLUGIN.put("cpp", Arrays.asList("cpp", "hpp", "cc", "hh", "cxx", "hxx", "c++", "h++", "ipp", "c", "h", "m", "mm"));
+    SUFFIXES_BY_PLUGIN.put("cobol", Arrays.asList("cbl", "ccp", "cob", "cpy"));
+    SUFFIXES_BY_PLUGIN.put("plsql", Arrays.asList("sql", "pks", "pkb"));
+    SUFFIXES_BY_PLUGIN.put("abap", Arrays.asList("abap", "ab4", "flow"));
+  }
+
+  private final SonarLintEngineFactory engineFactory;
+  private volatile Languages standalone;
+  private volatile Languages connected;
+
+  public LanguageRegistry(SonarLintEngineFactory engineFactory) {
+    this.engineFactory = engineFactory;
+  }
+
+  public boolean isSupported(VirtualFile file, Project project) {
+    SonarLintProjectSettings settings = SonarLintUtils.get(project, SonarLintProjectSettings.class);
+    Languages languages = settings.isBindingEnabled() ? getConnected() : getStandalone();
+    String name = file.getName().toLowerCase(Locale.ENGLISH);
+    return languages.accepts(name) || hasSuffix(name, customSuffixes(settings.getAdditionalProperties()));
+  }
+
+  /**
+   * Must be called when plugins of the connected engines might have changed, after a server is updated.
+   */
+  public void invalidate() {
+    connected = null;
+  }
+
+  private Languages getStandalone() {
+    Languages l = standalone;
+    if (l == null) {
+      l = load(() -> Arrays.asList(engineFactory.loadPlugins()));
+      standalone = l;
+    }
+    return l;
+  }
+
+  private Languages getConnected() {
+    Languages l = connected;
+    if (l == null) {
+      l = load(this::cachedPlugins);
+      connected = l;
+    }
+    return l;
+  }
+
+  private List<URL> cachedPlugins() throws IOException {
+    Path dir = SonarLintEngineFactory.getPluginCacheDir();
+    if (!Files.isDirectory(dir)) {
+      return Collections.emptyList();
+    }
+    List<URL> urls = new ArrayList<>();
+    try (Stream<Path> paths = Files.walk(dir)) {
+      for (Path path : paths.filter(p -> p.getFileName().toString().endsWith(".jar")).collect(Collectors.toList())) {
+        urls.add(path.toUri().toURL());
+      }
+    }
+    return urls;
+  }
+
+  private static Languages load(PluginLocator locator) {
+    try {
+      Set<String> keys = new HashSet<>();
+      for (URL url : locator.locate()) {
+        String key = pluginKey(Paths.get(url.toURI()));
+        if (key == null) {
+          LOGGER.info("Plugin without key: " + url);
+          return Languages.ALL;
+        }
+        keys.add(key);
+      }
+      return Languages.of(keys);
+    } catch (IOException | URISyntaxException | RuntimeException e) {
+      LOGGER.warn("Failed to find the languages of the plugins, all files will be analyzed", e);
+      return Languages.ALL;
+    }
+  }
+
+  @CheckForNull
+  static String pluginKey(Path jar) throws IOException {
+    try (JarFile jarFile = new JarFile(jar.toFile())) {
+      Manifest manifest = jarFile.getManifest();
+      return manifest != null ? manifest.getMainAttributes().getValue(PLUGIN_KEY_ATTRIBUTE) : null;
+    }
+  }
+
+  static Set<String> customSuffixes(Map<String, String> properties) {
+    return properties.entrySet().stream()
+      .filter(e -> e.getKey().endsWith(SUFFIXES_PROPERTY_SUFFIX) && e.getValue() != null)
+      .flatMap(e -> Arrays.stream(e.getValue().split(",")))
+      .map(LanguageRegistry::normalize)
+      .filter(s -> !s.isEmpty())
+      .collect(Collectors.toSet());
+  }
+
+  private static String normalize(String suffix) {
+    String s = suffix.trim().toLowerCase(Locale.ENGLISH);
+    return s.startsWith(".") ? s.substring(1) : s;
+  }
+
+  private static boolean hasSuffix(String fileName, Collection<String> suffixes) {
+    for (String suffix : suffixes) {
+      if (fileName.endsWith("." + suffix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @FunctionalInterface
+  private interface PluginLocator {
+    Collection<URL> locate() throws IOException, URISyntaxException;
+  }
+
+  static class Languages {
+    static final Languages ALL = new Languages(Collections.emptySet());
+    // default suffixes of the known languages whose plugin isn't loaded
+    private final Set<String> missingSuffixes;
+
+    private Languages(Set<String> missingSuffixes) {
+      this.missingSuffixes = missingSuffixes;
+    }
+
+    static Languages of(Collection<String> pluginKeys) {
+      for (String key : pluginKeys) {
+        if (!SUFFIXES_BY_PLUGIN.containsKey(key) && !PLUGINS_WITHOUT_LANGUAGE.contains(key)) {
+          LOGGER.info("Unknown plugin '" + key + "', all files will be analyzed");
+          return ALL;
+        }
+      }
+      Set<String> missing = new HashSet<>();
+      SUFFIXES_BY_PLUGIN.forEach((key, suffixes) -> {
+        if (!pluginKeys.contains(key)) {
+          missing.addAll(suffixes);
+        }
+      });
+      return new Languages(missing);
+    }
+
+    boolean accepts(String lowerCaseFileName) {
+      return !hasSuffix(lowerCaseFileName, missingSuffixes);
+    }
+  }
+
+  @NotNull
+  @Override
+  public String getComponentName() {
+    return "SonarLintLanguageRegistry";
+  }
+}
@@ -19,8 +19,11 @@
  */
 package org.sonarlint.intellij.core;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.AbstractProjectComponent;
 import com.intellij.openapi.project.Project;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
 import javax.annotation.Nullable;
@@ -47,6 +50,20 @@ public class ProjectBindingManager extends AbstractProjectComponent {
     this.console = console;
   }
 
+  /**
+   * Work directories of analyses interrupted by an IDE crash are purged before any analysis of the project starts
+   */
+  @Override
+  public void initComponent() {
+    String basePath = myProject.getBasePath();
+    if (basePath == null) {
+      return;
+    }
+    Path baseDir = Paths.get(basePath);
+    JobWorkDirs.markStale(baseDir);
+    ApplicationManager.getApplication().executeOnPooledThread(() -> JobWorkDirs.deleteStale(baseDir));
+  }
+
   /**
    * Will create a Facade with the appropriate engine (standalone or connected) based on the current project and module configurations.
    * In case of a problem, it handles the displaying of errors (Logging, user notifications, ..) and throws an IllegalStateException.
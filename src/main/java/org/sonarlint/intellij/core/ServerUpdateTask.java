@@ -83,6 +83,7 @@ public class ServerUpdateTask {
 
       if (!onlyModules) {
         engine.update(serverConfiguration, monitor);
+        SonarLintUtils.get(LanguageRegistry.class).invalidate();
         log.log("Server binding '" + server.getName() + "' updated", LogOutput.Level.INFO);
       }
 
@@ -85,7 +85,7 @@ public class SonarLintEngineFactory extends ApplicationComponent.Adapter {
     }
   }
 
-  private URL[] loadPlugins() throws IOException, URISyntaxException {
+  URL[] loadPlugins() throws IOException, URISyntaxException {
     URL pluginsDir = this.getClass().getClassLoader().getResource("plugins");
 
     if (pluginsDir == null) {
@@ -106,6 +106,13 @@ public class SonarLintEngineFactory extends ApplicationComponent.Adapter {
     return Paths.get(PathManager.getConfigPath()).resolve("sonarlint");
   }
 
+  /**
+   * Where the connected engines keep the plugins downloaded from the servers
+   */
+  static Path getPluginCacheDir() {
+    return getSonarLintHome().resolve("plugins");
+  }
+
   private static Path getWorkDir() {
     return Paths.get(PathManager.getTempPath()).resolve("sonarlint");
   }
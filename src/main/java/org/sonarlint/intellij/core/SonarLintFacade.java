@@ -34,4 +34,9 @@ public interface SonarLintFacade {
   @CheckForNull String getDescription(String ruleKey);
 
   @CheckForNull String getRuleName(String ruleKey);
+
+  /**
+   * Identifies what may change the results of analyzing the same file: analyzers, rules and the additional properties.
+   */
+  String getConfigurationFingerprint();
 }
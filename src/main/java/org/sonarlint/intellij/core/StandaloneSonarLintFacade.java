@@ -27,11 +27,14 @@ import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.annotation.Nullable;
+import org.sonarlint.intellij.SonarApplication;
 import org.sonarlint.intellij.config.project.SonarLintProjectSettings;
 import org.sonarlint.intellij.ui.SonarLintConsole;
 import org.sonarlint.intellij.util.ProjectLogOutput;
+import org.sonarlint.intellij.util.SonarLintUtils;
 import org.sonarsource.sonarlint.core.client.api.common.RuleDetails;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
@@ -78,16 +81,29 @@ public final class StandaloneSonarLintFacade implements SonarLintFacade {
     return details.getName();
   }
 
+  /**
+   * Analyzers are bundled with the plugin and use their default rules
+   */
   @Override
-  public synchronized AnalysisResults startAnalysis(List<ClientInputFile> inputFiles, IssueListener issueListener, Map<String, String> additionalProps) {
+  public String getConfigurationFingerprint() {
+    return "standalone;" + SonarLintUtils.get(SonarApplication.class).getVersion() + ";" + new TreeMap<>(projectSettings.getAdditionalProperties());
+  }
+
+  @Override
+  public AnalysisResults startAnalysis(List<ClientInputFile> inputFiles, IssueListener issueListener, Map<String, String> additionalProps) {
     Path baseDir = Paths.get(project.getBasePath());
-    Path workDir = baseDir.resolve(Project.DIRECTORY_STORE_FOLDER).resolve("sonarlint").toAbsolutePath();
     Map<String, String> props = new HashMap<>();
     props.putAll(additionalProps);
     props.putAll(projectSettings.getAdditionalProperties());
-    StandaloneAnalysisConfiguration config = new StandaloneAnalysisConfiguration(baseDir, workDir, inputFiles, props);
-    console.debug("Starting analysis with configuration:\n" + config.toString());
+    // the engine supports concurrent analyses, but each of them needs its own work directory
+    Path workDir = JobWorkDirs.create(baseDir);
+    try {
+      StandaloneAnalysisConfiguration config = new StandaloneAnalysisConfiguration(baseDir, workDir, inputFiles, props);
+      console.debug("Starting analysis with configuration:\n" + config.toString());
 
-    return sonarlint.analyze(config, issueListener, new ProjectLogOutput(console, projectSettings));
+      return sonarlint.analyze(config, issueListener, new ProjectLogOutput(console, projectSettings));
+    } finally {
+      JobWorkDirs.delete(workDir);
+    }
   }
 }
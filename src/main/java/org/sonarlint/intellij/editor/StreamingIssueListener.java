@@ -0,0 +1,67 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.editor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
+
+/**
+ * Groups issues per file until they are drained, so that the results of each part of an analysis can be processed
+ * as soon as it is done, without keeping all issues of the analysis in memory.
+ */
+public class StreamingIssueListener implements IssueListener {
+  private final Map<ClientInputFile, List<Issue>> pending = new LinkedHashMap<>();
+  private final List<Issue> projectIssues = new ArrayList<>();
+  private int total = 0;
+
+  @Override
+  public synchronized void handle(Issue issue) {
+    ClientInputFile inputFile = issue.getInputFile();
+    if (inputFile != null) {
+      pending.computeIfAbsent(inputFile, f -> new ArrayList<>()).add(issue);
+    } else {
+      projectIssues.add(issue);
+    }
+    total++;
+  }
+
+  /**
+   * Issues received since the last call, file by file.
+   */
+  public synchronized List<Issue> drain() {
+    List<Issue> issues = new ArrayList<>(projectIssues);
+    pending.values().forEach(issues::addAll);
+    pending.clear();
+    projectIssues.clear();
+    return issues;
+  }
+
+  /**
+   * Number of issues received, including the ones already drained.
+   */
+  public synchronized int total() {
+    return total;
+  }
+}
@@ -126,6 +126,37 @@ public class IssueManager extends AbstractProjectComponent {
     matchingInProgress.unlock();
   }
 
+  /**
+   * Tracks the issues of a file that is not opened, and saves them directly in the persistent store.
+   * Live issues of the file, if any, are discarded since they are older.
+   */
+  public void storeInBackground(VirtualFile file, Collection<RawIssueTrackable> rawIssues) {
+    String storeKey = SonarLintUtils.getRelativePath(myProject, file);
+    matchingInProgress.lock();
+    try {
+      if (wasAnalyzed(file)) {
+        Tracking<RawIssueTrackable, Trackable> tracking = new Tracker<RawIssueTrackable, Trackable>().track(() -> rawIssues, () -> getPreviousIssues(file));
+        for (Map.Entry<RawIssueTrackable, ? extends Trackable> entry : tracking.getMatchedRaws().entrySet()) {
+          Trackable previous = entry.getValue();
+          RawIssueTrackable raw = entry.getKey();
+          raw.setCreationDate(previous.getCreationDate());
+          raw.setServerIssueKey(previous.getServerIssueKey());
+          raw.setResolved(previous.isResolved());
+          raw.setAssignee(previous.getAssignee());
+        }
+        for (RawIssueTrackable newIssue : tracking.getUnmatchedRaws()) {
+          newIssue.setCreationDate(System.currentTimeMillis());
+        }
+      }
+      store.save(storeKey, rawIssues);
+      cache.remove(file);
+    } catch (IOException e) {
+      LOGGER.error(String.format("Failed to save issues of file %s", file.getPath()), e);
+    } finally {
+      matchingInProgress.unlock();
+    }
+  }
+
   public void matchWithServerIssues(VirtualFile file, final Collection<Trackable> serverIssues) {
     matchingInProgress.lock();
     Collection<LiveIssue> previousIssues = getForFile(file);
@@ -23,19 +23,26 @@ import com.intellij.openapi.application.AccessToken;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.components.AbstractProjectComponent;
 import com.intellij.openapi.editor.RangeMarker;
+import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
 import org.sonarlint.intellij.analysis.SonarLintJob;
+import org.sonarlint.intellij.analysis.SonarLintJobManager;
 import org.sonarlint.intellij.core.ServerIssueUpdater;
 import org.sonarlint.intellij.trigger.TriggerType;
 import org.sonarlint.intellij.ui.SonarLintConsole;
+import org.sonarlint.intellij.util.SonarLintUtils;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -55,17 +62,30 @@ public class IssueProcessor extends AbstractProjectComponent {
   }
 
   public void process(final SonarLintJob job, final Collection<Issue> issues, Collection<ClientInputFile> failedAnalysisFiles, TriggerType trigger) {
+    process(job, job.files(), issues, failedAnalysisFiles, trigger);
+  }
+
+  /**
+   * Processes the results of a part of the job, so that they can be displayed before the whole job is done.
+   * @param files files of the job that were analyzed
+   */
+  public void process(final SonarLintJob job, Collection<VirtualFile> files, final Collection<Issue> issues, Collection<ClientInputFile> failedAnalysisFiles,
+    TriggerType trigger) {
+    if (trigger == TriggerType.BACKGROUND) {
+      processInBackground(job, files, issues, failedAnalysisFiles);
+      return;
+    }
     Map<VirtualFile, Collection<LiveIssue>> map;
     long start = System.currentTimeMillis();
     AccessToken token = ReadAction.start();
     try {
-      map = transformIssues(issues, job.files(), failedAnalysisFiles);
+      map = transformIssues(issues, nonStaleFiles(job, files), failedAnalysisFiles);
 
       manager.store(map);
 
       if (shouldUpdateServerIssues(trigger)) {
         console.debug("Fetching server issues");
-        serverIssueUpdater.fetchAndMatchServerIssues(job.files());
+        serverIssueUpdater.fetchAndMatchServerIssues(files);
       }
 
     } finally {
@@ -85,8 +105,56 @@ public class IssueProcessor extends AbstractProjectComponent {
     console.info("Found " + issues.size() + end);
   }
 
+  /**
+   * Issues of files that are not opened are saved directly in the persisted store, without creating live issues.
+   * Files opened in the meantime are handled by the other triggers.
+   */
+  private void processInBackground(SonarLintJob job, Collection<VirtualFile> files, Collection<Issue> issues, Collection<ClientInputFile> failedAnalysisFiles) {
+    Set<Object> failed = failedAnalysisFiles.stream().map(ClientInputFile::getClientObject).collect(Collectors.toSet());
+    Map<VirtualFile, List<Issue>> issuesByFile = new HashMap<>();
+    for (Issue issue : issues) {
+      ClientInputFile inputFile = issue.getInputFile();
+      if (inputFile != null) {
+        issuesByFile.computeIfAbsent(inputFile.getClientObject(), k -> new ArrayList<>()).add(issue);
+      }
+    }
+
+    FileEditorManager editorManager = FileEditorManager.getInstance(myProject);
+    for (VirtualFile file : nonStaleFiles(job, files)) {
+      if (failed.contains(file) || !file.isValid() || editorManager.isFileOpen(file)) {
+        continue;
+      }
+      try {
+        String[] lines = RawIssueTrackable.lines(VfsUtilCore.loadText(file));
+        List<RawIssueTrackable> rawIssues = issuesByFile.getOrDefault(file, Collections.emptyList()).stream()
+          .map(i -> new RawIssueTrackable(i, lines))
+          .collect(Collectors.toList());
+        manager.storeInBackground(file, rawIssues);
+      } catch (IOException e) {
+        console.error("Failed to read " + file.getPath(), e);
+      }
+    }
+    console.debug(String.format("[Background] Saved the issues of %d file(s) changed outside of the editor", files.size()));
+  }
+
+  /**
+   * Files that were modified and submitted again while the job was running will be analyzed by a newer job.
+   * Their results are dropped instead of being tracked against a document that already changed.
+   */
+  private Collection<VirtualFile> nonStaleFiles(SonarLintJob job, Collection<VirtualFile> analyzed) {
+    // not injected since the job manager depends on this component
+    SonarLintJobManager jobManager = SonarLintUtils.get(myProject, SonarLintJobManager.class);
+    Collection<VirtualFile> files = analyzed.stream()
+      .filter(f -> !jobManager.isStale(job, f))
+      .collect(Collectors.toList());
+    if (files.size() < analyzed.size()) {
+      console.debug("Dropping results of " + (analyzed.size() - files.size()) + " file(s) modified during the analysis");
+    }
+    return files;
+  }
+
   private static boolean shouldUpdateServerIssues(TriggerType trigger) {
-    return trigger == TriggerType.EDITOR_OPEN || trigger == TriggerType.ACTION;
+    return trigger == TriggerType.EDITOR_OPEN || trigger == TriggerType.ACTION || trigger == TriggerType.SCOPE;
   }
 
   /**
@@ -118,6 +186,10 @@ public class IssueProcessor extends AbstractProjectComponent {
           // file might have been deleted meanwhile
           continue;
         }
+        if (!map.containsKey(vFile)) {
+          // results of the file are stale
+          continue;
+        }
         PsiFile psiFile = matcher.findFile(vFile);
         LiveIssue toStore;
         if(issue.getStartLine() != null) {
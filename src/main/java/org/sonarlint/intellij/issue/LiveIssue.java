@@ -23,11 +23,9 @@ import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.RangeMarker;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.PsiFile;
-import java.security.MessageDigest;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.sonarlint.intellij.issue.tracking.Trackable;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
@@ -36,7 +34,6 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class LiveIssue implements Trackable {
   private static final AtomicLong UID_GEN = new AtomicLong();
-  private static final MessageDigest MD5_DIGEST = DigestUtils.getMd5Digest();
 
   private final long uid;
   private final RangeMarker range;
@@ -82,8 +79,11 @@ public class LiveIssue implements Trackable {
     }
   }
 
-  private static int checksum(String content) {
-    return Hex.encodeHexString(MD5_DIGEST.digest(content.replaceAll("[\\s]", "").getBytes(UTF_8))).hashCode();
+  /**
+   * Thread safe, since issues of closed files are also created in background threads
+   */
+  static int checksum(String content) {
+    return DigestUtils.md5Hex(content.replaceAll("[\\s]", "").getBytes(UTF_8)).hashCode();
   }
 
   public boolean isValid() {
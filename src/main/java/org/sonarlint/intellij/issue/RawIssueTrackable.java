@@ -0,0 +1,141 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.issue;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonarlint.intellij.issue.tracking.Trackable;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+
+/**
+ * Issue of a file that is not opened. Unlike {@link LiveIssue}, it doesn't need a document or a range marker: hashes are
+ * computed from the content of the file, as it was analyzed.
+ */
+public class RawIssueTrackable implements Trackable {
+  private final Integer line;
+  private final String message;
+  private final String ruleKey;
+  private final Integer textRangeHash;
+  private final Integer lineHash;
+
+  // tracked fields (mutable)
+  private Long creationDate;
+  private String serverIssueKey;
+  private boolean resolved;
+  private String assignee = "";
+
+  public RawIssueTrackable(Issue issue, String[] lines) {
+    this.message = issue.getMessage();
+    this.ruleKey = issue.getRuleKey();
+    Integer startLine = issue.getStartLine();
+    if (startLine != null && startLine > 0 && startLine <= lines.length) {
+      this.line = startLine;
+      this.lineHash = LiveIssue.checksum(lines[startLine - 1]);
+      this.textRangeHash = LiveIssue.checksum(rangeText(issue, lines));
+    } else {
+      this.line = null;
+      this.lineHash = null;
+      this.textRangeHash = null;
+    }
+  }
+
+  /**
+   * Splits the content of a file in lines, like documents do.
+   */
+  public static String[] lines(CharSequence content) {
+    return content.toString().split("\r\n|\r|\n", -1);
+  }
+
+  /**
+   * Whitespaces are ignored by checksums, so line separators don't need to be included
+   */
+  private static String rangeText(Issue issue, String[] lines) {
+    int startLine = issue.getStartLine() - 1;
+    int endLine = issue.getEndLine() != null ? Math.min(issue.getEndLine() - 1, lines.length - 1) : startLine;
+    StringBuilder text = new StringBuilder();
+    for (int i = startLine; i <= endLine; i++) {
+      String l = lines[i];
+      int from = (i == startLine && issue.getStartLineOffset() != null) ? Math.min(issue.getStartLineOffset(), l.length()) : 0;
+      int to = (i == endLine && issue.getEndLineOffset() != null) ? Math.min(issue.getEndLineOffset(), l.length()) : l.length();
+      if (from < to) {
+        text.append(l, from, to);
+      }
+    }
+    return text.toString();
+  }
+
+  @CheckForNull
+  @Override public Integer getLine() {
+    return line;
+  }
+
+  @Override public String getMessage() {
+    return message;
+  }
+
+  @CheckForNull
+  @Override public Integer getTextRangeHash() {
+    return textRangeHash;
+  }
+
+  @CheckForNull
+  @Override public Integer getLineHash() {
+    return lineHash;
+  }
+
+  @Override public String getRuleKey() {
+    return ruleKey;
+  }
+
+  @CheckForNull
+  @Override public String getServerIssueKey() {
+    return serverIssueKey;
+  }
+
+  @CheckForNull
+  @Override public Long getCreationDate() {
+    return creationDate;
+  }
+
+  @Override public boolean isResolved() {
+    return resolved;
+  }
+
+  @Override public String getAssignee() {
+    return assignee;
+  }
+
+  // mutable fields
+  public void setServerIssueKey(@Nullable String serverIssueKey) {
+    this.serverIssueKey = serverIssueKey;
+  }
+
+  public void setCreationDate(@Nullable Long creationDate) {
+    this.creationDate = creationDate;
+  }
+
+  public void setResolved(boolean resolved) {
+    this.resolved = resolved;
+  }
+
+  public void setAssignee(String assignee) {
+    this.assignee = assignee;
+  }
+}
@@ -67,6 +67,17 @@ class IndexedObjectStore<K, V> implements ObjectStore<K, V> {
     return path.toFile().exists();
   }
 
+  /**
+   * @return the time at which the entry was last written, or 0 if it doesn't exist
+   */
+  public long lastModified(K key) {
+    return pathMapper.apply(key).toFile().lastModified();
+  }
+
+  public Collection<K> keys() {
+    return index.keys();
+  }
+
   /**
    * Deletes all entries in the index are no longer valid.
    */
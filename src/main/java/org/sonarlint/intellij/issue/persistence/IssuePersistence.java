@@ -70,6 +70,17 @@ public class IssuePersistence extends AbstractProjectComponent {
     return store.contains(key);
   }
 
+  /**
+   * @return the time at which the issues of the file were last saved, or 0 if there are none
+   */
+  public long lastModified(String key) {
+    return store.lastModified(key);
+  }
+
+  public Collection<String> keys() {
+    return store.keys();
+  }
+
   public void save(String key, Collection<? extends Trackable> issues) throws IOException {
     store.write(key, transform(issues));
   }
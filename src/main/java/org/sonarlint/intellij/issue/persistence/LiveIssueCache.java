@@ -112,6 +112,13 @@ public class LiveIssueCache extends AbstractProjectComponent {
     cache.clear();
   }
 
+  /**
+   * Removes the issues of a file without persisting them
+   */
+  public synchronized void remove(VirtualFile virtualFile) {
+    cache.remove(virtualFile);
+  }
+
   public synchronized boolean contains(VirtualFile virtualFile) {
     return getLive(virtualFile) != null;
   }
@@ -0,0 +1,33 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.messages;
+
+import com.intellij.util.messages.Topic;
+import org.sonarlint.intellij.analysis.SonarLintJob;
+
+@FunctionalInterface
+public interface AnalysisDurationListener {
+  Topic<AnalysisDurationListener> SONARLINT_ANALYSIS_DURATION_TOPIC = Topic.create("SonarLint analysis duration", AnalysisDurationListener.class);
+
+  /**
+   * Called when the engine completes the analysis of a job, without counting the processing of the issues found.
+   */
+  void analysisDone(SonarLintJob job, long durationMs);
+}
@@ -0,0 +1,147 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger;
+
+import com.intellij.openapi.components.AbstractProjectComponent;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.concurrent.ThreadSafe;
+import org.jetbrains.annotations.NotNull;
+import org.sonarlint.intellij.analysis.SonarLintJob;
+import org.sonarlint.intellij.messages.AnalysisDurationListener;
+
+/**
+ * Learns, for each file, how fast the user types in it and how long it takes to analyze it, in order to decide how long to wait
+ * after a change before triggering an analysis.
+ * The delay is the expected length of a typing pause plus the expected analysis duration, bounded by a minimum and a maximum.
+ * Learned values are stored in the workspace of the project.
+ */
+@ThreadSafe
+@State(name = "SonarLintAdaptiveDebounce", storages = {@Storage(id = "workspace", file = StoragePathMacros.WORKSPACE_FILE)})
+public class AdaptiveDebounce extends AbstractProjectComponent implements PersistentStateComponent<AdaptiveDebounce.State> {
+  static final long DEFAULT_PAUSE_MS = 1000;
+  static final long DEFAULT_ANALYSIS_MS = 1000;
+  // intervals longer than this are pauses, not typing
+  private static final long MAX_TYPING_INTERVAL_MS = 2000;
+  // a pause is considered to be several times the usual interval between keystrokes
+  private static final int PAUSE_FACTOR = 3;
+  // weight of the most recent value in the moving averages
+  private static final double WEIGHT = 0.3;
+  static final int MAX_FILES = 1000;
+
+  private final long minMs;
+  private final long maxMs;
+  // only the last changes matter, the least recently changed files are evicted
+  private final Map<VirtualFile, Long> lastChange = new LinkedHashMap<VirtualFile, Long>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<VirtualFile, Long> eldest) {
+      return size() > MAX_FILES;
+    }
+  };
+  private State state = new State();
+
+  public static class State {
+    public Map<String, Long> typingIntervalMs = new LinkedHashMap<>();
+    public Map<String, Long> analysisMs = new LinkedHashMap<>();
+  }
+
+  public AdaptiveDebounce(Project project) {
+    this(project, 300, 5000);
+  }
+
+  AdaptiveDebounce(Project project, long minMs, long maxMs) {
+    super(project);
+    this.minMs = minMs;
+    this.maxMs = maxMs;
+    project.getMessageBus().connect(project).subscribe(AnalysisDurationListener.SONARLINT_ANALYSIS_DURATION_TOPIC, this::analysisDone);
+  }
+
+  /**
+   * Always waits the given delay
+   */
+  static AdaptiveDebounce fixed(Project project, long delayMs) {
+    return new AdaptiveDebounce(project, delayMs, delayMs);
+  }
+
+  public synchronized void changed(VirtualFile file, long time) {
+    Long last = lastChange.put(file, time);
+    if (last != null && time - last < MAX_TYPING_INTERVAL_MS) {
+      update(state.typingIntervalMs, file.getPath(), time - last);
+    }
+  }
+
+  /**
+   * The time spent is split between the files of the job, so it's mostly accurate for jobs of a single file, which is
+   * the case of the jobs triggered by this class.
+   */
+  public synchronized void analysisDone(SonarLintJob job, long durationMs) {
+    long perFile = durationMs / job.files().size();
+    for (VirtualFile f : job.files()) {
+      update(state.analysisMs, f.getPath(), perFile);
+    }
+  }
+
+  public synchronized long delayMs(VirtualFile file) {
+    Long interval = state.typingIntervalMs.get(file.getPath());
+    Long analysis = state.analysisMs.get(file.getPath());
+    long pause = interval != null ? (interval * PAUSE_FACTOR) : DEFAULT_PAUSE_MS;
+    long delay = pause + (analysis != null ? analysis : DEFAULT_ANALYSIS_MS);
+    return Math.max(minMs, Math.min(maxMs, delay));
+  }
+
+  public synchronized void forget(VirtualFile file) {
+    lastChange.remove(file);
+  }
+
+  private static void update(Map<String, Long> values, String key, long value) {
+    Long previous = values.remove(key);
+    long average = previous == null ? value : Math.round(WEIGHT * value + (1 - WEIGHT) * previous);
+    // re-inserted so that the least recently updated files are evicted first
+    values.put(key, average);
+    if (values.size() > MAX_FILES) {
+      Iterator<String> it = values.keySet().iterator();
+      it.next();
+      it.remove();
+    }
+  }
+
+  @Override
+  public synchronized State getState() {
+    return state;
+  }
+
+  @Override
+  public synchronized void loadState(State state) {
+    this.state = state;
+  }
+
+  @NotNull
+  @Override
+  public String getComponentName() {
+    return "SonarLintAdaptiveDebounce";
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger;
+
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.AbstractProjectComponent;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+import org.jetbrains.annotations.NotNull;
+import org.sonarlint.intellij.analysis.SonarLintJob;
+import org.sonarlint.intellij.analysis.SonarLintJobManager;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.issue.LiveIssue;
+import org.sonarlint.intellij.messages.IssueStoreListener;
+import org.sonarlint.intellij.messages.TaskListener;
+import org.sonarlint.intellij.util.SonarLintAppUtils;
+import org.sonarlint.intellij.util.SonarLintUtils;
+
+/**
+ * Keeps the persisted issues of the whole project up to date, including files modified outside of the editor such as
+ * external edits, VCS updates or generated code.
+ * <p>
+ * Files changed in the VFS are added to a set of dirty files, saved in the workspace so that it survives restarts. It is bounded
+ * by {@link #MAX_DIRTY}, the oldest changes being forgotten first, and nothing is collected while background analysis is disabled.
+ * Once changes stop for {@link #QUIET_MS}, dirty files that are not opened are submitted to the {@link SonarLintJobManager} in batches
+ * of {@link #BATCH_SIZE}, one batch at a time, as {@link TriggerType#BACKGROUND} jobs. They have the lowest priority and their issues
+ * are saved directly in the persisted store, without creating live issues.
+ */
+@ThreadSafe
+@State(name = "SonarLintDirtyFiles", storages = {@Storage(id = "workspace", file = StoragePathMacros.WORKSPACE_FILE)})
+public class BackgroundProjectAnalyzer extends AbstractProjectComponent implements PersistentStateComponent<BackgroundProjectAnalyzer.State> {
+  static final int BATCH_SIZE = 20;
+  static final int MAX_DIRTY = 10_000;
+  static final long QUIET_MS = 5000;
+  private static final long RETRY_MS = 2000;
+
+  private final SonarLintGlobalSettings globalSettings;
+  private final SonarLintJobManager jobManager;
+  private final FileEditorManager editorManager;
+  private final SonarLintAppUtils utils;
+  private final TriggerScheduler triggerScheduler;
+  private final Object scheduleKey = new Object();
+
+  // all guarded by this. Paths relative to the project, like the keys of the persisted store
+  private final Set<String> dirty = new LinkedHashSet<>();
+  // batch submitted to the job manager, saved with the dirty files until it is done
+  private final List<String> inFlightKeys = new ArrayList<>();
+  private final List<VirtualFile> inFlight = new ArrayList<>();
+
+  public static class State {
+    public List<String> dirtyFiles = new ArrayList<>();
+  }
+
+  public BackgroundProjectAnalyzer(Project project, SonarLintGlobalSettings globalSettings, SonarLintJobManager jobManager, FileEditorManager editorManager,
+    SonarLintAppUtils utils, TriggerScheduler triggerScheduler) {
+    super(project);
+    this.globalSettings = globalSettings;
+    this.jobManager = jobManager;
+    this.editorManager = editorManager;
+    this.utils = utils;
+    this.triggerScheduler = triggerScheduler;
+
+    project.getMessageBus().connect(project).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override public void before(List<? extends VFileEvent> events) {
+        // nothing to do
+      }
+
+      @Override public void after(List<? extends VFileEvent> events) {
+        changed(events);
+      }
+    });
+    project.getMessageBus().connect(project).subscribe(IssueStoreListener.SONARLINT_ISSUE_STORE_TOPIC, new IssueStoreListener() {
+      @Override public void filesChanged(Map<VirtualFile, Collection<LiveIssue>> map) {
+        // analyzed in the editor, the live issues will be persisted
+        clean(map.keySet());
+      }
+
+      @Override public void allChanged() {
+        // nothing to do
+      }
+    });
+    project.getMessageBus().connect(project).subscribe(TaskListener.SONARLINT_TASK_TOPIC, new TaskListener() {
+      @Override public void started(SonarLintJob job) {
+        // nothing to do
+      }
+
+      @Override public void ended(SonarLintJob job) {
+        if (job.trigger() == TriggerType.BACKGROUND) {
+          schedule(0);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void projectOpened() {
+    // files that were still dirty when the project was closed
+    schedule(QUIET_MS);
+  }
+
+  @Override
+  public void projectClosed() {
+    triggerScheduler.cancel(scheduleKey);
+  }
+
+  @NotNull
+  @Override
+  public synchronized State getState() {
+    State state = new State();
+    state.dirtyFiles.addAll(inFlightKeys);
+    state.dirtyFiles.addAll(dirty);
+    return state;
+  }
+
+  @Override
+  public synchronized void loadState(State state) {
+    dirty.clear();
+    addDirty(state.dirtyFiles);
+  }
+
+  /**
+   * Called in the EDT, within the write action. Created directories, such as a checkout or an unzipped archive, are walked later
+   * from a pooled thread.
+   */
+  private void changed(List<? extends VFileEvent> events) {
+    if (!globalSettings.isBackgroundAnalysis() || myProject.isDisposed() || myProject.getBasePath() == null) {
+      return;
+    }
+    ProjectFileIndex fileIndex = ProjectRootManager.getInstance(myProject).getFileIndex();
+    List<String> added = new ArrayList<>();
+    List<String> removed = new ArrayList<>();
+    List<VirtualFile> directories = new ArrayList<>();
+
+    for (VFileEvent e : events) {
+      VirtualFile file = e instanceof VFileCopyEvent ? ((VFileCopyEvent) e).findCreatedFile() : e.getFile();
+      if (file == null || !fileIndex.isInContent(file)) {
+        continue;
+      }
+      if (e instanceof VFileDeleteEvent) {
+        removed.add(SonarLintUtils.getRelativePath(myProject, file));
+      } else if (file.isDirectory()) {
+        directories.add(file);
+      } else if (file.isValid()) {
+        added.add(SonarLintUtils.getRelativePath(myProject, file));
+      }
+    }
+
+    markDirty(added, removed);
+    if (!directories.isEmpty()) {
+      Application app = ApplicationManager.getApplication();
+      app.executeOnPooledThread(() -> markDirty(app.runReadAction((Computable<List<String>>) () -> filesIn(directories, fileIndex)),
+        Collections.emptyList()));
+    }
+  }
+
+  private List<String> filesIn(List<VirtualFile> directories, ProjectFileIndex fileIndex) {
+    List<String> files = new ArrayList<>();
+    if (myProject.isDisposed()) {
+      return files;
+    }
+    for (VirtualFile dir : directories) {
+      if (dir.isValid()) {
+        VfsUtilCore.iterateChildrenRecursively(dir, fileIndex::isInContent, f -> {
+          if (!f.isDirectory()) {
+            files.add(SonarLintUtils.getRelativePath(myProject, f));
+          }
+          return true;
+        });
+      }
+    }
+    return files;
+  }
+
+  void markDirty(Collection<String> added, Collection<String> removed) {
+    if (!globalSettings.isBackgroundAnalysis() || (added.isEmpty() && removed.isEmpty())) {
+      return;
+    }
+    synchronized (this) {
+      dirty.removeAll(removed);
+      addDirty(added);
+    }
+    // wait for the end of bulk changes, such as a VCS update
+    schedule(QUIET_MS);
+  }
+
+  /**
+   * Must be called while holding the lock.
+   */
+  private void addDirty(Collection<String> keys) {
+    dirty.addAll(keys);
+    Iterator<String> it = dirty.iterator();
+    while (dirty.size() > MAX_DIRTY && it.hasNext()) {
+      it.next();
+      it.remove();
+    }
+  }
+
+  private void clean(Collection<VirtualFile> files) {
+    if (myProject.isDisposed() || myProject.getBasePath() == null) {
+      return;
+    }
+    List<String> keys = files.stream().map(f -> SonarLintUtils.getRelativePath(myProject, f)).collect(Collectors.toList());
+    synchronized (this) {
+      dirty.removeAll(keys);
+    }
+  }
+
+  synchronized Collection<String> getDirty() {
+    return new ArrayList<>(dirty);
+  }
+
+  private void schedule(long delayMs) {
+    triggerScheduler.schedule(scheduleKey, delayMs, this::analyzeNextBatch);
+  }
+
+  void analyzeNextBatch() {
+    if (myProject.isDisposed() || !globalSettings.isBackgroundAnalysis()) {
+      return;
+    }
+
+    List<VirtualFile> previous;
+    synchronized (this) {
+      previous = new ArrayList<>(inFlight);
+    }
+    if (!previous.isEmpty() && jobManager.hasPending(previous)) {
+      // scheduled again once it ends. Retried anyway in case the job is dropped by the queue
+      schedule(RETRY_MS);
+      return;
+    }
+
+    Batch batch;
+    synchronized (this) {
+      inFlight.clear();
+      inFlightKeys.clear();
+      batch = takeBatch();
+      if (batch == null) {
+        return;
+      }
+      inFlight.addAll(batch.files);
+      inFlightKeys.addAll(batch.keys);
+    }
+    jobManager.submitAsync(batch.module, batch.files, TriggerType.BACKGROUND);
+  }
+
+  /**
+   * Takes dirty files of a single module. Files that can't or don't need to be analyzed in the background are discarded.
+   * Must be called while holding the lock.
+   */
+  @CheckForNull
+  private Batch takeBatch() {
+    VirtualFile baseDir = myProject.getBaseDir();
+    if (baseDir == null) {
+      return null;
+    }
+    Batch batch = null;
+    Iterator<String> it = dirty.iterator();
+    while (it.hasNext() && (batch == null || batch.files.size() < BATCH_SIZE)) {
+      String key = it.next();
+      VirtualFile file = baseDir.findFileByRelativePath(FileUtil.toSystemIndependentName(key));
+      Module m = file != null && file.isValid() ? utils.findModuleForFile(file, myProject) : null;
+      if (m == null || !utils.shouldAnalyzeAutomatically(file, m) || editorManager.isFileOpen(file)) {
+        // opened files are analyzed by the other triggers
+        it.remove();
+        continue;
+      }
+      if (batch == null) {
+        batch = new Batch(m);
+      } else if (!batch.module.equals(m)) {
+        continue;
+      }
+      batch.files.add(file);
+      batch.keys.add(key);
+      it.remove();
+    }
+    return batch;
+  }
+
+  private static class Batch {
+    private final Module module;
+    private final List<VirtualFile> files = new ArrayList<>();
+    private final List<String> keys = new ArrayList<>();
+
+    private Batch(Module module) {
+      this.module = module;
+    }
+  }
+}
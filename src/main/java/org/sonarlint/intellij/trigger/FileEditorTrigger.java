@@ -25,20 +25,41 @@ import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
 import com.intellij.openapi.fileEditor.FileEditorManagerListener;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupManager;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.Alarm;
 import com.intellij.util.messages.MessageBusConnection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import org.jetbrains.annotations.NotNull;
 import org.sonarlint.intellij.analysis.SonarLintJobManager;
 import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
 import org.sonarlint.intellij.util.SonarLintAppUtils;
 
+/**
+ * Submits files when they are opened.
+ * While the project is opening, the editors being restored are batched in a single job per module, preceded by a job with only
+ * the selected editor. The batch is submitted once the project is initialized and no file was opened for {@link #QUIET_MS},
+ * or after {@link #MAX_BATCH_MS} at most.
+ */
 public class FileEditorTrigger extends AbstractProjectComponent implements FileEditorManagerListener {
+  private static final int QUIET_MS = 500;
+  private static final int MAX_BATCH_MS = 10_000;
+
   private final SonarLintJobManager jobManager;
   private final SonarLintGlobalSettings globalSettings;
   private final MessageBusConnection busConnection;
   private final SonarLintAppUtils utils;
 
+  // guarded by this
+  private boolean batching = false;
+  private boolean initialized = false;
+  private final Map<Module, Set<VirtualFile>> batch = new LinkedHashMap<>();
+  private Alarm alarm;
+
   public FileEditorTrigger(Project project, SonarLintJobManager jobManager, SonarLintGlobalSettings globalSettings,
     SonarLintAppUtils utils) {
     super(project);
@@ -50,11 +71,25 @@ public class FileEditorTrigger extends AbstractProjectComponent implements FileE
   }
 
   @Override
-  /**
-   * I've tried hard to group opening events on startup without success.
-   * Tried: Project.isInitialized, Project.isOpen, schedule to EDT thread and to WriteAction.
-   * So on startup, opened files will be submitted one by one.
-   */
+  public void projectOpened() {
+    startBatching();
+    synchronized (this) {
+      alarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, myProject);
+      alarm.addRequest(this::flush, MAX_BATCH_MS);
+    }
+    StartupManager.getInstance(myProject).runWhenProjectIsInitialized(() -> {
+      synchronized (this) {
+        initialized = true;
+        scheduleFlush();
+      }
+    });
+  }
+
+  synchronized void startBatching() {
+    batching = true;
+  }
+
+  @Override
   public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
     if (!globalSettings.isAutoTrigger()) {
       return;
@@ -65,9 +100,65 @@ public class FileEditorTrigger extends AbstractProjectComponent implements FileE
       return;
     }
 
+    synchronized (this) {
+      if (batching) {
+        batch.computeIfAbsent(m, k -> new LinkedHashSet<>()).add(file);
+        if (initialized) {
+          scheduleFlush();
+        }
+        return;
+      }
+    }
+
     jobManager.submitAsync(m, Collections.singleton(file), TriggerType.EDITOR_OPEN);
   }
 
+  /**
+   * Postpones the submission of the batch until no more files are opened for a while
+   */
+  private void scheduleFlush() {
+    if (alarm != null && batching) {
+      alarm.cancelAllRequests();
+      alarm.addRequest(this::flush, QUIET_MS);
+    }
+  }
+
+  /**
+   * Ends the batching window, submitting the selected file first so that it shows results as soon as possible.
+   */
+  void flush() {
+    Map<Module, Set<VirtualFile>> toSubmit;
+    synchronized (this) {
+      if (!batching) {
+        return;
+      }
+      batching = false;
+      if (alarm != null) {
+        alarm.cancelAllRequests();
+      }
+      toSubmit = new LinkedHashMap<>(batch);
+      batch.clear();
+    }
+
+    if (myProject.isDisposed()) {
+      return;
+    }
+
+    VirtualFile selected = utils.getSelectedFile(myProject);
+    if (selected != null) {
+      for (Map.Entry<Module, Set<VirtualFile>> e : toSubmit.entrySet()) {
+        if (e.getValue().remove(selected)) {
+          jobManager.submitAsync(e.getKey(), Collections.singleton(selected), TriggerType.EDITOR_OPEN);
+          break;
+        }
+      }
+    }
+
+    toSubmit.entrySet().stream()
+      .filter(e -> !e.getValue().isEmpty())
+      .forEach(e -> jobManager.submitAsync(e.getKey(), e.getValue(), TriggerType.EDITOR_OPEN));
+  }
+
   @Override
   public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
     // nothing to do
@@ -0,0 +1,343 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger;
+
+import com.intellij.ide.IdeEventQueue;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.AbstractProjectComponent;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerAdapter;
+import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+import org.jetbrains.annotations.NotNull;
+import org.sonarlint.intellij.analysis.SonarLintJob;
+import org.sonarlint.intellij.analysis.SonarLintJobManager;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.issue.LiveIssue;
+import org.sonarlint.intellij.issue.persistence.IssuePersistence;
+import org.sonarlint.intellij.messages.IssueStoreListener;
+import org.sonarlint.intellij.messages.TaskListener;
+import org.sonarlint.intellij.util.SonarLintAppUtils;
+import org.sonarlint.intellij.util.SonarLintUtils;
+
+/**
+ * Analyzes files while there is no user input and no indexing, so that their issues are up to date once they are needed.
+ * Candidates are, in this order, the open files, the recently selected files and the files whose persisted issues are older
+ * than the file. Files already analyzed since their last modification are skipped.
+ * <p>
+ * Work is done in small batches. Any input cancels the batch being analyzed, and its files are the first ones analyzed
+ * once the IDE is idle again.
+ */
+@ThreadSafe
+public class IdleAnalyzer extends AbstractProjectComponent {
+  static final int BATCH_SIZE = 5;
+  static final int MAX_RECENT_FILES = 20;
+
+  private final SonarLintGlobalSettings globalSettings;
+  private final SonarLintJobManager jobManager;
+  private final IssuePersistence persistence;
+  private final FileEditorManager editorManager;
+  private final SonarLintAppUtils utils;
+  private final BooleanSupplier dumb;
+  private final Runnable idleListener = this::onIdle;
+
+  private volatile boolean idle = false;
+  // all guarded by this
+  private final Deque<VirtualFile> pending = new ArrayDeque<>();
+  private final Set<VirtualFile> inFlight = new LinkedHashSet<>();
+  private final Map<VirtualFile, Long> analyzedStamps = new HashMap<>();
+  private final Map<VirtualFile, Boolean> recentFiles = new LinkedHashMap<VirtualFile, Boolean>(16, 0.75f, true) {
+    @Override protected boolean removeEldestEntry(Map.Entry<VirtualFile, Boolean> eldest) {
+      return size() > MAX_RECENT_FILES;
+    }
+  };
+
+  public IdleAnalyzer(Project project, SonarLintGlobalSettings globalSettings, SonarLintJobManager jobManager, IssuePersistence persistence,
+    FileEditorManager editorManager, SonarLintAppUtils utils) {
+    this(project, globalSettings, jobManager, persistence, editorManager, utils, () -> DumbService.getInstance(project).isDumb());
+  }
+
+  IdleAnalyzer(Project project, SonarLintGlobalSettings globalSettings, SonarLintJobManager jobManager, IssuePersistence persistence,
+    FileEditorManager editorManager, SonarLintAppUtils utils, BooleanSupplier dumb) {
+    super(project);
+    this.globalSettings = globalSettings;
+    this.jobManager = jobManager;
+    this.persistence = persistence;
+    this.editorManager = editorManager;
+    this.utils = utils;
+    this.dumb = dumb;
+
+    project.getMessageBus().connect(project).subscribe(IssueStoreListener.SONARLINT_ISSUE_STORE_TOPIC, new IssueStoreListener() {
+      @Override public void filesChanged(Map<VirtualFile, Collection<LiveIssue>> map) {
+        analyzed(map.keySet());
+      }
+
+      @Override public void allChanged() {
+        synchronized (IdleAnalyzer.this) {
+          analyzedStamps.clear();
+        }
+      }
+    });
+    project.getMessageBus().connect(project).subscribe(TaskListener.SONARLINT_TASK_TOPIC, new TaskListener() {
+      @Override public void started(SonarLintJob job) {
+        // nothing to do
+      }
+
+      @Override public void ended(SonarLintJob job) {
+        jobEnded(job);
+      }
+    });
+  }
+
+  @Override
+  public void projectOpened() {
+    int delaySec = globalSettings.getIdleAnalysisDelaySec();
+    if (delaySec <= 0) {
+      return;
+    }
+    IdeEventQueue.getInstance().addIdleListener(idleListener, delaySec * 1000);
+    // called for every input event
+    IdeEventQueue.getInstance().addActivityListener(() -> {
+      if (idle) {
+        onActivity();
+      }
+    }, myProject);
+
+    myProject.getMessageBus().connect(myProject).subscribe(DumbService.DUMB_MODE, new DumbService.DumbModeListener() {
+      @Override public void enteredDumbMode() {
+        pause();
+      }
+
+      @Override public void exitDumbMode() {
+        if (idle) {
+          resume();
+        }
+      }
+    });
+    myProject.getMessageBus().connect(myProject).subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, new FileEditorManagerAdapter() {
+      @Override public void selectionChanged(@NotNull FileEditorManagerEvent event) {
+        if (event.getNewFile() != null) {
+          visited(event.getNewFile());
+        }
+      }
+    });
+  }
+
+  @Override
+  public void projectClosed() {
+    IdeEventQueue.getInstance().removeIdleListener(idleListener);
+  }
+
+  void onIdle() {
+    idle = true;
+    resume();
+  }
+
+  void onActivity() {
+    idle = false;
+    pause();
+  }
+
+  synchronized void visited(VirtualFile file) {
+    recentFiles.put(file, Boolean.TRUE);
+  }
+
+  private synchronized void analyzed(Collection<VirtualFile> files) {
+    for (VirtualFile f : files) {
+      analyzedStamps.put(f, f.getModificationStamp());
+    }
+  }
+
+  /**
+   * Finding candidates reads persisted issues and file contents, so it is done in a pooled thread rather than in the EDT
+   * where idleness is notified, and without holding the lock.
+   */
+  private void resume() {
+    if (!globalSettings.isAutoTrigger() || myProject.isDisposed() || dumb.getAsBoolean()) {
+      return;
+    }
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      if (!hasWork()) {
+        Collection<VirtualFile> candidates = findCandidates();
+        synchronized (this) {
+          if (pending.isEmpty() && inFlight.isEmpty()) {
+            pending.addAll(candidates);
+          }
+        }
+      }
+      if (idle) {
+        submitNext();
+      }
+    });
+  }
+
+  private synchronized boolean hasWork() {
+    return !pending.isEmpty() || !inFlight.isEmpty();
+  }
+
+  /**
+   * Cancels the batch being analyzed, and puts its files back at the head of the pending files.
+   */
+  private void pause() {
+    synchronized (this) {
+      if (inFlight.isEmpty()) {
+        return;
+      }
+      List<VirtualFile> interrupted = new ArrayList<>(inFlight);
+      for (int i = interrupted.size() - 1; i >= 0; i--) {
+        pending.addFirst(interrupted.get(i));
+      }
+      inFlight.clear();
+    }
+    jobManager.cancel(TriggerType.IDLE);
+  }
+
+  private void jobEnded(SonarLintJob job) {
+    synchronized (this) {
+      if (!inFlight.removeAll(job.files()) || !inFlight.isEmpty()) {
+        return;
+      }
+    }
+    if (idle) {
+      submitNext();
+    }
+  }
+
+  /**
+   * Files of the batch are claimed under the lock, and checked without holding it. If the batch is interrupted in the meantime,
+   * its files are back in the pending ones and nothing is submitted.
+   */
+  private void submitNext() {
+    while (true) {
+      List<VirtualFile> claimed = new ArrayList<>();
+      synchronized (this) {
+        if (!inFlight.isEmpty()) {
+          return;
+        }
+        while (!pending.isEmpty() && claimed.size() < BATCH_SIZE) {
+          claimed.add(pending.removeFirst());
+        }
+        inFlight.addAll(claimed);
+      }
+      if (claimed.isEmpty()) {
+        return;
+      }
+
+      Map<Module, Set<VirtualFile>> filesByModule = new LinkedHashMap<>();
+      List<VirtualFile> skipped = new ArrayList<>();
+      for (VirtualFile file : claimed) {
+        Module m = findModuleToAnalyze(file);
+        if (m != null && needsAnalysis(file)) {
+          filesByModule.computeIfAbsent(m, k -> new HashSet<>()).add(file);
+        } else {
+          skipped.add(file);
+        }
+      }
+
+      synchronized (this) {
+        inFlight.removeAll(skipped);
+        filesByModule.values().forEach(files -> files.retainAll(inFlight));
+        filesByModule.values().removeIf(Set::isEmpty);
+        if (filesByModule.isEmpty() && (!inFlight.isEmpty() || !idle)) {
+          return;
+        }
+      }
+
+      if (!filesByModule.isEmpty()) {
+        //don't lock while submitting
+        filesByModule.forEach((m, files) -> jobManager.submitAsync(m, files, TriggerType.IDLE));
+        return;
+      }
+    }
+  }
+
+  private Collection<VirtualFile> findCandidates() {
+    List<VirtualFile> recent;
+    synchronized (this) {
+      analyzedStamps.keySet().removeIf(f -> !f.isValid());
+      recent = new ArrayList<>(recentFiles.keySet());
+    }
+    Set<VirtualFile> candidates = new LinkedHashSet<>();
+    VirtualFile selected = utils.getSelectedFile(myProject);
+    if (selected != null) {
+      candidates.add(selected);
+    }
+    candidates.addAll(Arrays.asList(editorManager.getOpenFiles()));
+    for (int i = recent.size() - 1; i >= 0; i--) {
+      candidates.add(recent.get(i));
+    }
+
+    VirtualFile baseDir = myProject.getBaseDir();
+    if (baseDir != null) {
+      for (String key : persistence.keys()) {
+        VirtualFile file = baseDir.findFileByRelativePath(key);
+        if (file != null) {
+          candidates.add(file);
+        }
+      }
+    }
+
+    candidates.removeIf(f -> findModuleToAnalyze(f) == null || !needsAnalysis(f));
+    return candidates;
+  }
+
+  @CheckForNull
+  private Module findModuleToAnalyze(VirtualFile file) {
+    if (!file.isValid()) {
+      return null;
+    }
+    Module m = utils.findModuleForFile(file, myProject);
+    return (m != null && utils.shouldAnalyzeAutomatically(file, m)) ? m : null;
+  }
+
+  private boolean needsAnalysis(VirtualFile file) {
+    Long stamp;
+    synchronized (this) {
+      stamp = analyzedStamps.get(file);
+    }
+    if (stamp != null) {
+      return stamp != file.getModificationStamp();
+    }
+    return persistence.lastModified(SonarLintUtils.getRelativePath(myProject, file)) < file.getTimeStamp();
+  }
+
+  synchronized Collection<VirtualFile> getPending() {
+    return new ArrayList<>(pending);
+  }
+}
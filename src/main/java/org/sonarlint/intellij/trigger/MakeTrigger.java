@@ -30,16 +30,20 @@ import com.intellij.openapi.project.Project;
 import java.util.UUID;
 
 import org.jetbrains.annotations.NotNull;
+import org.sonarlint.intellij.analysis.JavaConfigurationCache;
 import org.sonarlint.intellij.ui.SonarLintConsole;
 
 public class MakeTrigger extends AbstractProjectComponent implements BuildManagerListener, CompilationStatusListener {
   private final SonarLintConsole console;
   private final CompilerManager compilerManager;
   private final OpenFilesSubmitter submitter;
+  private final JavaConfigurationCache configurationCache;
 
-  public MakeTrigger(Project project, OpenFilesSubmitter submitter, SonarLintConsole console, CompilerManager compilerManager) {
+  public MakeTrigger(Project project, OpenFilesSubmitter submitter, SonarLintConsole console, CompilerManager compilerManager,
+    JavaConfigurationCache configurationCache) {
     super(project);
     this.submitter = submitter;
+    this.configurationCache = configurationCache;
     this.console = console;
     this.compilerManager = compilerManager;
     ApplicationManager.getApplication().getMessageBus().connect().subscribe(BuildManagerListener.TOPIC, this);
@@ -55,6 +59,10 @@ public class MakeTrigger extends AbstractProjectComponent implements BuildManage
   }
 
   @Override public void buildFinished(Project project, UUID sessionId, boolean isAutomake) {
+    if (project.equals(myProject)) {
+      // compiler output directories might have been created
+      configurationCache.invalidate();
+    }
     if (!project.equals(myProject) || !isAutomake) {
       // covered by compilationFinished
       return;
@@ -70,6 +78,7 @@ public class MakeTrigger extends AbstractProjectComponent implements BuildManage
   @Override public void compilationFinished(boolean aborted, int errors, int warnings, CompileContext compileContext) {
     if (compileContext.getProject().equals(myProject)) {
       console.debug("compilation finished");
+      configurationCache.invalidate();
       submitter.submitIfAutoEnabled(TriggerType.COMPILATION);
     }
   }
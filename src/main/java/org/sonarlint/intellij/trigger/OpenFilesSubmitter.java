@@ -75,9 +75,7 @@ public class OpenFilesSubmitter extends AbstractProjectComponent {
     if (!filesByModule.isEmpty()) {
       console.debug("Trigger: " + trigger);
 
-      for (Module m : filesByModule.keySet()) {
-        sonarLintJobManager.submitAsync(m, filesByModule.get(m), trigger);
-      }
+      sonarLintJobManager.submitAsync(filesByModule.asMap(), trigger);
     }
   }
 }
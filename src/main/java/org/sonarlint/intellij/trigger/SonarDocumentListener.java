@@ -19,57 +19,100 @@
  */
 package org.sonarlint.intellij.trigger;
 
+import com.intellij.AppTopics;
+import com.intellij.openapi.command.CommandAdapter;
+import com.intellij.openapi.command.CommandEvent;
+import com.intellij.openapi.command.CommandListener;
+import com.intellij.openapi.command.CommandProcessor;
 import com.intellij.openapi.components.AbstractProjectComponent;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.EditorFactory;
 import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.editor.event.DocumentListener;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileDocumentManagerAdapter;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.concurrent.ThreadSafe;
 
+import org.jetbrains.annotations.NotNull;
+import org.sonarlint.intellij.analysis.AnalysisCostProfile;
 import org.sonarlint.intellij.analysis.SonarLintJob;
 import org.sonarlint.intellij.analysis.SonarLintJobManager;
 import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
 import org.sonarlint.intellij.messages.TaskListener;
 import org.sonarlint.intellij.util.SonarLintAppUtils;
 
+/**
+ * Submits files some time after they are edited.
+ * <p>
+ * Bulk changes, such as a VCS checkout, a reformat of several files or a refactoring, would otherwise trigger one job per file.
+ * A storm starts when more than {@link #STORM_THRESHOLD} files are changed within {@link #STORM_WINDOW_MS}, or when a single
+ * command or VFS refresh changes several documents. While it lasts, changed files are only collected. They are submitted once
+ * the changes stop for {@link #STORM_QUIET_MS}, in a single job per module with the low priority {@link TriggerType#BULK_CHANGE}.
+ * <p>
+ * Files that the {@link AnalysisCostProfile} demoted because they are too slow to analyze are not submitted while typing, but when
+ * they are saved, or by the next compilation. Saves are made by the user or the IDE: analyses don't save files, they read unsaved
+ * changes from snapshots of the documents. A job analyzing a demoted file takes its unsaved changes, so the file isn't submitted
+ * again when it's saved afterwards.
+ */
 @ThreadSafe
 public class SonarDocumentListener extends AbstractProjectComponent implements DocumentListener {
-  private static final int DEFAULT_TIMER_MS = 2000;
+  static final int STORM_THRESHOLD = 5;
+  static final int STORM_WINDOW_MS = 1000;
+  static final int STORM_QUIET_MS = 1000;
 
   private final SonarLintGlobalSettings globalSettings;
   private final SonarLintJobManager analyzer;
   private final SonarLintAppUtils utils;
   private final FileDocumentManager docManager;
+  private final AnalysisCostProfile costProfile;
 
   // entries in this map mean that the file is "dirty"
   private final Map<VirtualFile, Long> eventMap;
-  private final EventWatcher watcher;
-  private final int timerMs;
+  // changed files waiting to be saved because they are too slow to analyze while typing
+  private final Set<VirtualFile> demotedFiles = ConcurrentHashMap.newKeySet();
+  private final TriggerScheduler scheduler;
+  private final AdaptiveDebounce debounce;
+  private final Object stormKey = new Object();
 
-  public SonarDocumentListener(Project project, SonarLintGlobalSettings globalSettings, SonarLintJobManager analyzer,
-    EditorFactory editorFactory, SonarLintAppUtils utils, FileDocumentManager docManager) {
-    this(project, globalSettings, analyzer, editorFactory, utils, docManager, DEFAULT_TIMER_MS);
-  }
+  // all guarded by stormLock
+  private final Object stormLock = new Object();
+  private final Deque<Long> recentChanges = new ArrayDeque<>();
+  private final Set<VirtualFile> stormFiles = new HashSet<>();
+  private final Set<VirtualFile> bulkContextFiles = new HashSet<>();
+  private boolean storm = false;
+  private boolean inBulkContext = false;
+  private long lastStormChange = 0;
 
   public SonarDocumentListener(Project project, SonarLintGlobalSettings globalSettings, SonarLintJobManager analyzer,
-    EditorFactory editorFactory, SonarLintAppUtils utils, FileDocumentManager docManager, int timerMs) {
+    EditorFactory editorFactory, SonarLintAppUtils utils, FileDocumentManager docManager, TriggerScheduler scheduler,
+    AdaptiveDebounce debounce, AnalysisCostProfile costProfile) {
     super(project);
     this.analyzer = analyzer;
     this.utils = utils;
     this.docManager = docManager;
     this.eventMap = new ConcurrentHashMap<>();
     this.globalSettings = globalSettings;
-    this.watcher = new EventWatcher();
-    this.timerMs = timerMs;
+    this.scheduler = scheduler;
+    this.debounce = debounce;
+    this.costProfile = costProfile;
 
     editorFactory.getEventMulticaster().addDocumentListener(this);
 
@@ -82,11 +125,74 @@ public class SonarDocumentListener extends AbstractProjectComponent implements D
         // nothing to do
       }
     });
+
+    // documents are reloaded from disk during VFS refreshes, for example after a VCS checkout
+    project.getMessageBus().connect(project).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override public void before(List<? extends VFileEvent> events) {
+        enterBulkContext();
+      }
+
+      @Override public void after(List<? extends VFileEvent> events) {
+        exitBulkContext();
+      }
+    });
+
+    project.getMessageBus().connect(project).subscribe(AppTopics.FILE_DOCUMENT_SYNC, new FileDocumentManagerAdapter() {
+      @Override public void beforeDocumentSaving(@NotNull Document document) {
+        documentSaving(document);
+      }
+    });
+  }
+
+  /**
+   * Waits a fixed delay after each change
+   */
+  SonarDocumentListener(Project project, SonarLintGlobalSettings globalSettings, SonarLintJobManager analyzer,
+    EditorFactory editorFactory, SonarLintAppUtils utils, FileDocumentManager docManager, int timerMs, AnalysisCostProfile costProfile) {
+    this(project, globalSettings, analyzer, editorFactory, utils, docManager, new TriggerScheduler(), AdaptiveDebounce.fixed(project, timerMs),
+      costProfile);
   }
 
   @Override
-  public void initComponent() {
-    watcher.start();
+  public void projectOpened() {
+    CommandProcessor.getInstance().addCommandListener(commandListener(), myProject);
+  }
+
+  /**
+   * Reformat and refactoring actions run as a single command changing several documents.
+   * The command processor is shared by all projects, so commands of other projects are ignored.
+   */
+  CommandListener commandListener() {
+    return new CommandAdapter() {
+      @Override public void commandStarted(CommandEvent event) {
+        if (event.getProject() == myProject) {
+          enterBulkContext();
+        }
+      }
+
+      @Override public void commandFinished(CommandEvent event) {
+        if (event.getProject() == myProject) {
+          exitBulkContext();
+        }
+      }
+    };
+  }
+
+  private void enterBulkContext() {
+    synchronized (stormLock) {
+      inBulkContext = true;
+      bulkContextFiles.clear();
+    }
+  }
+
+  private void exitBulkContext() {
+    synchronized (stormLock) {
+      inBulkContext = false;
+      bulkContextFiles.clear();
+      if (storm) {
+        scheduler.schedule(stormKey, STORM_QUIET_MS, this::flushStorm);
+      }
+    }
   }
 
   @Override public void beforeDocumentChange(DocumentEvent event) {
@@ -108,82 +214,160 @@ public class SonarDocumentListener extends AbstractProjectComponent implements D
       return;
     }
 
-    eventMap.put(file, System.currentTimeMillis());
+    long now = System.currentTimeMillis();
+    debounce.changed(file, now);
+    synchronized (stormLock) {
+      if (storm || detectStorm(file, now)) {
+        stormFiles.add(file);
+        lastStormChange = now;
+        scheduler.schedule(stormKey, STORM_QUIET_MS, this::flushStorm);
+        return;
+      }
+    }
+    eventMap.put(file, now);
+    scheduler.schedule(fileKey(file), debounce.delayMs(file), () -> fire(file));
+  }
+
+  private Object fileKey(VirtualFile file) {
+    return Pair.create(myProject, file);
+  }
+
+  /**
+   * Must be called while holding the stormLock. If a storm starts, the files waiting to be submitted join it.
+   */
+  private boolean detectStorm(VirtualFile file, long now) {
+    if (inBulkContext) {
+      bulkContextFiles.add(file);
+    }
+    if (!eventMap.containsKey(file)) {
+      recentChanges.addLast(now);
+    }
+    while (!recentChanges.isEmpty() && recentChanges.peekFirst() < now - STORM_WINDOW_MS) {
+      recentChanges.removeFirst();
+    }
+
+    if (bulkContextFiles.size() > 1 || recentChanges.size() > STORM_THRESHOLD) {
+      storm = true;
+      recentChanges.clear();
+      stormFiles.addAll(bulkContextFiles);
+      stormFiles.addAll(eventMap.keySet());
+      eventMap.keySet().forEach(f -> scheduler.cancel(fileKey(f)));
+      eventMap.clear();
+      return true;
+    }
+    return false;
+  }
+
+  boolean isStorm() {
+    synchronized (stormLock) {
+      return storm;
+    }
   }
 
   /**
    * Marks a file as launched, resetting its state to unchanged
    */
   public void removeFiles(Collection<VirtualFile> files) {
-    files.forEach(eventMap::remove);
+    for (VirtualFile f : files) {
+      if (eventMap.remove(f) != null) {
+        scheduler.cancel(fileKey(f));
+      }
+    }
+    synchronized (stormLock) {
+      stormFiles.removeAll(files);
+    }
+    demotedFiles.removeAll(files);
   }
 
   Map<VirtualFile, Long> getEvents() {
     return Collections.unmodifiableMap(eventMap);
   }
 
-  private class EventWatcher extends Thread {
-    private boolean stop = false;
-
-    EventWatcher() {
-      this.setDaemon(true);
-      this.setName("sonarlint-auto-trigger-" + myProject.getName());
+  private void fire(VirtualFile file) {
+    if (eventMap.remove(file) == null) {
+      // already submitted, or collected by a storm
+      return;
+    }
+    if (!file.isValid()) {
+      debounce.forget(file);
+      return;
+    }
+    if (!globalSettings.isAutoTrigger() || myProject.isDisposed()) {
+      return;
     }
 
-    public void stopWatcher() {
-      stop = true;
-      this.interrupt();
+    Module m = utils.findModuleForFile(file, myProject);
+    if (m == null || !utils.shouldAnalyzeAutomatically(file, m)) {
+      return;
     }
 
-    @Override
-    public void run() {
-      while (!stop) {
-        checkTimers();
-        try {
-          Thread.sleep(200);
-        } catch (InterruptedException e) {
-          // continue until stop flag is set
-        }
-      }
+    if (costProfile.isDemoted(file)) {
+      demotedFiles.add(file);
+      return;
     }
 
-    private void triggerFile(VirtualFile file) {
-      if (!globalSettings.isAutoTrigger() || myProject.isDisposed()) {
-        return;
-      }
+    analyzer.submitAsync(m, Collections.singleton(file), TriggerType.EDITOR_CHANGE);
+  }
 
-      Module m = utils.findModuleForFile(file, myProject);
-      if (m == null || !utils.shouldAnalyzeAutomatically(file, m)) {
-        return;
-      }
+  /**
+   * Submits demoted files that changed since they were last analyzed
+   */
+  void documentSaving(Document document) {
+    VirtualFile file = docManager.getFile(document);
+    if (file == null) {
+      return;
+    }
+    boolean changed = demotedFiles.remove(file);
+    if (costProfile.isDemoted(file) && eventMap.remove(file) != null) {
+      scheduler.cancel(fileKey(file));
+      changed = true;
+    }
+    if (!changed || !file.isValid() || !globalSettings.isAutoTrigger() || myProject.isDisposed()) {
+      return;
+    }
 
-      analyzer.submitAsync(m, Collections.singleton(file), TriggerType.EDITOR_CHANGE);
+    Module m = utils.findModuleForFile(file, myProject);
+    if (m != null && utils.shouldAnalyzeAutomatically(file, m)) {
+      analyzer.submitAsync(m, Collections.singleton(file), TriggerType.SAVE);
     }
+  }
 
-    private void checkTimers() {
+  private void flushStorm() {
+    Map<Module, Set<VirtualFile>> filesByModule = new HashMap<>();
+    synchronized (stormLock) {
       long t = System.currentTimeMillis();
-
-      Iterator<Map.Entry<VirtualFile, Long>> it = eventMap.entrySet().iterator();
-      while (it.hasNext()) {
-        Map.Entry<VirtualFile, Long> e = it.next();
-        if (!e.getKey().isValid()) {
-          it.remove();
-          continue;
-        }
-        // don't trigger if file currently has errors?
-        // filter files opened in the editor
-        // use some heuristics based on analysis time or average pauses? Or make it configurable?
-        if (e.getValue() + timerMs < t) {
-          triggerFile(e.getKey());
-          it.remove();
+      if (!storm || inBulkContext) {
+        // rescheduled when leaving the bulk context
+        return;
+      }
+      if (lastStormChange + STORM_QUIET_MS > t) {
+        scheduler.schedule(stormKey, lastStormChange + STORM_QUIET_MS - t, this::flushStorm);
+        return;
+      }
+      storm = false;
+      if (!globalSettings.isAutoTrigger() || myProject.isDisposed()) {
+        stormFiles.clear();
+        return;
+      }
+      for (VirtualFile f : stormFiles) {
+        Module m = f.isValid() ? utils.findModuleForFile(f, myProject) : null;
+        if (m != null && utils.shouldAnalyzeAutomatically(f, m)) {
+          filesByModule.computeIfAbsent(m, k -> new HashSet<>()).add(f);
         }
       }
+      stormFiles.clear();
     }
+
+    filesByModule.forEach((m, files) -> analyzer.submitAsync(m, files, TriggerType.BULK_CHANGE));
   }
 
   @Override
   public void disposeComponent() {
-    watcher.stopWatcher();
+    eventMap.keySet().forEach(f -> scheduler.cancel(fileKey(f)));
     eventMap.clear();
+    synchronized (stormLock) {
+      scheduler.cancel(stormKey);
+      stormFiles.clear();
+    }
   }
 }
@@ -0,0 +1,89 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger;
+
+import com.intellij.openapi.components.ApplicationComponent;
+import com.intellij.openapi.diagnostic.Logger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Single thread, shared by all projects, that runs tasks at a given deadline. Scheduling a task with the key of a task
+ * still pending replaces it, so each key has at most one deadline.
+ */
+@ThreadSafe
+public class TriggerScheduler extends ApplicationComponent.Adapter {
+  private static final Logger LOGGER = Logger.getInstance(TriggerScheduler.class);
+  private final ScheduledThreadPoolExecutor executor;
+  private final Map<Object, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<>();
+
+  public TriggerScheduler() {
+    executor = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread t = new Thread(r, "sonarlint-trigger-scheduler");
+      t.setDaemon(true);
+      return t;
+    });
+    // cancelled deadlines are frequent (one per keystroke), don't keep them in the queue
+    executor.setRemoveOnCancelPolicy(true);
+  }
+
+  public void schedule(Object key, long delayMs, Runnable task) {
+    AtomicReference<ScheduledFuture<?>> self = new AtomicReference<>();
+    Runnable wrapper = () -> {
+      scheduled.remove(key, self.get());
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        // otherwise silently kept in the future
+        LOGGER.warn("Error running scheduled SonarLint task", e);
+      }
+    };
+    scheduled.compute(key, (k, previous) -> {
+      if (previous != null) {
+        previous.cancel(false);
+      }
+      ScheduledFuture<?> future = executor.schedule(wrapper, delayMs, TimeUnit.MILLISECONDS);
+      self.set(future);
+      return future;
+    });
+  }
+
+  public void cancel(Object key) {
+    ScheduledFuture<?> future = scheduled.remove(key);
+    if (future != null) {
+      future.cancel(false);
+    }
+  }
+
+  boolean isScheduled(Object key) {
+    return scheduled.containsKey(key);
+  }
+
+  @Override
+  public void disposeComponent() {
+    scheduled.clear();
+    executor.shutdownNow();
+  }
+}
@@ -22,9 +22,14 @@ package org.sonarlint.intellij.trigger;
 public enum TriggerType {
   EDITOR_OPEN("Editor open"),
   ACTION("Action"),
+  SCOPE("Scope analysis"),
   COMPILATION("Compilation"),
   EDITOR_CHANGE("Editor change"),
-  BINDING_CHANGE("Binding change");
+  SAVE("Save"),
+  BINDING_CHANGE("Binding change"),
+  BULK_CHANGE("Bulk change"),
+  IDLE("Idle"),
+  BACKGROUND("Background");
 
   private final String name;
 
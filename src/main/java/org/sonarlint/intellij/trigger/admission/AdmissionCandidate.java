@@ -0,0 +1,101 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger.admission;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * File submitted to the checks. Its content is only read if a check needs it, and only the beginning of it.
+ */
+public class AdmissionCandidate {
+  public static final int HEAD_LENGTH = 64 * 1024;
+
+  private final VirtualFile file;
+  @Nullable
+  private final Document document;
+  private final Supplier<VirtualFile> root;
+  private CharSequence head;
+
+  public AdmissionCandidate(VirtualFile file, @Nullable Document document) {
+    this(file, document, () -> null);
+  }
+
+  /**
+   * @param root gives the content root or the base directory of the project containing the file, or null if there is none
+   */
+  public AdmissionCandidate(VirtualFile file, @Nullable Document document, Supplier<VirtualFile> root) {
+    this.file = file;
+    this.document = document;
+    this.root = root;
+  }
+
+  public VirtualFile file() {
+    return file;
+  }
+
+  /**
+   * Content root or base directory of the project containing the file, only looked up if a check needs it
+   */
+  @CheckForNull
+  public VirtualFile root() {
+    return root.get();
+  }
+
+  /**
+   * Length of the content, in characters if the file is opened, in bytes otherwise
+   */
+  public long length() {
+    return document != null ? document.getTextLength() : file.getLength();
+  }
+
+  /**
+   * Up to {@link #HEAD_LENGTH} first characters of the content, including unsaved changes
+   */
+  public CharSequence head() {
+    if (head == null) {
+      head = document != null ? truncate(document.getImmutableCharSequence()) : readHead();
+    }
+    return head;
+  }
+
+  private static CharSequence truncate(CharSequence content) {
+    return content.length() > HEAD_LENGTH ? content.subSequence(0, HEAD_LENGTH) : content;
+  }
+
+  private CharSequence readHead() {
+    byte[] buffer = new byte[HEAD_LENGTH];
+    int read = 0;
+    try (InputStream is = file.getInputStream()) {
+      int n;
+      while (read < buffer.length && (n = is.read(buffer, read, buffer.length - read)) > 0) {
+        read += n;
+      }
+    } catch (IOException e) {
+      // checks will only rely on the metadata of the file
+    }
+    return new String(buffer, 0, read, file.getCharset());
+  }
+}
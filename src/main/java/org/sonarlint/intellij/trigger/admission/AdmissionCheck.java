@@ -0,0 +1,38 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger.admission;
+
+import com.intellij.openapi.extensions.ExtensionPointName;
+import javax.annotation.CheckForNull;
+
+/**
+ * Rejects files that shouldn't be analyzed automatically, because their analysis would be long and useless.
+ * Explicit analyses, triggered by actions, don't go through the checks.
+ */
+public interface AdmissionCheck {
+  // Name is constructed from plugin-id.extension-point-name
+  ExtensionPointName<AdmissionCheck> EP_NAME = ExtensionPointName.create("org.sonarlint.idea.AdmissionCheck");
+
+  /**
+   * @return why the file is rejected, shown in the console, or null if the file can be analyzed
+   */
+  @CheckForNull
+  String reject(AdmissionCandidate candidate);
+}
@@ -0,0 +1,111 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger.admission;
+
+import com.intellij.openapi.components.AbstractProjectComponent;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.sonarlint.intellij.ui.SonarLintConsole;
+
+/**
+ * Decides whether files can be analyzed automatically by running all {@link AdmissionCheck}.
+ * Decisions are kept until the content of the file changes, and rejections are shown in the console once.
+ */
+@ThreadSafe
+public class AdmissionPolicy extends AbstractProjectComponent {
+  private static final int MAX_DECISIONS = 10_000;
+
+  private final SonarLintConsole console;
+  private final FileDocumentManager fileDocumentManager;
+  private final Supplier<AdmissionCheck[]> checks;
+  private final Map<VirtualFile, Decision> decisions = new ConcurrentHashMap<>();
+
+  public AdmissionPolicy(Project project, SonarLintConsole console, FileDocumentManager fileDocumentManager) {
+    this(project, console, fileDocumentManager, AdmissionCheck.EP_NAME::getExtensions);
+  }
+
+  AdmissionPolicy(Project project, SonarLintConsole console, FileDocumentManager fileDocumentManager, Supplier<AdmissionCheck[]> checks) {
+    super(project);
+    this.console = console;
+    this.fileDocumentManager = fileDocumentManager;
+    this.checks = checks;
+  }
+
+  public boolean admit(VirtualFile file) {
+    Document document = fileDocumentManager.getCachedDocument(file);
+    long stamp = document != null ? document.getModificationStamp() : file.getModificationStamp();
+
+    Decision decision = decisions.get(file);
+    if (decision == null || decision.stamp != stamp) {
+      String reason = evaluate(new AdmissionCandidate(file, document, () -> rootOf(file)));
+      if (reason != null && (decision == null || decision.rejection == null)) {
+        console.info("Not automatically analysing '" + file.getName() + "': " + reason + ". It can still be analyzed explicitly.");
+      }
+      if (decisions.size() >= MAX_DECISIONS) {
+        decisions.clear();
+      }
+      decision = new Decision(stamp, reason);
+      decisions.put(file, decision);
+    }
+    return decision.rejection == null;
+  }
+
+  @CheckForNull
+  private VirtualFile rootOf(VirtualFile file) {
+    VirtualFile contentRoot = ProjectRootManager.getInstance(myProject).getFileIndex().getContentRootForFile(file);
+    if (contentRoot != null) {
+      return contentRoot;
+    }
+    VirtualFile baseDir = myProject.getBaseDir();
+    return baseDir != null && VfsUtilCore.isAncestor(baseDir, file, true) ? baseDir : null;
+  }
+
+  @CheckForNull
+  private String evaluate(AdmissionCandidate candidate) {
+    for (AdmissionCheck check : checks.get()) {
+      String reason = check.reject(candidate);
+      if (reason != null) {
+        return reason;
+      }
+    }
+    return null;
+  }
+
+  private static class Decision {
+    private final long stamp;
+    @Nullable
+    private final String rejection;
+
+    private Decision(long stamp, @Nullable String rejection) {
+      this.stamp = stamp;
+      this.rejection = rejection;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger.admission;
+
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+
+/**
+ * Files whose header has one of the conventional markers of generated code: the {@code @generated} tag, or the
+ * {@code // Code generated ... DO NOT EDIT.} line. Looser phrases are also found in the license or documentation of handwritten code.
+ */
+public class GeneratedFileCheck implements AdmissionCheck {
+  static final int HEADER_LENGTH = 1024;
+  private static final String GENERATED_TAG = "@generated";
+  private static final Pattern CODE_GENERATED_LINE = Pattern.compile("^// Code generated .* DO NOT EDIT\\.$", Pattern.MULTILINE);
+
+  @CheckForNull
+  @Override
+  public String reject(AdmissionCandidate candidate) {
+    CharSequence head = candidate.head();
+    String header = head.subSequence(0, Math.min(HEADER_LENGTH, head.length())).toString();
+    if (header.contains(GENERATED_TAG)) {
+      return "file header says it is generated ('" + GENERATED_TAG + "')";
+    }
+    if (CODE_GENERATED_LINE.matcher(header).find()) {
+      return "file header says it is generated ('Code generated ... DO NOT EDIT.')";
+    }
+    return null;
+  }
+}
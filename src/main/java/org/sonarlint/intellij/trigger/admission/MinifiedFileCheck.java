@@ -0,0 +1,57 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger.admission;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Minified files have very long lines. A single long line, such as embedded data, is not enough: lines must also be long on average.
+ */
+public class MinifiedFileCheck implements AdmissionCheck {
+  static final int MAX_LINE_LENGTH = 1000;
+  static final int MAX_AVERAGE_LINE_LENGTH = 200;
+
+  @CheckForNull
+  @Override
+  public String reject(AdmissionCandidate candidate) {
+    String name = candidate.file().getName();
+    if (name.endsWith(".min.js") || name.endsWith(".min.css")) {
+      return "file is minified";
+    }
+
+    CharSequence head = candidate.head();
+    int lines = 1;
+    int longest = 0;
+    int lineStart = 0;
+    for (int i = 0; i < head.length(); i++) {
+      if (head.charAt(i) == '\n') {
+        longest = Math.max(longest, i - lineStart);
+        lineStart = i + 1;
+        lines++;
+      }
+    }
+    longest = Math.max(longest, head.length() - lineStart);
+
+    if (longest > MAX_LINE_LENGTH && head.length() / lines > MAX_AVERAGE_LINE_LENGTH) {
+      return "file looks minified, with lines of up to " + longest + " characters";
+    }
+    return null;
+  }
+}
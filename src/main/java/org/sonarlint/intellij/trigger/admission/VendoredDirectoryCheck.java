@@ -0,0 +1,49 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger.admission;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+
+/**
+ * Third-party code copied in the project by package managers. Only the directories inside the project are considered, the
+ * project itself might be in a vendored directory.
+ */
+public class VendoredDirectoryCheck implements AdmissionCheck {
+  static final Set<String> VENDORED_DIRS = new HashSet<>(Arrays.asList("node_modules", "bower_components", "vendor"));
+
+  @CheckForNull
+  @Override
+  public String reject(AdmissionCandidate candidate) {
+    VirtualFile root = candidate.root();
+    if (root == null) {
+      return null;
+    }
+    for (VirtualFile dir = candidate.file().getParent(); dir != null && !dir.equals(root); dir = dir.getParent()) {
+      if (VENDORED_DIRS.contains(dir.getName())) {
+        return "file is in the vendored directory '" + dir.getName() + "'";
+      }
+    }
+    return null;
+  }
+}
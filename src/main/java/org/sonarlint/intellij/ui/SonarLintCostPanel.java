@@ -0,0 +1,159 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.ui;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.JBSplitter;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import java.awt.BorderLayout;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.BorderFactory;
+import javax.swing.JPanel;
+import javax.swing.table.AbstractTableModel;
+import org.sonarlint.intellij.analysis.AnalysisCostProfile;
+import org.sonarlint.intellij.analysis.SonarLintJob;
+import org.sonarlint.intellij.messages.TaskListener;
+import org.sonarlint.intellij.util.SonarLintUtils;
+
+/**
+ * Shows the files and the file extensions that take the longest to analyze, refreshed after each analysis.
+ */
+public class SonarLintCostPanel extends JPanel {
+  private static final int MAX_ROWS = 50;
+
+  private final AnalysisCostProfile costProfile;
+  private final CostTableModel filesModel = new CostTableModel("File", true);
+  private final CostTableModel extensionsModel = new CostTableModel("Extension", false);
+
+  public SonarLintCostPanel(Project project) {
+    super(new BorderLayout());
+    this.costProfile = SonarLintUtils.get(project, AnalysisCostProfile.class);
+
+    JBSplitter splitter = new JBSplitter(false, 0.7f);
+    splitter.setFirstComponent(createTable(filesModel, "Slowest files", "No file analyzed yet"));
+    splitter.setSecondComponent(createTable(extensionsModel, "Slowest extensions", "No file analyzed yet"));
+    add(splitter, BorderLayout.CENTER);
+    refresh();
+
+    project.getMessageBus().connect(project).subscribe(TaskListener.SONARLINT_TASK_TOPIC, new TaskListener() {
+      @Override public void started(SonarLintJob job) {
+        // nothing to do
+      }
+
+      @Override public void ended(SonarLintJob job) {
+        ApplicationManager.getApplication().invokeLater(SonarLintCostPanel.this::refresh);
+      }
+    });
+  }
+
+  private static JPanel createTable(CostTableModel model, String title, String emptyText) {
+    JBTable table = new JBTable(model);
+    table.getEmptyText().setText(emptyText);
+    JPanel panel = new JPanel(new BorderLayout());
+    panel.setBorder(BorderFactory.createTitledBorder(title));
+    panel.add(new JBScrollPane(table), BorderLayout.CENTER);
+    return panel;
+  }
+
+  private void refresh() {
+    filesModel.setRows(costProfile.slowestFiles(MAX_ROWS));
+    extensionsModel.setRows(costProfile.slowestExtensions(MAX_ROWS));
+  }
+
+  private static class CostTableModel extends AbstractTableModel {
+    private final String nameColumn;
+    private final boolean showDemoted;
+    private List<AnalysisCostProfile.Cost> rows = new ArrayList<>();
+
+    CostTableModel(String nameColumn, boolean showDemoted) {
+      this.nameColumn = nameColumn;
+      this.showDemoted = showDemoted;
+    }
+
+    void setRows(List<AnalysisCostProfile.Cost> rows) {
+      this.rows = rows;
+      fireTableDataChanged();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+      switch (column) {
+        case 0:
+          return nameColumn;
+        case 1:
+          return "Analyses";
+        case 2:
+          return "Recent average (ms)";
+        case 3:
+          return "Max (ms)";
+        case 4:
+          return "Only on save";
+        default:
+          return super.getColumnName(column);
+      }
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+      switch (columnIndex) {
+        case 0:
+          return String.class;
+        case 1:
+          return Integer.class;
+        case 4:
+          return Boolean.class;
+        default:
+          return Long.class;
+      }
+    }
+
+    @Override
+    public int getRowCount() {
+      return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return showDemoted ? 5 : 4;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+      AnalysisCostProfile.Cost cost = rows.get(rowIndex);
+      switch (columnIndex) {
+        case 0:
+          return cost.name();
+        case 1:
+          return cost.analyses();
+        case 2:
+          return cost.averageMs();
+        case 3:
+          return cost.maxMs();
+        case 4:
+          return cost.demoted();
+        default:
+          return null;
+      }
+    }
+  }
+}
@@ -69,7 +69,9 @@ import org.sonarlint.intellij.ui.nodes.AbstractNode;
 import org.sonarlint.intellij.ui.nodes.IssueNode;
 import org.sonarlint.intellij.ui.scope.CurrentFileScope;
 import org.sonarlint.intellij.ui.scope.AbstractScope;
+import org.sonarlint.intellij.ui.scope.DirectoryScope;
 import org.sonarlint.intellij.ui.scope.OpenedFilesScope;
+import org.sonarlint.intellij.ui.scope.ProjectScope;
 import org.sonarlint.intellij.ui.tree.IssueTree;
 import org.sonarlint.intellij.ui.tree.TreeModelBuilder;
 import org.sonarlint.intellij.util.SonarLintUtils;
@@ -158,6 +160,8 @@ public class SonarLintIssuesPanel extends SimpleToolWindowPanel implements Occur
     DefaultComboBoxModel comboModel = new DefaultComboBoxModel();
     comboModel.addElement(new CurrentFileScope(project));
     comboModel.addElement(new OpenedFilesScope(project));
+    comboModel.addElement(new DirectoryScope(project));
+    comboModel.addElement(new ProjectScope(project));
 
     // set selected element that was last saved, if any
     String savedSelectedScope = PropertiesComponent.getInstance(project).getValue(SELECTED_SCOPE_KEY);
@@ -30,6 +30,7 @@ public class SonarLintToolWindowFactory implements ToolWindowFactory {
   public void createToolWindowContent(Project project, ToolWindow toolWindow) {
     addIssuesTab(project, toolWindow);
     addLogTab(project, toolWindow);
+    addCostTab(project, toolWindow);
     toolWindow.setType(ToolWindowType.DOCKED, null);
   }
 
@@ -51,4 +52,12 @@ public class SonarLintToolWindowFactory implements ToolWindowFactory {
       false);
     toolWindow.getContentManager().addContent(toolContent);
   }
+
+  private static void addCostTab(Project project, ToolWindow toolWindow) {
+    Content costContent = toolWindow.getContentManager().getFactory().createContent(
+      new SonarLintCostPanel(project),
+      "Analysis Cost",
+      false);
+    toolWindow.getContentManager().addContent(costContent);
+  }
 }
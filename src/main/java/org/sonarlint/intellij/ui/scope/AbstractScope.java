@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
 
 public abstract class AbstractScope {
   public static final DataKey<AbstractScope> SCOPE_DATA_KEY = DataKey.create("SonarLintScope");
@@ -47,6 +48,15 @@ public abstract class AbstractScope {
 
   public abstract Collection<VirtualFile> getAll();
 
+  /**
+   * Scopes that can contain many files are analyzed with a pipeline that can resume an interrupted analysis.
+   * @return the key of the checkpoint of the scope, or null if the scope is analyzed as regular jobs
+   */
+  @CheckForNull
+  public String getCheckpointKey() {
+    return null;
+  }
+
   protected void updateCondition(Predicate<VirtualFile> filePredicate) {
     this.filePredicate = filePredicate;
     listeners.forEach(ScopeListener::conditionChanged);
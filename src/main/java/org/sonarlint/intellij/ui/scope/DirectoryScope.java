@@ -0,0 +1,97 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.ui.scope;
+
+import com.intellij.openapi.fileEditor.FileEditorManagerAdapter;
+import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import org.jetbrains.annotations.NotNull;
+import org.sonarlint.intellij.util.SonarLintUtils;
+
+/**
+ * Files in the directory of the selected file, and in its sub-directories.
+ */
+public class DirectoryScope extends AbstractScope {
+  private final Project project;
+
+  public DirectoryScope(Project project) {
+    this.project = project;
+    project.getMessageBus().connect(project).subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, new FileEditorManagerAdapter() {
+      @Override
+      public void selectionChanged(@NotNull FileEditorManagerEvent event) {
+        refreshCondition();
+      }
+    });
+    refreshCondition();
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "Directory";
+  }
+
+  private void refreshCondition() {
+    VirtualFile dir = getDirectory();
+    if (dir == null) {
+      updateCondition(f -> false);
+    } else {
+      updateCondition(f -> VfsUtilCore.isAncestor(dir, f, false));
+    }
+  }
+
+  @CheckForNull
+  private VirtualFile getDirectory() {
+    VirtualFile selectedFile = SonarLintUtils.getSelectedFile(project);
+    return selectedFile != null ? selectedFile.getParent() : null;
+  }
+
+  @Override
+  public Collection<VirtualFile> getAll() {
+    VirtualFile dir = getDirectory();
+    if (dir == null) {
+      return Collections.emptyList();
+    }
+    ProjectFileIndex fileIndex = ProjectRootManager.getInstance(project).getFileIndex();
+    List<VirtualFile> files = new ArrayList<>();
+    fileIndex.iterateContentUnderDirectory(dir, f -> {
+      if (!f.isDirectory()) {
+        files.add(f);
+      }
+      return true;
+    });
+    return files;
+  }
+
+  @Override
+  public String getCheckpointKey() {
+    VirtualFile dir = getDirectory();
+    return "dir-" + Integer.toHexString(dir != null ? dir.getPath().hashCode() : 0);
+  }
+}
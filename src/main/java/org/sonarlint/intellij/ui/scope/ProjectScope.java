@@ -0,0 +1,63 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.ui.scope;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class ProjectScope extends AbstractScope {
+  private final Project project;
+
+  public ProjectScope(Project project) {
+    this.project = project;
+    updateCondition(f -> getFileIndex().isInContent(f));
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "Project";
+  }
+
+  @Override
+  public Collection<VirtualFile> getAll() {
+    List<VirtualFile> files = new ArrayList<>();
+    getFileIndex().iterateContent(f -> {
+      if (!f.isDirectory()) {
+        files.add(f);
+      }
+      return true;
+    });
+    return files;
+  }
+
+  @Override
+  public String getCheckpointKey() {
+    return "project";
+  }
+
+  private ProjectFileIndex getFileIndex() {
+    return ProjectRootManager.getInstance(project).getFileIndex();
+  }
+}
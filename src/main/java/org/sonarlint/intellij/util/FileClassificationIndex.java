@@ -0,0 +1,213 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.util;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.AbstractProjectComponent;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ContentEntry;
+import com.intellij.openapi.roots.ModuleRootAdapter;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.SourceFolder;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Answers to which module a file belongs and what kind of root contains it, by walking the segments of its path in a trie
+ * of the content, source, resource, generated and excluded roots of all modules.
+ * The trie is built on first use and rebuilt after the roots of the project change.
+ */
+@ThreadSafe
+public class FileClassificationIndex extends AbstractProjectComponent {
+  public enum Kind {
+    /**
+     * Not in the content of any module
+     */
+    NONE,
+    /**
+     * In a content root, but not in a source root
+     */
+    CONTENT,
+    SOURCE,
+    RESOURCE,
+    GENERATED,
+    EXCLUDED
+  }
+
+  private volatile Node root;
+  private volatile long version = 0;
+
+  public FileClassificationIndex(Project project) {
+    super(project);
+    project.getMessageBus().connect(project).subscribe(ModuleRootListener.TOPIC, new ModuleRootAdapter() {
+      @Override public void rootsChanged(ModuleRootEvent event) {
+        invalidate();
+      }
+    });
+  }
+
+  public synchronized void invalidate() {
+    version++;
+    root = null;
+  }
+
+  public Classification classify(VirtualFile file) {
+    Node node = getRoot();
+    Classification found = Classification.NONE;
+    for (String segment : segments(file.getPath())) {
+      node = node.children != null ? node.children.get(segment) : null;
+      if (node == null) {
+        break;
+      }
+      if (node.classification != null) {
+        found = node.classification;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Like {@link com.intellij.openapi.roots.ProjectFileIndex#getModuleForFile(VirtualFile)}, excluded files don't belong to any module
+   */
+  @CheckForNull
+  public Module getModule(VirtualFile file) {
+    Classification c = classify(file);
+    return c.kind() != Kind.EXCLUDED ? c.module() : null;
+  }
+
+  private Node getRoot() {
+    Node r = root;
+    if (r != null) {
+      return r;
+    }
+    long v = version;
+    r = build();
+    synchronized (this) {
+      // roots changed while building it
+      if (v == version) {
+        root = r;
+      }
+    }
+    return r;
+  }
+
+  private Node build() {
+    return ApplicationManager.getApplication().runReadAction((Computable<Node>) this::readRoots);
+  }
+
+  private Node readRoots() {
+    Node r = new Node();
+    for (Module module : ModuleManager.getInstance(myProject).getModules()) {
+      if (module.isDisposed()) {
+        continue;
+      }
+      // more specific roots are added last, replacing the classification of a root at the same path
+      for (ContentEntry entry : ModuleRootManager.getInstance(module).getContentEntries()) {
+        VirtualFile contentRoot = entry.getFile();
+        if (contentRoot != null) {
+          r.add(contentRoot.getPath(), new Classification(module, Kind.CONTENT, false));
+        }
+        for (SourceFolder sourceFolder : entry.getSourceFolders()) {
+          VirtualFile sourceRoot = sourceFolder.getFile();
+          if (sourceRoot != null && !sourceFolder.isSynthetic()) {
+            r.add(sourceRoot.getPath(), new Classification(module, kindOf(sourceFolder), sourceFolder.isTestSource()));
+          }
+        }
+        for (VirtualFile excluded : entry.getExcludeFolderFiles()) {
+          r.add(excluded.getPath(), new Classification(module, Kind.EXCLUDED, false));
+        }
+      }
+    }
+    return r;
+  }
+
+  private static Kind kindOf(SourceFolder sourceFolder) {
+    if (SonarLintUtils.isJavaResource(sourceFolder)) {
+      return Kind.RESOURCE;
+    } else if (SonarLintUtils.isJavaGeneratedSource(sourceFolder)) {
+      return Kind.GENERATED;
+    }
+    return Kind.SOURCE;
+  }
+
+  private static String[] segments(String path) {
+    return path.split("/");
+  }
+
+  private static class Node {
+    @Nullable
+    private Map<String, Node> children;
+    @Nullable
+    private Classification classification;
+
+    private void add(String path, Classification c) {
+      Node node = this;
+      for (String segment : segments(path)) {
+        if (node.children == null) {
+          node.children = new HashMap<>();
+        }
+        node = node.children.computeIfAbsent(segment, s -> new Node());
+      }
+      node.classification = c;
+    }
+  }
+
+  @Immutable
+  public static class Classification {
+    public static final Classification NONE = new Classification(null, Kind.NONE, false);
+
+    @Nullable
+    private final Module module;
+    private final Kind kind;
+    private final boolean test;
+
+    Classification(@Nullable Module module, Kind kind, boolean test) {
+      this.module = module;
+      this.kind = kind;
+      this.test = test;
+    }
+
+    @CheckForNull
+    public Module module() {
+      return module;
+    }
+
+    public Kind kind() {
+      return kind;
+    }
+
+    /**
+     * Whether the file is in a test source or test resource root
+     */
+    public boolean isTest() {
+      return test;
+    }
+  }
+}
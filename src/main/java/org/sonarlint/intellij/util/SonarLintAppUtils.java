@@ -19,20 +19,40 @@
  */
 package org.sonarlint.intellij.util;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.ApplicationComponent;
 import com.intellij.openapi.module.Module;
-import com.intellij.openapi.module.ModuleUtil;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectLocator;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.project.ProjectManagerAdapter;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.containers.ContainerUtil;
+import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 public class SonarLintAppUtils extends ApplicationComponent.Adapter {
+  // guessing the project is called for every document change, and is costly with several projects opened
+  private final Map<VirtualFile, Project> projectCache = ContainerUtil.createConcurrentWeakMap();
+
   protected SonarLintAppUtils() {
     super();
   }
 
+  @Override
+  public void initComponent() {
+    ApplicationManager.getApplication().getMessageBus().connect().subscribe(ProjectManager.TOPIC, new ProjectManagerAdapter() {
+      @Override public void projectOpened(Project project) {
+        projectCache.clear();
+      }
+
+      @Override public void projectClosed(Project project) {
+        projectCache.clear();
+      }
+    });
+  }
+
   public boolean shouldAnalyzeAutomatically(@Nullable VirtualFile file, @Nullable Module module) {
     return SonarLintUtils.shouldAnalyzeAutomatically(file, module);
   }
@@ -43,7 +63,7 @@ public class SonarLintAppUtils extends ApplicationComponent.Adapter {
 
   @CheckForNull
   public Module findModuleForFile(VirtualFile file, Project project) {
-    return ModuleUtil.findModuleForFile(file, project);
+    return SonarLintUtils.get(project, FileClassificationIndex.class).getModule(file);
   }
 
   @CheckForNull
@@ -53,6 +73,14 @@ public class SonarLintAppUtils extends ApplicationComponent.Adapter {
 
   @CheckForNull
   public Project guessProjectForFile(VirtualFile file) {
-    return ProjectLocator.getInstance().guessProjectForFile(file);
+    Project project = projectCache.get(file);
+    if (project != null && !project.isDisposed()) {
+      return project;
+    }
+    project = ProjectLocator.getInstance().guessProjectForFile(file);
+    if (project != null) {
+      projectCache.put(file, project);
+    }
+    return project;
   }
 }
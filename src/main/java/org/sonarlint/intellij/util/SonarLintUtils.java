@@ -20,7 +20,6 @@
 package org.sonarlint.intellij.util;
 
 import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.components.ComponentManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
@@ -29,8 +28,6 @@ import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ContentEntry;
-import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.roots.SourceFolder;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VfsUtil;
@@ -43,7 +40,6 @@ import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.URI;
 import java.nio.file.Paths;
-import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -53,6 +49,8 @@ import org.jetbrains.jps.model.java.JavaModuleSourceRootTypes;
 import org.jetbrains.jps.model.java.JavaSourceRootProperties;
 import org.sonarlint.intellij.SonarApplication;
 import org.sonarlint.intellij.config.global.SonarQubeServer;
+import org.sonarlint.intellij.core.LanguageRegistry;
+import org.sonarlint.intellij.trigger.admission.AdmissionPolicy;
 import org.sonarlint.intellij.ui.SonarLintConsole;
 import org.sonarsource.sonarlint.core.client.api.connected.ServerConfiguration;
 
@@ -87,22 +85,6 @@ public class SonarLintUtils {
     return get(ApplicationManager.getApplication(), clazz);
   }
 
-  /**
-   * Must be called from EDT
-   */
-  public static boolean saveFiles(final Collection<VirtualFile> virtualFiles) {
-    boolean[] success = new boolean[] {true};
-
-    ApplicationManager.getApplication().runWriteAction(() -> {
-      for (VirtualFile file : virtualFiles) {
-        if (!saveFile(file)) {
-          success[0] = false;
-        }
-      }
-    });
-    return success[0];
-  }
-
   /**
    * FileEditorManager#getSelectedFiles does not work as expected. In split editors, the order of the files does not change depending
    * on which one of the split editors is selected.
@@ -122,64 +104,36 @@ public class SonarLintUtils {
     return null;
   }
 
-  private static boolean saveFile(final VirtualFile virtualFile) {
-    final FileDocumentManager fileDocumentManager = FileDocumentManager.getInstance();
-    if (fileDocumentManager.isFileModified(virtualFile)) {
-      final Document document = fileDocumentManager.getDocument(virtualFile);
-      if (document != null) {
-        ApplicationManager.getApplication().invokeAndWait(() -> fileDocumentManager.saveDocument(document), ModalityState.any());
-        return true;
-      }
-    }
-    return false;
-  }
-
+  /**
+   * Files that can be analyzed might still be rejected by the {@link AdmissionPolicy}, so that their analysis is only done explicitly.
+   */
   public static boolean shouldAnalyzeAutomatically(VirtualFile file, @Nullable Module module) {
     if (!shouldAnalyze(file, module) || module == null) {
       return false;
     }
 
     // file and module not null here
-    ModuleRootManager moduleRootManager = ModuleRootManager.getInstance(module);
-    ContentEntry[] entries = moduleRootManager.getContentEntries();
+    return isAnalyzedAutomatically(file, module) && get(module.getProject(), AdmissionPolicy.class).admit(file);
+  }
 
-    for (ContentEntry e : entries) {
-      if (isExcludedOrUnderExcludedDirectory(file, e)) {
+  private static boolean isAnalyzedAutomatically(VirtualFile file, Module module) {
+    FileClassificationIndex.Classification classification = get(module.getProject(), FileClassificationIndex.class).classify(file);
+    switch (classification.kind()) {
+      case EXCLUDED:
         SonarLintConsole.get(module.getProject()).debug("Not automatically analysing excluded file: " + file.getName());
         return false;
-      }
-
-      SourceFolder[] sourceFolders = e.getSourceFolders();
-      for (SourceFolder sourceFolder : sourceFolders) {
-        if (sourceFolder.getFile() == null || sourceFolder.isSynthetic()) {
-          continue;
-        }
-
-        if (VfsUtil.isAncestor(sourceFolder.getFile(), file, false)) {
-          if (isJavaResource(sourceFolder)) {
-            SonarLintConsole.get(module.getProject()).debug("Not automatically analysing file under resources: " + file.getName());
-            return false;
-          } else if (isJavaGeneratedSource(sourceFolder)) {
-            SonarLintConsole.get(module.getProject()).debug("Not automatically analysing file belonging to generated source folder: " + file.getName());
-            return false;
-          }
-
-          return true;
-        }
-      }
-    }
-
-    // java must be in a source root. For other files, we always analyse them.
-    return !"java".equalsIgnoreCase(file.getFileType().getDefaultExtension());
-  }
-
-  public static boolean isExcludedOrUnderExcludedDirectory(final VirtualFile file, ContentEntry contentEntry) {
-    for (VirtualFile excludedDir : contentEntry.getExcludeFolderFiles()) {
-      if (VfsUtil.isAncestor(excludedDir, file, false)) {
+      case RESOURCE:
+        SonarLintConsole.get(module.getProject()).debug("Not automatically analysing file under resources: " + file.getName());
+        return false;
+      case GENERATED:
+        SonarLintConsole.get(module.getProject()).debug("Not automatically analysing file belonging to generated source folder: " + file.getName());
+        return false;
+      case SOURCE:
         return true;
-      }
+      default:
+        // java must be in a source root. For other files, we always analyse them.
+        return !"java".equalsIgnoreCase(file.getFileType().getDefaultExtension());
     }
-    return false;
   }
 
   public static boolean shouldAnalyze(VirtualFile file, @Nullable Module module) {
@@ -201,7 +155,8 @@ public class SonarLintUtils {
       return false;
     }
 
-    return true;
+    // an analysis of a file that no analyzer handles still sets up all sensors
+    return get(LanguageRegistry.class).isSupported(file, module.getProject());
   }
 
   public static void configureProxy(String host, ServerConfiguration.Builder builder) {
@@ -21,6 +21,8 @@ package org.sonarlint.intellij.actions;
 
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VirtualFile;
 import java.util.Collections;
 import org.junit.Before;
@@ -36,6 +38,7 @@ import org.sonarlint.intellij.ui.scope.AbstractScope;
 import org.sonarlint.intellij.util.SonarLintAppUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -59,8 +62,10 @@ public class SonarAnalyzeScopeActionTest extends SonarTest{
     super.register(app, SonarLintAppUtils.class, utils);
     super.register(SonarLintJobManager.class, jobManager);
     super.register(SonarLintConsole.class, console);
+    when(app.runReadAction(any(Computable.class))).thenAnswer(i -> ((Computable) i.getArguments()[0]).compute());
 
-    analyzeAction = new SonarAnalyzeScopeAction();
+    // runs the analysis of the scope right away
+    analyzeAction = new SonarAnalyzeScopeAction(task -> task.run(mock(ProgressIndicator.class)));
     event = mock(AnActionEvent.class);
     when(event.getProject()).thenReturn(project);
   }
@@ -68,6 +73,7 @@ public class SonarAnalyzeScopeActionTest extends SonarTest{
   @Test
   public void should_trigger() {
     VirtualFile f1 = mock(VirtualFile.class);
+    when(f1.isValid()).thenReturn(true);
     Module m1 = mock(Module.class);
     AbstractScope scope = mock(AbstractScope.class);
     when(event.getData(AbstractScope.SCOPE_DATA_KEY)).thenReturn(scope);
@@ -76,7 +82,22 @@ public class SonarAnalyzeScopeActionTest extends SonarTest{
     when(utils.shouldAnalyze(f1, m1)).thenReturn(true);
 
     analyzeAction.actionPerformed(event);
-    verify(jobManager).submit(m1, Collections.singleton(f1), TriggerType.ACTION);
+    verify(jobManager).submit(Collections.singletonMap(m1, Collections.singletonList(f1)), TriggerType.ACTION);
+  }
+
+  @Test
+  public void should_not_analyze_if_check_fails() {
+    VirtualFile f1 = mock(VirtualFile.class);
+    when(f1.isValid()).thenReturn(true);
+    Module m1 = mock(Module.class);
+    AbstractScope scope = mock(AbstractScope.class);
+    when(event.getData(AbstractScope.SCOPE_DATA_KEY)).thenReturn(scope);
+    when(scope.getAll()).thenReturn(Collections.singleton(f1));
+    when(utils.findModuleForFile(f1, project)).thenReturn(m1);
+    when(utils.shouldAnalyze(f1, m1)).thenReturn(false);
+
+    analyzeAction.actionPerformed(event);
+    verifyZeroInteractions(jobManager);
   }
 
   @Test
@@ -112,18 +133,4 @@ public class SonarAnalyzeScopeActionTest extends SonarTest{
     when(status.isRunning()).thenReturn(false);
     assertThat(analyzeAction.isEnabled(project, status)).isTrue();
   }
-
-  @Test
-  public void should_not_analyze_if_check_fails() {
-    VirtualFile f1 = mock(VirtualFile.class);
-    Module m1 = mock(Module.class);
-    AbstractScope scope = mock(AbstractScope.class);
-    when(event.getData(AbstractScope.SCOPE_DATA_KEY)).thenReturn(scope);
-    when(scope.getAll()).thenReturn(Collections.singleton(f1));
-    when(utils.findModuleForFile(f1, project)).thenReturn(m1);
-    when(utils.shouldAnalyze(f1, m1)).thenReturn(false);
-
-    analyzeAction.actionPerformed(event);
-    verifyZeroInteractions(jobManager);
-  }
 }
@@ -0,0 +1,76 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AnalysisCheckpointTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_resume() throws Exception {
+    Path path = temp.getRoot().toPath().resolve("checkpoints").resolve("project");
+    VirtualFile f1 = file("/src/File 1.java", 10);
+    VirtualFile f2 = file("/src/File2.java", 20);
+
+    AnalysisCheckpoint checkpoint = AnalysisCheckpoint.open(path);
+    assertThat(checkpoint.isDone(f1)).isFalse();
+    checkpoint.done(Arrays.asList(f1, f2));
+    assertThat(checkpoint.isDone(f1)).isTrue();
+
+    checkpoint = AnalysisCheckpoint.open(path);
+    assertThat(checkpoint.size()).isEqualTo(2);
+    assertThat(checkpoint.isDone(f1)).isTrue();
+
+    // modified since
+    when(f2.getTimeStamp()).thenReturn(21L);
+    assertThat(checkpoint.isDone(f2)).isFalse();
+  }
+
+  @Test
+  public void should_delete() {
+    Path path = temp.getRoot().toPath().resolve("project");
+    VirtualFile f1 = file("/src/File1.java", 10);
+
+    AnalysisCheckpoint checkpoint = AnalysisCheckpoint.open(path);
+    checkpoint.done(Arrays.asList(f1));
+    checkpoint.delete();
+
+    assertThat(path).doesNotExist();
+    assertThat(AnalysisCheckpoint.open(path).isDone(f1)).isFalse();
+  }
+
+  private static VirtualFile file(String path, long timestamp) {
+    VirtualFile f = mock(VirtualFile.class);
+    when(f.getPath()).thenReturn(path);
+    when(f.getTimeStamp()).thenReturn(timestamp);
+    return f;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.intellij.SonarTest;
+import org.sonarlint.intellij.ui.SonarLintConsole;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AnalysisCostProfileTest extends SonarTest {
+  private AnalysisCostProfile profile;
+  private VirtualFile slow;
+  private VirtualFile fast;
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    when(project.getBasePath()).thenReturn("/project");
+    profile = new AnalysisCostProfile(project, mock(SonarLintConsole.class));
+    slow = createFile("Slow.java", "java");
+    fast = createFile("fast.js", "js");
+  }
+
+  @Test
+  public void testSlowestFilesAndExtensions() {
+    profile.record(Collections.singleton(slow), 900);
+    profile.record(Collections.singleton(slow), 1100);
+    profile.record(Arrays.asList(slow, fast), 200);
+
+    List<AnalysisCostProfile.Cost> files = profile.slowestFiles(10);
+    assertThat(files).extracting(AnalysisCostProfile.Cost::name).containsExactly("Slow.java", "fast.js");
+    assertThat(files.get(0).analyses()).isEqualTo(3);
+    assertThat(files.get(0).averageMs()).isEqualTo(700);
+    assertThat(files.get(0).maxMs()).isEqualTo(1100);
+    assertThat(files.get(1).averageMs()).isEqualTo(100);
+
+    assertThat(profile.slowestExtensions(1)).extracting(AnalysisCostProfile.Cost::name).containsExactly("java");
+    assertThat(profile.slowestExtensions(10)).hasSize(2);
+  }
+
+  @Test
+  public void testAverageOfRecentAnalyses() {
+    profile.record(Collections.singleton(fast), 10_000);
+    for (int i = 0; i < AnalysisCostProfile.WINDOW; i++) {
+      profile.record(Collections.singleton(fast), 100);
+    }
+    AnalysisCostProfile.Cost cost = profile.slowestFiles(1).get(0);
+    assertThat(cost.averageMs()).isEqualTo(100);
+    assertThat(cost.maxMs()).isEqualTo(10_000);
+  }
+
+  @Test
+  public void testDemoteAndPromote() {
+    for (int i = 0; i < AnalysisCostProfile.DEMOTION_STRIKES - 1; i++) {
+      profile.record(Collections.singleton(slow), AnalysisCostProfile.BUDGET_MS + 1);
+    }
+    assertThat(profile.isDemoted(slow)).isFalse();
+
+    // analyses of several files are not accurate enough
+    profile.record(Arrays.asList(slow, fast), 10 * AnalysisCostProfile.BUDGET_MS);
+    assertThat(profile.isDemoted(slow)).isFalse();
+
+    profile.record(Collections.singleton(slow), AnalysisCostProfile.BUDGET_MS + 1);
+    assertThat(profile.isDemoted(slow)).isTrue();
+    assertThat(profile.isDemoted(fast)).isFalse();
+    assertThat(profile.slowestFiles(1).get(0).demoted()).isTrue();
+
+    profile.record(Collections.singleton(slow), 10);
+    assertThat(profile.isDemoted(slow)).isFalse();
+  }
+
+  @Test
+  public void testForgetFilesBeyondLimit() {
+    for (int i = 0; i <= AnalysisCostProfile.MAX_FILES; i++) {
+      profile.record(Collections.singleton(createFile("f" + i + ".java", "java")), 10);
+    }
+    assertThat(profile.slowestFiles(2 * AnalysisCostProfile.MAX_FILES)).hasSize(AnalysisCostProfile.MAX_FILES);
+
+    profile.clear();
+    assertThat(profile.slowestFiles(10)).isEmpty();
+    assertThat(profile.slowestExtensions(10)).isEmpty();
+  }
+
+  private static VirtualFile createFile(String name, String extension) {
+    VirtualFile file = mock(VirtualFile.class);
+    when(file.getName()).thenReturn(name);
+    when(file.getExtension()).thenReturn(extension);
+    when(file.getPath()).thenReturn("/project/" + name);
+    return file;
+  }
+}
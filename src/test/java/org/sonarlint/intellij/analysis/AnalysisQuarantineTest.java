@@ -0,0 +1,108 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.intellij.SonarTest;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.ui.SonarLintConsole;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AnalysisQuarantineTest extends SonarTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  private SonarLintGlobalSettings settings;
+  private AnalysisQuarantine quarantine;
+  private VirtualFile file;
+  private DefaultInputFile inputFile;
+
+  @Before
+  public void setUp() throws IOException {
+    super.setUp();
+    settings = new SonarLintGlobalSettings();
+    quarantine = new AnalysisQuarantine(project, settings, mock(SonarLintConsole.class));
+    File f = temp.newFile();
+    file = mock(VirtualFile.class);
+    when(file.getPath()).thenReturn(f.getAbsolutePath());
+    inputFile = new DefaultInputFile(file, false, UTF_8);
+  }
+
+  @Test
+  public void testBudget() {
+    settings.setAnalysisTimeBudgetSec(30);
+    assertThat(quarantine.budgetMs(1)).isEqualTo(30_000);
+    assertThat(quarantine.budgetMs(4)).isEqualTo(120_000);
+
+    settings.setAnalysisTimeBudgetSec(0);
+    assertThat(quarantine.budgetMs(4)).isZero();
+  }
+
+  @Test
+  public void testReleaseWhenContentChanges() throws IOException {
+    setContent("while(true)");
+    assertThat(quarantine.isQuarantined(file, inputFile)).isFalse();
+
+    quarantine.quarantine(file, inputFile);
+    setContent("while(true)");
+    assertThat(quarantine.isQuarantined(file, inputFile)).isTrue();
+
+    setContent("while(false)");
+    assertThat(quarantine.isQuarantined(file, inputFile)).isFalse();
+    setContent("while(true)");
+    assertThat(quarantine.isQuarantined(file, inputFile)).isFalse();
+  }
+
+  @Test
+  public void testSuspects() throws IOException {
+    VirtualFile other = mock(VirtualFile.class);
+    quarantine.suspect(Arrays.asList(file, other));
+    assertThat(quarantine.isSuspect(file)).isTrue();
+
+    quarantine.cleared(Collections.singleton(other));
+    assertThat(quarantine.isSuspect(other)).isFalse();
+
+    setContent("content");
+    quarantine.quarantine(file, inputFile);
+    assertThat(quarantine.isSuspect(file)).isFalse();
+    setContent("content");
+    assertThat(quarantine.isQuarantined(file, inputFile)).isTrue();
+
+    quarantine.clear();
+    setContent("content");
+    assertThat(quarantine.isQuarantined(file, inputFile)).isFalse();
+  }
+
+  private void setContent(String content) throws IOException {
+    Files.write(inputFile.getPath(), content.getBytes(UTF_8));
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueLocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AnalysisResultCacheTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Project project;
+  private Path cachePath;
+  private AnalysisResultCache cache;
+  private VirtualFile file;
+  private DefaultInputFile inputFile;
+
+  @Before
+  public void setUp() throws IOException {
+    project = mock(Project.class);
+    when(project.getBasePath()).thenReturn(temp.getRoot().getAbsolutePath());
+    cachePath = temp.newFolder("cache").toPath();
+    cache = new AnalysisResultCache(project, cachePath);
+
+    File f = temp.newFile("Foo.java");
+    Files.write(f.toPath(), "class Foo {}".getBytes(StandardCharsets.UTF_8));
+    file = mock(VirtualFile.class);
+    when(file.getPath()).thenReturn(f.getAbsolutePath());
+    inputFile = new DefaultInputFile(file, false, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void key_depends_on_content_and_fingerprint() throws IOException {
+    String key = cache.key("fp1", inputFile);
+    assertThat(key).isNotNull();
+    assertThat(cache.key("fp1", inputFile)).isEqualTo(key);
+    assertThat(cache.key("fp2", inputFile)).isNotEqualTo(key);
+
+    Files.write(new File(file.getPath()).toPath(), "class Foo { }".getBytes(StandardCharsets.UTF_8));
+    assertThat(cache.key("fp1", inputFile)).isNotEqualTo(key);
+  }
+
+  @Test
+  public void key_of_unsaved_changes() {
+    String key = cache.key("fp1", inputFile);
+    DefaultInputFile unsaved = new DefaultInputFile(file, false, StandardCharsets.UTF_8, "class Foo { }", 1);
+    assertThat(cache.key("fp1", unsaved)).isNotEqualTo(key);
+
+    DefaultInputFile sameAsDisk = new DefaultInputFile(file, false, StandardCharsets.UTF_8, "class Foo {}", 2);
+    assertThat(cache.key("fp1", sameAsDisk)).isEqualTo(key);
+  }
+
+  @Test
+  public void no_key_if_file_cant_be_read() {
+    when(file.getPath()).thenReturn(new File(temp.getRoot(), "missing").getAbsolutePath());
+    assertThat(cache.key("fp1", new DefaultInputFile(file, false, StandardCharsets.UTF_8))).isNull();
+  }
+
+  @Test
+  public void replay_issues() {
+    Issue issue = mock(Issue.class);
+    when(issue.getRuleKey()).thenReturn("squid:S123");
+    when(issue.getRuleName()).thenReturn("name");
+    when(issue.getSeverity()).thenReturn("MAJOR");
+    when(issue.getMessage()).thenReturn("msg");
+    when(issue.getStartLine()).thenReturn(1);
+    when(issue.getStartLineOffset()).thenReturn(2);
+    when(issue.getEndLine()).thenReturn(3);
+    when(issue.getEndLineOffset()).thenReturn(4);
+    Issue fileIssue = mock(Issue.class);
+    when(fileIssue.getRuleKey()).thenReturn("squid:S456");
+
+    assertThat(cache.get("0123", inputFile)).isNull();
+    cache.put("0123", Arrays.asList(issue, fileIssue));
+    List<Issue> issues = cache.get("0123", inputFile);
+
+    assertThat(issues).hasSize(2);
+    Issue replayed = issues.get(0);
+    assertThat(replayed.getRuleKey()).isEqualTo("squid:S123");
+    assertThat(replayed.getRuleName()).isEqualTo("name");
+    assertThat(replayed.getSeverity()).isEqualTo("MAJOR");
+    assertThat(replayed.getMessage()).isEqualTo("msg");
+    assertThat(replayed.getStartLine()).isEqualTo(1);
+    assertThat(replayed.getStartLineOffset()).isEqualTo(2);
+    assertThat(replayed.getEndLine()).isEqualTo(3);
+    assertThat(replayed.getEndLineOffset()).isEqualTo(4);
+    assertThat(replayed.getInputFile()).isEqualTo(inputFile);
+    assertThat(issues.get(1).getStartLine()).isNull();
+    assertThat(issues.get(1).flows()).isEmpty();
+
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(cache.getMisses()).isEqualTo(1);
+  }
+
+  @Test
+  public void replay_flows() {
+    IssueLocation location = mock(IssueLocation.class);
+    when(location.getStartLine()).thenReturn(5);
+    when(location.getStartLineOffset()).thenReturn(6);
+    when(location.getEndLine()).thenReturn(7);
+    when(location.getEndLineOffset()).thenReturn(8);
+    when(location.getMessage()).thenReturn("secondary");
+    IssueLocation fileLocation = mock(IssueLocation.class);
+    Issue.Flow flow = mock(Issue.Flow.class);
+    when(flow.locations()).thenReturn(Arrays.asList(location, fileLocation));
+    Issue issue = mock(Issue.class);
+    when(issue.getRuleKey()).thenReturn("squid:S123");
+    when(issue.flows()).thenReturn(Collections.singletonList(flow));
+
+    cache.put("0123", Collections.singletonList(issue));
+    List<Issue> issues = cache.get("0123", inputFile);
+
+    assertThat(issues).hasSize(1);
+    assertThat(issues.get(0).flows()).hasSize(1);
+    List<IssueLocation> locations = issues.get(0).flows().get(0).locations();
+    assertThat(locations).hasSize(2);
+    assertThat(locations.get(0).getStartLine()).isEqualTo(5);
+    assertThat(locations.get(0).getStartLineOffset()).isEqualTo(6);
+    assertThat(locations.get(0).getEndLine()).isEqualTo(7);
+    assertThat(locations.get(0).getEndLineOffset()).isEqualTo(8);
+    assertThat(locations.get(0).getMessage()).isEqualTo("secondary");
+    assertThat(locations.get(1).getStartLine()).isNull();
+  }
+
+  @Test
+  public void entries_are_persisted() {
+    cache.put("0123", Collections.emptyList());
+
+    AnalysisResultCache newCache = new AnalysisResultCache(project, cachePath);
+    assertThat(newCache.get("0123", inputFile)).isEmpty();
+    assertThat(newCache.get("4567", inputFile)).isNull();
+  }
+
+  @Test
+  public void evict_least_recently_used() {
+    for (int i = 0; i < AnalysisResultCache.MAX_ENTRIES; i++) {
+      cache.put(String.format("%04x", i), Collections.emptyList());
+    }
+    // becomes the most recently used
+    assertThat(cache.get("0000", inputFile)).isNotNull();
+
+    cache.put("ffff", Collections.emptyList());
+    assertThat(cache.get("0000", inputFile)).isNotNull();
+    assertThat(cache.get("0001", inputFile)).isNull();
+    assertThat(cachePath.resolve("00").resolve("0001")).doesNotExist();
+    assertThat(cache.get("ffff", inputFile)).isNotNull();
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.project.Project;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.trigger.TriggerScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AnalysisSchedulerTest {
+  private SonarLintGlobalSettings globalSettings;
+  private CpuGovernor governor;
+  private TriggerScheduler triggerScheduler;
+  private Project focused;
+  private AnalysisScheduler scheduler;
+  private List<String> launched;
+
+  @Before
+  public void setUp() {
+    globalSettings = new SonarLintGlobalSettings();
+    globalSettings.setMaxConcurrentAnalyses(1);
+    launched = new ArrayList<>();
+    governor = mock(CpuGovernor.class);
+    triggerScheduler = mock(TriggerScheduler.class);
+    scheduler = new AnalysisScheduler(globalSettings, governor, triggerScheduler, () -> focused);
+  }
+
+  @Test
+  public void should_share_slots_between_projects() {
+    FakeClient c1 = new FakeClient("p1", 3);
+    FakeClient c2 = new FakeClient("p2", 3);
+    scheduler.register(c1);
+    scheduler.register(c2);
+
+    scheduler.dispatch();
+    assertThat(launched).containsExactly("p1");
+    assertThat(scheduler.getUsedSlots()).isEqualTo(1);
+
+    for (int i = 0; i < 3; i++) {
+      scheduler.release();
+    }
+    assertThat(launched).containsExactly("p1", "p2", "p1", "p2");
+  }
+
+  @Test
+  public void should_prioritize_focused_project() {
+    FakeClient c1 = new FakeClient("p1", 5);
+    FakeClient c2 = new FakeClient("p2", 5);
+    focused = c2.project;
+    scheduler.register(c1);
+    scheduler.register(c2);
+
+    scheduler.dispatch();
+    for (int i = 0; i < 4; i++) {
+      scheduler.release();
+    }
+    assertThat(launched).containsExactly("p1", "p2", "p2", "p2", "p1");
+  }
+
+  @Test
+  public void should_fill_all_slots() {
+    globalSettings.setMaxConcurrentAnalyses(3);
+    FakeClient c1 = new FakeClient("p1", 1);
+    FakeClient c2 = new FakeClient("p2", 5);
+    scheduler.register(c1);
+    scheduler.register(c2);
+
+    scheduler.dispatch();
+    assertThat(launched).containsExactly("p1", "p2", "p2");
+    assertThat(scheduler.getQueueDepths()).containsEntry(c1.project, 0).containsEntry(c2.project, 3);
+  }
+
+  @Test
+  public void should_only_run_exempt_jobs_when_throttled() {
+    globalSettings.setMaxConcurrentAnalyses(2);
+    when(governor.delayMs()).thenReturn(500L);
+    FakeClient c1 = new FakeClient("p1", 2);
+    FakeClient c2 = new FakeClient("p2", 1);
+    c2.exempt = true;
+    scheduler.register(c1);
+    scheduler.register(c2);
+
+    scheduler.dispatch();
+    assertThat(launched).containsExactly("p2");
+    verify(triggerScheduler).schedule(any(), anyLong(), any(Runnable.class));
+
+    when(governor.delayMs()).thenReturn(0L);
+    scheduler.dispatch();
+    assertThat(launched).containsExactly("p2", "p1");
+  }
+
+  @Test
+  public void should_acquire_and_release() {
+    assertThat(scheduler.tryAcquire()).isTrue();
+    assertThat(scheduler.tryAcquire()).isFalse();
+    scheduler.release();
+    assertThat(scheduler.getUsedSlots()).isZero();
+    assertThat(scheduler.tryAcquire()).isTrue();
+  }
+
+  @Test
+  public void should_unregister() {
+    FakeClient c1 = new FakeClient("p1", 3);
+    scheduler.register(c1);
+    scheduler.unregister(c1);
+
+    scheduler.dispatch();
+    assertThat(launched).isEmpty();
+    assertThat(scheduler.getQueueDepths()).isEmpty();
+  }
+
+  private class FakeClient implements AnalysisScheduler.Client {
+    private final String name;
+    private final Project project = mock(Project.class);
+    private int queued;
+    private boolean exempt = false;
+
+    FakeClient(String name, int queued) {
+      this.name = name;
+      this.queued = queued;
+    }
+
+    @Override public Project project() {
+      return project;
+    }
+
+    @Override public int queueDepth() {
+      return queued;
+    }
+
+    @Override public Runnable takeNext(boolean onlyExempt) {
+      if (queued == 0 || (onlyExempt && !exempt)) {
+        return null;
+      }
+      queued--;
+      return () -> launched.add(name);
+    }
+  }
+}
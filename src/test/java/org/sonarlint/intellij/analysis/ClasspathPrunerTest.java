@@ -0,0 +1,41 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClasspathPrunerTest {
+  @Test
+  public void testKeepReferencedEntriesInOrder() {
+    String classpath = "/libs/a.jar,/libs/b.jar,/out/module2,/libs/c.jar";
+    assertThat(ClasspathPruner.prune(classpath, ',', new HashSet<>(Arrays.asList("/libs/c.jar", "/out/module2", "/jdk/rt.jar"))))
+      .isEqualTo("/out/module2,/libs/c.jar");
+  }
+
+  @Test
+  public void testNothingReferenced() {
+    assertThat(ClasspathPruner.prune("/libs/a.jar,/libs/b.jar", ',', Collections.emptySet())).isEmpty();
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.trigger.TriggerType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CpuGovernorTest {
+  private static final long MS = 1_000_000L;
+  private SonarLintGlobalSettings globalSettings;
+  private long now;
+  private CpuGovernor governor;
+
+  @Before
+  public void setUp() {
+    globalSettings = new SonarLintGlobalSettings();
+    globalSettings.setCpuBudgetPercent(50);
+    now = 0;
+    governor = new CpuGovernor(globalSettings, () -> now, 2);
+  }
+
+  @Test
+  public void should_allow_burst() {
+    governor.consumed(CpuGovernor.BURST_NS);
+    assertThat(governor.delayMs()).isZero();
+  }
+
+  @Test
+  public void should_throttle_above_budget() {
+    // 2 cores at 50%: one second of CPU per second
+    governor.consumed(CpuGovernor.BURST_NS + 1000 * MS);
+    assertThat(governor.delayMs()).isEqualTo(1000);
+
+    now += 400 * MS;
+    assertThat(governor.delayMs()).isEqualTo(600);
+
+    now += 600 * MS;
+    assertThat(governor.delayMs()).isZero();
+  }
+
+  @Test
+  public void should_not_throttle_if_disabled() {
+    globalSettings.setCpuBudgetPercent(100);
+    governor.consumed(100 * CpuGovernor.BURST_NS);
+    assertThat(governor.isEnabled()).isFalse();
+    assertThat(governor.delayMs()).isZero();
+  }
+
+  @Test
+  public void should_exempt_actions() {
+    assertThat(CpuGovernor.isExempt(TriggerType.ACTION)).isTrue();
+    assertThat(CpuGovernor.isExempt(TriggerType.SCOPE)).isTrue();
+    assertThat(CpuGovernor.isExempt(TriggerType.EDITOR_CHANGE)).isFalse();
+  }
+
+  @Test
+  public void should_bound_budget() {
+    globalSettings.setCpuBudgetPercent(0);
+    assertThat(globalSettings.getCpuBudgetPercent()).isEqualTo(SonarLintGlobalSettings.MIN_CPU_BUDGET_PERCENT);
+    globalSettings.setCpuBudgetPercent(200);
+    assertThat(globalSettings.getCpuBudgetPercent()).isEqualTo(100);
+  }
+}
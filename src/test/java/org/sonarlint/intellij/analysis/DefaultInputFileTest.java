@@ -19,16 +19,26 @@
  */
 package org.sonarlint.intellij.analysis;
 
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import java.io.File;
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class DefaultInputFileTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
   private DefaultInputFile inputFile;
 
   @Test
@@ -43,4 +53,40 @@ public class DefaultInputFileTest {
     assertThat(inputFile.getPath()).isEqualTo(Paths.get("file"));
     assertThat(inputFile.getClientObject()).isEqualTo(vFile);
   }
+
+  @Test
+  public void readFromDisk() throws IOException {
+    File file = temp.newFile();
+    Files.write(file.toPath(), "on disk".getBytes(StandardCharsets.UTF_8));
+    VirtualFile vFile = mock(VirtualFile.class);
+    when(vFile.getPath()).thenReturn(file.getAbsolutePath());
+    inputFile = new DefaultInputFile(vFile, false, StandardCharsets.UTF_8);
+
+    assertThat(inputFile.hasSnapshot()).isFalse();
+    assertThat(new String(FileUtil.loadBytes(inputFile.inputStream()), StandardCharsets.UTF_8)).isEqualTo("on disk");
+    assertThat(inputFile.getModificationStamp()).isEqualTo(-1);
+    assertThat(inputFile.writeSnapshot(temp.getRoot().toPath().resolve("snapshot"))).isSameAs(inputFile);
+  }
+
+  @Test
+  public void readFromSnapshot() throws IOException {
+    File file = temp.newFile();
+    Files.write(file.toPath(), "on disk".getBytes(StandardCharsets.UTF_8));
+    VirtualFile vFile = mock(VirtualFile.class);
+    when(vFile.getPath()).thenReturn(file.getAbsolutePath());
+    inputFile = new DefaultInputFile(vFile, true, StandardCharsets.UTF_8, "unsaved", 10);
+
+    assertThat(inputFile.hasSnapshot()).isTrue();
+    assertThat(new String(FileUtil.loadBytes(inputFile.inputStream()), StandardCharsets.UTF_8)).isEqualTo("unsaved");
+    assertThat(inputFile.getModificationStamp()).isEqualTo(10);
+
+    Path snapshot = temp.getRoot().toPath().resolve("work").resolve("Foo.java");
+    DefaultInputFile written = inputFile.writeSnapshot(snapshot);
+    assertThat(written.getPath()).isEqualTo(snapshot);
+    assertThat(new String(Files.readAllBytes(snapshot), StandardCharsets.UTF_8)).isEqualTo("unsaved");
+    assertThat(written.getClientObject()).isEqualTo(vFile);
+    assertThat(written.isTest()).isTrue();
+    assertThat(written.getModificationStamp()).isEqualTo(10);
+    assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).isEqualTo("on disk");
+  }
 }
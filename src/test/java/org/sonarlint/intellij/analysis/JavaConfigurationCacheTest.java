@@ -0,0 +1,85 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.intellij.SonarTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class JavaConfigurationCacheTest extends SonarTest {
+  private JavaConfigurationCache cache;
+  private AtomicInteger loads = new AtomicInteger();
+  private Function<Module, Map<String, String>> loader = m -> {
+    loads.incrementAndGet();
+    return Collections.singletonMap("sonar.java.source", "8");
+  };
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    cache = new JavaConfigurationCache(project);
+  }
+
+  @Test
+  public void testLoadOnce() {
+    assertThat(cache.get(module, loader)).containsEntry("sonar.java.source", "8");
+    assertThat(cache.get(module, loader)).containsEntry("sonar.java.source", "8");
+    assertThat(loads.get()).isEqualTo(1);
+
+    cache.get(createModule(), loader);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testInvalidate() {
+    cache.get(module, loader);
+    cache.invalidate();
+    cache.get(module, loader);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testInvalidateOnRootsChanged() {
+    cache.get(module, loader);
+    project.getMessageBus().syncPublisher(ModuleRootListener.TOPIC).rootsChanged(mock(ModuleRootEvent.class));
+    cache.get(module, loader);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testNotCachedIfInvalidatedWhileLoading() {
+    cache.get(module, m -> {
+      cache.invalidate();
+      return loader.apply(m);
+    });
+    cache.get(module, loader);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+}
@@ -51,27 +51,162 @@ public class JobQueueTest {
     queue = new JobQueue(project);
   }
 
-  @Test(expected = JobQueue.NoCapacityException.class)
-  public void dontPassCapacity() throws JobQueue.NoCapacityException {
-    for (int i = 0; i <= JobQueue.CAPACITY; i++) {
-      queue.queue(createJobNewFiles(1), false);
+  @Test
+  public void dropOldestWhenFull() {
+    queue = new JobQueue(project, 2, JobQueue.OverflowPolicy.DROP_OLDEST);
+    SonarLintJob oldest = createJob(TriggerType.COMPILATION);
+    SonarLintJob action = createJob(TriggerType.ACTION);
+    SonarLintJob open = createJob(TriggerType.EDITOR_OPEN);
+    assertThat(queue.queue(oldest, false)).isNull();
+    assertThat(queue.queue(action, false)).isNull();
+    assertThat(queue.queue(open, false)).isEqualTo(oldest);
+
+    assertThat(queue.size()).isEqualTo(2);
+    assertThat(queue.get()).isEqualTo(action);
+    assertThat(queue.get()).isEqualTo(open);
+  }
+
+  @Test
+  public void dropNewWhenFullWithMoreUrgentJobs() {
+    queue = new JobQueue(project, 1, JobQueue.OverflowPolicy.DROP_OLDEST);
+    SonarLintJob action = createJob(TriggerType.ACTION);
+    SonarLintJob compilation = createJob(TriggerType.COMPILATION);
+    queue.queue(action, false);
+    assertThat(queue.queue(compilation, false)).isEqualTo(compilation);
+    assertThat(queue.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void spillWhenFull() {
+    queue = new JobQueue(project, 2, JobQueue.OverflowPolicy.SPILL);
+    for (int i = 0; i < 5; i++) {
+      assertThat(queue.queue(createJobNewFiles(1), false)).isNull();
+    }
+
+    assertThat(queue.size()).isEqualTo(5);
+    for (int i = 0; i < 5; i++) {
+      queue.get();
     }
+    assertThat(queue.size()).isZero();
+  }
+
+  @Test
+  public void coalesceWhenFull() {
+    queue = new JobQueue(project, 1, JobQueue.OverflowPolicy.COALESCE);
+    queue.queue(createJobNewModule());
+    Module other = mock(Module.class);
+    when(other.getProject()).thenReturn(project);
+    for (int i = 0; i < 3; i++) {
+      assertThat(queue.queue(new SonarLintJob(other, Collections.singleton(mock(VirtualFile.class)), TriggerType.EDITOR_CHANGE))).isNull();
+    }
+
+    assertThat(queue.size()).isEqualTo(2);
+    queue.get();
+    SonarLintJob coalesced = queue.get();
+    assertThat(coalesced.module()).isEqualTo(other);
+    assertThat(coalesced.files()).hasSize(3);
+  }
+
+  @Test
+  public void scopeChunksAreNotMerged() {
+    Module other = mock(Module.class);
+    when(other.getProject()).thenReturn(project);
+    SonarLintJob chunk1 = new SonarLintJob(other, Collections.singleton(mock(VirtualFile.class)), TriggerType.SCOPE);
+    SonarLintJob chunk2 = new SonarLintJob(other, Collections.singleton(mock(VirtualFile.class)), TriggerType.SCOPE);
+    SonarLintJob change = new SonarLintJob(other, Collections.singleton(mock(VirtualFile.class)), TriggerType.EDITOR_CHANGE);
+    queue.queue(chunk1);
+    queue.queue(chunk2);
+    queue.queue(change);
+
+    assertThat(queue.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void anyMatchIncludesJobsWaitingForSpace() {
+    queue = new JobQueue(project, 1, JobQueue.OverflowPolicy.SPILL);
+    SonarLintJob first = createJobNewFiles(1);
+    SonarLintJob spilled = createJobNewFiles(1);
+    queue.queue(first, false);
+    queue.queue(spilled, false);
+
+    assertThat(queue.anyMatch(j -> j == spilled)).isTrue();
+    assertThat(queue.anyMatch(j -> j.trigger() == TriggerType.IDLE)).isFalse();
+    queue.clear();
+    assertThat(queue.anyMatch(j -> true)).isFalse();
+  }
+
+  @Test
+  public void getByPriority() {
+    SonarLintJob compilation = createJobNewModule(TriggerType.COMPILATION, JobPriority.COMPILATION);
+    SonarLintJob open = createJobNewModule(TriggerType.EDITOR_OPEN, JobPriority.EDITOR_OPEN);
+    SonarLintJob action = createJobNewModule(TriggerType.ACTION, JobPriority.ACTION);
+    SonarLintJob selected = createJobNewModule(TriggerType.EDITOR_CHANGE, JobPriority.SELECTED_EDITOR);
+    SonarLintJob visible = createJobNewModule(TriggerType.EDITOR_CHANGE, JobPriority.VISIBLE_EDITOR);
+    queue.queue(compilation);
+    queue.queue(open);
+    queue.queue(action);
+    queue.queue(selected);
+    queue.queue(visible);
+
+    assertThat(queue.get()).isEqualTo(selected);
+    assertThat(queue.get()).isEqualTo(visible);
+    assertThat(queue.get()).isEqualTo(action);
+    assertThat(queue.get()).isEqualTo(open);
+    assertThat(queue.get()).isEqualTo(compilation);
+  }
+
+  @Test
+  public void agingAvoidsStarvation() {
+    long[] now = {System.currentTimeMillis()};
+    queue = new JobQueue(project, 5, JobQueue.OverflowPolicy.COALESCE, () -> now[0]);
+    SonarLintJob compilation = createJobNewModule(TriggerType.COMPILATION, JobPriority.COMPILATION);
+    queue.queue(compilation);
+
+    // a job of the selected editor still comes first after a few seconds
+    now[0] += JobQueue.AGING_STEP_MS;
+    SonarLintJob selected = createJobNewModule(TriggerType.EDITOR_CHANGE, JobPriority.SELECTED_EDITOR);
+    queue.queue(selected);
+    assertThat(queue.get()).isEqualTo(selected);
+
+    now[0] += JobPriority.COMPILATION.ordinal() * JobQueue.AGING_STEP_MS;
+    queue.queue(createJobNewModule(TriggerType.EDITOR_CHANGE, JobPriority.SELECTED_EDITOR));
+    assertThat(queue.get()).isEqualTo(compilation);
+  }
+
+  @Test
+  public void mergeKeepsHighestPriority() {
+    queue.queue(new SonarLintJob(module, files, TriggerType.COMPILATION, JobPriority.COMPILATION));
+    queue.queue(new SonarLintJob(module, files, TriggerType.EDITOR_CHANGE, JobPriority.SELECTED_EDITOR));
+    assertThat(queue.size()).isEqualTo(1);
+    assertThat(queue.get().priority()).isEqualTo(JobPriority.SELECTED_EDITOR);
+  }
+
+  @Test
+  public void priorityOfTriggers() {
+    assertThat(JobPriority.of(TriggerType.EDITOR_CHANGE, true, true)).isEqualTo(JobPriority.SELECTED_EDITOR);
+    assertThat(JobPriority.of(TriggerType.EDITOR_CHANGE, false, true)).isEqualTo(JobPriority.VISIBLE_EDITOR);
+    assertThat(JobPriority.of(TriggerType.EDITOR_CHANGE, false, false)).isEqualTo(JobPriority.EDITOR_OPEN);
+    assertThat(JobPriority.of(TriggerType.EDITOR_OPEN, true, true)).isEqualTo(JobPriority.VISIBLE_EDITOR);
+    assertThat(JobPriority.of(TriggerType.ACTION)).isEqualTo(JobPriority.ACTION);
+    assertThat(JobPriority.of(TriggerType.SCOPE)).isEqualTo(JobPriority.ACTION);
+    assertThat(JobPriority.of(TriggerType.BINDING_CHANGE)).isEqualTo(JobPriority.COMPILATION);
+    assertThat(JobPriority.of(TriggerType.COMPILATION)).isEqualTo(JobPriority.COMPILATION);
   }
 
   @Test(expected = IllegalArgumentException.class)
-  public void dontAnalyzeDifferentProject() throws JobQueue.NoCapacityException {
+  public void dontAnalyzeDifferentProject() {
     Project p = mock(Project.class);
     when(module.getProject()).thenReturn(p);
     queue.queue(createJobNewFiles(1));
   }
 
   @Test(expected = IllegalArgumentException.class)
-  public void dontAnalyzeEmpty() throws JobQueue.NoCapacityException {
+  public void dontAnalyzeEmpty() {
     queue.queue(new SonarLintJob(module, Collections.emptySet(), TriggerType.ACTION));
   }
 
   @Test
-  public void dontOptimize() throws JobQueue.NoCapacityException {
+  public void dontOptimize() {
     SonarLintJob job = createJob();
 
     for (int i = 0; i < 3; i++) {
@@ -89,7 +224,7 @@ public class JobQueueTest {
   }
 
   @Test
-  public void optimize_by_default() throws JobQueue.NoCapacityException {
+  public void optimize_by_default() {
     for (int i = 0; i < 3; i++) {
       queue.queue(createJobNewFiles(2));
     }
@@ -102,7 +237,7 @@ public class JobQueueTest {
   }
 
   @Test
-  public void dontRepeatSameFile() throws JobQueue.NoCapacityException {
+  public void dontRepeatSameFile() {
     for (int i = 0; i < 3; i++) {
       queue.queue(createJob(), true);
     }
@@ -112,7 +247,7 @@ public class JobQueueTest {
   }
 
   @Test
-  public void handleDifferentModules() throws JobQueue.NoCapacityException {
+  public void handleDifferentModules() {
     for (int i = 0; i < 3; i++) {
       queue.queue(createJobNewModule(), true);
     }
@@ -137,6 +272,16 @@ public class JobQueueTest {
     return new SonarLintJob(module, files, TriggerType.ACTION);
   }
 
+  private SonarLintJob createJobNewModule(TriggerType trigger, JobPriority priority) {
+    Module module = mock(Module.class);
+    when(module.getProject()).thenReturn(project);
+    return new SonarLintJob(module, files, trigger, priority);
+  }
+
+  private SonarLintJob createJob(TriggerType trigger) {
+    return new SonarLintJob(module, files, trigger);
+  }
+
   private SonarLintJob createJob() {
     return new SonarLintJob(module, files, TriggerType.ACTION);
   }
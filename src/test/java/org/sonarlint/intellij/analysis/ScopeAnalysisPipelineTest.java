@@ -0,0 +1,211 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.analysis;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.intellij.SonarTest;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.issue.LiveIssue;
+import org.sonarlint.intellij.messages.IssueStoreListener;
+import org.sonarlint.intellij.trigger.TriggerType;
+import org.sonarlint.intellij.ui.SonarLintConsole;
+import org.sonarlint.intellij.util.SonarLintAppUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ScopeAnalysisPipelineTest extends SonarTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private SonarLintAppUtils utils = mock(SonarLintAppUtils.class);
+  private SonarLintJobManager jobManager = mock(SonarLintJobManager.class);
+  private SonarLintStatus status = mock(SonarLintStatus.class);
+  private ProgressIndicator indicator = mock(ProgressIndicator.class);
+  private Module m1 = mock(Module.class);
+  private VirtualFile f1;
+  private VirtualFile f2;
+  private Path checkpoint;
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    super.register(app, SonarLintAppUtils.class, utils);
+    super.register(SonarLintJobManager.class, jobManager);
+    super.register(SonarLintStatus.class, status);
+    super.register(SonarLintConsole.class, mock(SonarLintConsole.class));
+    SonarLintGlobalSettings globalSettings = mock(SonarLintGlobalSettings.class);
+    when(globalSettings.computeMaxConcurrentAnalyses()).thenReturn(1);
+    super.register(app, SonarLintGlobalSettings.class, globalSettings);
+    when(app.runReadAction(any(Computable.class))).thenAnswer(i -> ((Computable) i.getArguments()[0]).compute());
+
+    f1 = file("/src/f1.java");
+    f2 = file("/src/f2.java");
+    when(utils.findModuleForFile(any(VirtualFile.class), eq(project))).thenReturn(m1);
+    when(utils.shouldAnalyze(any(VirtualFile.class), eq(m1))).thenReturn(true);
+
+    VirtualFile baseDir = mock(VirtualFile.class);
+    when(baseDir.getPath()).thenReturn(temp.getRoot().getAbsolutePath());
+    when(project.getBaseDir()).thenReturn(baseDir);
+    checkpoint = temp.getRoot().toPath().resolve(".idea").resolve("sonarlint").resolve("checkpoints").resolve("key");
+  }
+
+  @Test
+  public void should_submit_small_scope_as_action() {
+    new ScopeAnalysisPipeline(project, Arrays.asList(f1, f2), null, true).run(indicator);
+    verify(jobManager).submit(Collections.singletonMap(m1, Arrays.asList(f1, f2)), TriggerType.ACTION);
+
+    new ScopeAnalysisPipeline(project, Collections.singletonList(f1), null, false).run(indicator);
+    verify(jobManager).submitAsync(Collections.singletonMap(m1, Collections.singletonList(f1)), TriggerType.ACTION);
+  }
+
+  @Test
+  public void should_not_submit_files_that_cannot_be_analyzed() {
+    when(utils.shouldAnalyze(f2, m1)).thenReturn(false);
+    new ScopeAnalysisPipeline(project, Arrays.asList(f1, f2), null, true).run(indicator);
+    verify(jobManager).submit(Collections.singletonMap(m1, Collections.singletonList(f1)), TriggerType.ACTION);
+  }
+
+  @Test
+  public void should_not_submit_if_no_file_can_be_analyzed() {
+    when(utils.shouldAnalyze(any(VirtualFile.class), eq(m1))).thenReturn(false);
+    new ScopeAnalysisPipeline(project, Arrays.asList(f1, f2), "key", false).run(indicator);
+    verifyZeroInteractions(jobManager);
+  }
+
+  @Test
+  public void should_keep_checkpoint_until_all_files_are_analyzed() {
+    AnalysisCheckpoint.open(checkpoint).done(Collections.singletonList(f1));
+
+    new ScopeAnalysisPipeline(project, Arrays.asList(f1, f2), "key", false).run(indicator);
+    verify(jobManager).submitAsync(m1, Collections.singletonList(f2), TriggerType.SCOPE);
+    assertThat(AnalysisCheckpoint.open(checkpoint).isDone(f1)).isTrue();
+    assertThat(AnalysisCheckpoint.open(checkpoint).isDone(f2)).isFalse();
+  }
+
+  @Test
+  public void should_delete_checkpoint_once_all_files_are_analyzed() {
+    doAnswer(i -> {
+      Collection<VirtualFile> files = (Collection<VirtualFile>) i.getArguments()[1];
+      Map<VirtualFile, Collection<LiveIssue>> issues = Collections.singletonMap(files.iterator().next(), Collections.emptyList());
+      project.getMessageBus().syncPublisher(IssueStoreListener.SONARLINT_ISSUE_STORE_TOPIC).filesChanged(issues);
+      return null;
+    }).when(jobManager).submitAsync(eq(m1), anyCollectionOf(VirtualFile.class), eq(TriggerType.SCOPE));
+
+    new ScopeAnalysisPipeline(project, Collections.singletonList(f1), "key", false).run(indicator);
+    assertThat(Files.exists(checkpoint)).isFalse();
+  }
+
+  @Test
+  public void should_cancel_jobs_of_scope_when_cancelled() {
+    when(jobManager.hasPending(any(Collection.class))).thenReturn(true);
+    when(indicator.isCanceled()).thenReturn(true);
+
+    new ScopeAnalysisPipeline(project, Collections.singletonList(f1), "key", false).run(indicator);
+    verify(jobManager).cancel(TriggerType.SCOPE);
+  }
+
+  @Test
+  public void should_keep_as_many_chunks_pending_as_concurrent_analyses() {
+    List<VirtualFile> files = new ArrayList<>();
+    for (int i = 0; i <= ScopeAnalysisPipeline.MAX_CHUNK_FILES; i++) {
+      files.add(file("/src/f" + i + ".java"));
+    }
+    // the first chunk is still pending when first checked
+    when(jobManager.hasPending(any(Collection.class))).thenReturn(true, false);
+
+    new ScopeAnalysisPipeline(project, files, "key", false).run(indicator);
+    verify(jobManager, times(2)).submitAsync(eq(m1), anyCollectionOf(VirtualFile.class), eq(TriggerType.SCOPE));
+    verify(jobManager, times(3)).hasPending(any(Collection.class));
+  }
+
+  @Test
+  public void should_balance_chunks() {
+    List<VirtualFile> files = Arrays.asList(fileOfLength(800), fileOfLength(500), fileOfLength(400), fileOfLength(100));
+
+    List<List<VirtualFile>> chunks = ScopeAnalysisPipeline.balancedChunks(files, 1000, 100);
+    assertThat(chunks).hasSize(2);
+    assertThat(size(chunks.get(0))).isEqualTo(900L);
+    assertThat(size(chunks.get(1))).isEqualTo(900L);
+  }
+
+  @Test
+  public void should_limit_files_per_chunk() {
+    List<VirtualFile> files = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      files.add(fileOfLength(1));
+    }
+
+    List<List<VirtualFile>> chunks = ScopeAnalysisPipeline.balancedChunks(files, 1000, 10);
+    assertThat(chunks).hasSize(3);
+    int total = 0;
+    for (List<VirtualFile> chunk : chunks) {
+      assertThat(chunk.size()).isLessThanOrEqualTo(10);
+      total += chunk.size();
+    }
+    assertThat(total).isEqualTo(25);
+  }
+
+  @Test
+  public void should_not_create_empty_chunks() {
+    assertThat(ScopeAnalysisPipeline.balancedChunks(Collections.emptyList(), 1000, 10)).isEmpty();
+    assertThat(ScopeAnalysisPipeline.balancedChunks(Collections.singletonList(fileOfLength(5000)), 1000, 10)).hasSize(1);
+  }
+
+  private static long size(List<VirtualFile> chunk) {
+    return chunk.stream().mapToLong(VirtualFile::getLength).sum();
+  }
+
+  private static VirtualFile fileOfLength(long length) {
+    VirtualFile f = mock(VirtualFile.class);
+    when(f.getLength()).thenReturn(length);
+    return f;
+  }
+
+  private static VirtualFile file(String path) {
+    VirtualFile f = mock(VirtualFile.class);
+    when(f.getPath()).thenReturn(path);
+    when(f.isValid()).thenReturn(true);
+    return f;
+  }
+}
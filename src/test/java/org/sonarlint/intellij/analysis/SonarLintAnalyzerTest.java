@@ -19,26 +19,42 @@
  */
 package org.sonarlint.intellij.analysis;
 
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ContentEntry;
 import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.encoding.EncodingProjectManager;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sonarlint.intellij.SonarTest;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
 import org.sonarlint.intellij.core.ProjectBindingManager;
 import org.sonarlint.intellij.core.SonarLintFacade;
 import org.sonarlint.intellij.ui.SonarLintConsole;
+import org.sonarlint.intellij.util.FileClassificationIndex;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.eq;
@@ -47,6 +63,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SonarLintAnalyzerTest extends SonarTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
   @Mock
   private ProjectBindingManager projectBindingManager;
   @Mock
@@ -61,13 +79,18 @@ public class SonarLintAnalyzerTest extends SonarTest {
   private Module module;
   @Mock
   private SonarLintFacade facade;
+  @Mock
+  private FileClassificationIndex classificationIndex;
+  @Mock
+  private FileDocumentManager fileDocumentManager;
 
   private SonarLintAnalyzer analyzer;
 
   @Before
   public void setUp() {
     MockitoAnnotations.initMocks(this);
-    analyzer = new SonarLintAnalyzer(projectBindingManager, encodingProjectManager, console);
+    analyzer = new SonarLintAnalyzer(projectBindingManager, encodingProjectManager, console, classificationIndex, fileDocumentManager);
+    when(classificationIndex.classify(any(VirtualFile.class))).thenReturn(FileClassificationIndex.Classification.NONE);
 
     when(projectBindingManager.getFacadeForAnalysis()).thenReturn(facade);
     when(moduleRootManager.getContentEntries()).thenReturn(new ContentEntry[0]);
@@ -86,4 +109,65 @@ public class SonarLintAnalyzerTest extends SonarTest {
     analyzer.analyzeModule(module, Collections.singleton(file), listener);
     verify(facade).startAnalysis(anyListOf(ClientInputFile.class), eq(listener), anyMapOf(String.class, String.class));
   }
+
+  @Test
+  public void testAnalyzeUnsavedChangesFromSnapshot() throws IOException {
+    Path baseDir = temp.newFolder().toPath();
+    Path path = baseDir.resolve("src").resolve("Foo.java");
+    Files.createDirectories(path.getParent());
+    Files.write(path, "on disk".getBytes(StandardCharsets.UTF_8));
+    VirtualFile file = mock(VirtualFile.class);
+    when(file.getPath()).thenReturn(path.toString());
+    Project project = mock(Project.class);
+    when(project.getBasePath()).thenReturn(baseDir.toString());
+    when(module.getProject()).thenReturn(project);
+    when(encodingProjectManager.getEncoding(file, true)).thenReturn(StandardCharsets.UTF_8);
+
+    Document doc = mock(Document.class);
+    when(doc.getImmutableCharSequence()).thenReturn("unsaved");
+    when(doc.getModificationStamp()).thenReturn(5L);
+    when(fileDocumentManager.isFileModified(file)).thenReturn(true);
+    when(fileDocumentManager.getCachedDocument(file)).thenReturn(doc);
+    when(app.runReadAction(any(Computable.class))).thenAnswer(i -> ((Computable) i.getArguments()[0]).compute());
+
+    List<Path> analyzed = new ArrayList<>();
+    List<String> contents = new ArrayList<>();
+    when(facade.startAnalysis(anyListOf(ClientInputFile.class), any(IssueListener.class), anyMapOf(String.class, String.class))).thenAnswer(i -> {
+      ClientInputFile inputFile = ((List<ClientInputFile>) i.getArguments()[0]).get(0);
+      analyzed.add(inputFile.getPath());
+      contents.add(new String(Files.readAllBytes(inputFile.getPath()), StandardCharsets.UTF_8));
+      assertThat(inputFile.getClientObject()).isEqualTo(file);
+      assertThat(((DefaultInputFile) inputFile).getModificationStamp()).isEqualTo(5L);
+      return null;
+    });
+
+    analyzer.analyzeModule(module, Collections.singleton(file), mock(IssueListener.class));
+
+    assertThat(contents).containsExactly("unsaved");
+    assertThat(analyzed.get(0)).isNotEqualTo(path);
+    assertThat(analyzed.get(0).endsWith(Paths.get("src", "Foo.java"))).isTrue();
+    assertThat(Files.exists(analyzed.get(0))).isFalse();
+    assertThat(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)).isEqualTo("on disk");
+  }
+
+  @Test
+  public void testGroupModulesWithSameConfiguration() {
+    Module module2 = mock(Module.class);
+    assertThat(analyzer.groupByConfiguration(Arrays.asList(module, module2))).containsExactly(Arrays.asList(module, module2));
+  }
+
+  @Test
+  public void testFingerprintOfPrunedConfiguration() {
+    SonarLintGlobalSettings settings = new SonarLintGlobalSettings();
+    super.register(app, SonarLintGlobalSettings.class, settings);
+    when(facade.getConfigurationFingerprint()).thenReturn("facade");
+    Set<VirtualFile> files = Collections.singleton(mock(VirtualFile.class));
+    String full = analyzer.getConfigurationFingerprint(Collections.singletonList(module));
+
+    settings.setPruneClasspath(false);
+    assertThat(analyzer.getConfigurationFingerprint(Collections.singletonList(module), files)).isEqualTo(full);
+
+    settings.setPruneClasspath(true);
+    assertThat(analyzer.getConfigurationFingerprint(Collections.singletonList(module), files)).isNotEqualTo(full);
+  }
 }
@@ -21,6 +21,7 @@ package org.sonarlint.intellij.analysis;
 
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.vfs.VirtualFile;
+import java.util.Arrays;
 import java.util.Collections;
 import org.junit.Test;
 import org.sonarlint.intellij.trigger.TriggerType;
@@ -59,4 +60,54 @@ public class SonarLintJobTest {
     assertThat(job.creationTime()).isBetween(System.currentTimeMillis()-5000, System.currentTimeMillis());
   }
 
+  @Test
+  public void testCombineJobsOfSeveralModules() {
+    Module m1 = mock(Module.class);
+    Module m2 = mock(Module.class);
+    Module m3 = mock(Module.class);
+    VirtualFile f1 = mock(VirtualFile.class);
+    VirtualFile f2 = mock(VirtualFile.class);
+
+    SonarLintJob job1 = new SonarLintJob(Arrays.asList(m1, m2), Collections.singleton(f1), TriggerType.ACTION, JobPriority.of(TriggerType.ACTION));
+    SonarLintJob job2 = new SonarLintJob(Arrays.asList(m1, m3), Collections.singleton(f2), TriggerType.ACTION, JobPriority.of(TriggerType.ACTION));
+    assertThat(job1.module()).isEqualTo(m1);
+
+    SonarLintJob job = new SonarLintJob(job1, job2);
+    assertThat(job.files()).containsOnly(f1, f2);
+    assertThat(job.module()).isEqualTo(m1);
+    assertThat(job.modules()).containsExactly(m1, m2, m3);
+  }
+
+  @Test
+  public void testCombineJobsKeepsAction() throws InterruptedException {
+    Module m = mock(Module.class);
+    VirtualFile f1 = mock(VirtualFile.class);
+    VirtualFile f2 = mock(VirtualFile.class);
+
+    SonarLintJob typing = new SonarLintJob(Collections.singletonList(m), Collections.singleton(f1), TriggerType.EDITOR_CHANGE,
+      JobPriority.SELECTED_EDITOR);
+    Thread.sleep(5);
+    SonarLintJob action = new SonarLintJob(m, Collections.singleton(f2), TriggerType.ACTION);
+
+    SonarLintJob job = new SonarLintJob(typing, action);
+    assertThat(job.trigger()).isEqualTo(TriggerType.ACTION);
+    assertThat(job.priority()).isEqualTo(JobPriority.SELECTED_EDITOR);
+    assertThat(new SonarLintJob(action, typing).trigger()).isEqualTo(TriggerType.ACTION);
+  }
+
+  @Test
+  public void testCombineJobsTakesTriggerOfMostUrgent() throws InterruptedException {
+    Module m = mock(Module.class);
+    VirtualFile f1 = mock(VirtualFile.class);
+    VirtualFile f2 = mock(VirtualFile.class);
+
+    SonarLintJob compilation = new SonarLintJob(m, Collections.singleton(f1), TriggerType.COMPILATION);
+    Thread.sleep(5);
+    SonarLintJob typing = new SonarLintJob(Collections.singletonList(m), Collections.singleton(f2), TriggerType.EDITOR_CHANGE,
+      JobPriority.SELECTED_EDITOR);
+
+    SonarLintJob job = new SonarLintJob(compilation, typing);
+    assertThat(job.trigger()).isEqualTo(TriggerType.EDITOR_CHANGE);
+    assertThat(job.creationTime()).isEqualTo(compilation.creationTime());
+  }
 }
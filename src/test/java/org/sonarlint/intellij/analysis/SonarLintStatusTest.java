@@ -89,6 +89,58 @@ public class SonarLintStatusTest extends SonarTest {
     assertStatus(false, false);
   }
 
+  @Test
+  public void test_run_concurrent_slots() {
+    status.setMaxConcurrent(2);
+    assertThat(status.tryRun()).isTrue();
+    assertThat(status.tryRun()).isTrue();
+    assertThat(status.tryRun()).isFalse();
+    assertThat(status.getRunningCount()).isEqualTo(2);
+
+    status.stopRun();
+    assertStatus(true, false);
+    assertThat(status.tryRun()).isTrue();
+  }
+
+  @Test
+  public void test_stop_last_slot() {
+    status.setMaxConcurrent(2);
+    status.tryRun();
+    status.tryRun();
+    status.stopRun();
+    assertStatus(true, false);
+    status.stopRun();
+    assertStatus(false, false);
+    assertThat(status.getRunningCount()).isZero();
+  }
+
+  @Test
+  public void test_no_new_slot_while_cancelling() {
+    status.setMaxConcurrent(2);
+    status.tryRun();
+    status.cancel();
+    assertThat(status.tryRun()).isFalse();
+  }
+
+  @Test
+  public void test_cancel_registered_tokens() {
+    CancellationToken token = new CancellationToken();
+    CancellationToken unregistered = new CancellationToken();
+    status.register(token);
+    status.register(unregistered);
+    status.unregister(unregistered);
+
+    status.tryRun();
+    status.cancel();
+    assertThat(token.isCancelled()).isTrue();
+    assertThat(unregistered.isCancelled()).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_invalid_slots() {
+    status.setMaxConcurrent(0);
+  }
+
   private void assertStatus(boolean running, boolean canceled) {
     assertThat(status.isRunning()).isEqualTo(running);
     assertThat(status.isCanceled()).isEqualTo(canceled);
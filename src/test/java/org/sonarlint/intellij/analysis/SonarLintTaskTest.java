@@ -23,25 +23,37 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.vfs.VirtualFile;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.sonarlint.intellij.SonarTest;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
 import org.sonarlint.intellij.core.ServerIssueUpdater;
 import org.sonarlint.intellij.issue.IssueProcessor;
 import org.sonarlint.intellij.issue.IssueManager;
 import org.sonarlint.intellij.messages.TaskListener;
+import org.sonarlint.intellij.trigger.TriggerScheduler;
 import org.sonarlint.intellij.trigger.TriggerType;
 import org.sonarlint.intellij.ui.SonarLintConsole;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -55,6 +67,8 @@ public class SonarLintTaskTest extends SonarTest {
   private SonarLintJob job;
   private SonarLintAnalyzer configurator;
   private AnalysisResults analysisResults;
+  private AnalysisResultCache cache;
+  private AnalysisQuarantine quarantine;
 
   @Before
   public void setUp() {
@@ -70,12 +84,19 @@ public class SonarLintTaskTest extends SonarTest {
     SonarLintConsole console = mock(SonarLintConsole.class);
     task = SonarLintTask.createBackground(processor, job);
     configurator = mock(SonarLintAnalyzer.class);
-    when(configurator.analyzeModule(any(Module.class), anyListOf(VirtualFile.class), any(IssueListener.class))).thenReturn(analysisResults);
+    when(configurator.analyzeModules(anyListOf(Module.class), anyListOf(VirtualFile.class), any(IssueListener.class))).thenReturn(analysisResults);
     super.register(SonarLintStatus.class, new SonarLintStatus(getProject()));
     super.register(SonarLintAnalyzer.class, configurator);
     super.register(SonarLintConsole.class, console);
     super.register(ServerIssueUpdater.class, mock(ServerIssueUpdater.class));
     super.register(IssueManager.class, mock(IssueManager.class));
+    super.register(app, CpuGovernor.class, new CpuGovernor(new SonarLintGlobalSettings()));
+    cache = mock(AnalysisResultCache.class);
+    super.register(AnalysisResultCache.class, cache);
+    super.register(AnalysisCostProfile.class, mock(AnalysisCostProfile.class));
+    quarantine = mock(AnalysisQuarantine.class);
+    super.register(AnalysisQuarantine.class, quarantine);
+    super.register(app, TriggerScheduler.class, new TriggerScheduler());
 
     //IntelliJ light test fixtures appear to reuse the same project container, so we need to ensure that status is stopped.
     SonarLintStatus.get(getProject()).stopRun();
@@ -89,8 +110,10 @@ public class SonarLintTaskTest extends SonarTest {
     assertThat(task.shouldStartInBackground()).isTrue();
     task.run(progress);
 
-    verify(configurator).analyzeModule(eq(module), eq(job.files()), any(IssueListener.class));
-    verify(processor).process(job, new ArrayList<>(), new ArrayList<>(), job.trigger());
+    verify(configurator).getConfigurationFingerprint(job.modules(), job.files());
+    verify(configurator).createInputFile(files.iterator().next());
+    verify(configurator).analyzeModules(eq(job.modules()), eq(job.files()), any(IssueListener.class));
+    verify(processor).process(job, job.files(), new ArrayList<>(), new ArrayList<>(), job.trigger());
     verify(listener).ended(job);
 
     verifyNoMoreInteractions(configurator);
@@ -98,12 +121,174 @@ public class SonarLintTaskTest extends SonarTest {
     verifyNoMoreInteractions(listener);
   }
 
+  @Test
+  public void testProcessEachChunk() {
+    files.add(mock(VirtualFile.class));
+    files.add(mock(VirtualFile.class));
+    task.run(progress);
+
+    ArgumentCaptor<Collection> chunks = ArgumentCaptor.forClass(Collection.class);
+    verify(configurator, times(2)).analyzeModules(eq(job.modules()), chunks.capture(), any(IssueListener.class));
+    assertThat(chunks.getAllValues().get(0)).hasSize(1);
+    assertThat(chunks.getAllValues().get(1)).hasSize(2);
+    verify(processor).process(job, chunks.getAllValues().get(0), new ArrayList<>(), new ArrayList<>(), job.trigger());
+    verify(processor).process(job, chunks.getAllValues().get(1), new ArrayList<>(), new ArrayList<>(), job.trigger());
+    verifyNoMoreInteractions(processor);
+  }
+
+  @Test
+  public void testReplayCachedResults() {
+    Issue issue = mock(Issue.class);
+    VirtualFile file = files.iterator().next();
+    DefaultInputFile inputFile = mock(DefaultInputFile.class);
+    when(configurator.createInputFile(file)).thenReturn(inputFile);
+    when(configurator.getConfigurationFingerprint(job.modules(), job.files())).thenReturn("fingerprint");
+    when(cache.key("fingerprint", inputFile)).thenReturn("key");
+    when(cache.get("key", inputFile)).thenReturn(Collections.singletonList(issue));
+
+    task.run(progress);
+
+    verify(processor).process(job, Collections.singletonList(file), Collections.singletonList(issue), Collections.emptyList(), job.trigger());
+    verify(configurator).getConfigurationFingerprint(job.modules(), job.files());
+    verify(configurator).createInputFile(file);
+    verifyNoMoreInteractions(configurator);
+    verifyNoMoreInteractions(processor);
+  }
+
+  @Test
+  public void testSaveResults() {
+    VirtualFile file = files.iterator().next();
+    SonarLintJobManager jobManager = mock(SonarLintJobManager.class);
+    super.register(SonarLintJobManager.class, jobManager);
+    DefaultInputFile inputFile = mock(DefaultInputFile.class);
+    when(configurator.createInputFile(file)).thenReturn(inputFile);
+    when(configurator.getConfigurationFingerprint(job.modules(), job.files())).thenReturn("fingerprint");
+    when(cache.key("fingerprint", inputFile)).thenReturn("key");
+
+    task.run(progress);
+
+    verify(configurator).analyzeModules(eq(job.modules()), eq(job.files()), any(IssueListener.class));
+    verify(cache).put("key", Collections.emptyList());
+  }
+
+  @Test
+  public void testQuarantineFileExceedingBudget() {
+    VirtualFile file = files.iterator().next();
+    DefaultInputFile inputFile = mock(DefaultInputFile.class);
+    when(configurator.createInputFile(file)).thenReturn(inputFile);
+    when(quarantine.budgetMs(1)).thenReturn(50L);
+    analysisNeverEnds();
+
+    task.run(progress);
+
+    verify(quarantine).quarantine(file, inputFile);
+    verify(quarantine, never()).cleared(anyCollectionOf(VirtualFile.class));
+    verify(progress).cancel();
+    verifyZeroInteractions(processor);
+  }
+
+  @Test
+  public void testResubmitFilesNotAnalyzedBeforeTimeout() {
+    files.add(mock(VirtualFile.class));
+    files.add(mock(VirtualFile.class));
+    SonarLintJobManager jobManager = mock(SonarLintJobManager.class);
+    super.register(SonarLintJobManager.class, jobManager);
+    when(quarantine.budgetMs(anyInt())).thenReturn(50L);
+    analysisNeverEnds();
+
+    task.run(progress);
+
+    ArgumentCaptor<Collection> chunk = ArgumentCaptor.forClass(Collection.class);
+    verify(configurator).analyzeModules(eq(job.modules()), chunk.capture(), any(IssueListener.class));
+    assertThat(chunk.getValue()).hasSize(1);
+    VirtualFile first = (VirtualFile) chunk.getValue().iterator().next();
+    verify(quarantine).quarantine(eq(first), any(DefaultInputFile.class));
+
+    ArgumentCaptor<Collection> resubmitted = ArgumentCaptor.forClass(Collection.class);
+    verify(jobManager).resubmit(eq(job), resubmitted.capture());
+    assertThat(resubmitted.getValue()).hasSize(2).doesNotContain(first);
+    verifyZeroInteractions(processor);
+  }
+
+  @Test
+  public void testKeepResultsWhenWatchdogFiresAfterAnalysis() {
+    TriggerScheduler watchdog = mock(TriggerScheduler.class);
+    super.register(app, TriggerScheduler.class, watchdog);
+    when(quarantine.budgetMs(anyInt())).thenReturn(50L);
+    ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+    // the watchdog fires between the end of the analysis and its cancellation
+    doAnswer(invocation -> {
+      verify(watchdog).schedule(any(), eq(50L), timeout.capture());
+      timeout.getValue().run();
+      return null;
+    }).when(watchdog).cancel(any());
+
+    task.run(progress);
+
+    verify(progress, never()).cancel();
+    verify(quarantine, never()).quarantine(any(VirtualFile.class), any(DefaultInputFile.class));
+    verify(quarantine).cleared(job.files());
+    verify(processor).process(job, job.files(), new ArrayList<>(), new ArrayList<>(), job.trigger());
+  }
+
+  @Test
+  public void testQuarantineWhenWatchdogFiresAsAnalysisReturns() {
+    VirtualFile file = files.iterator().next();
+    DefaultInputFile inputFile = mock(DefaultInputFile.class);
+    when(configurator.createInputFile(file)).thenReturn(inputFile);
+    TriggerScheduler watchdog = mock(TriggerScheduler.class);
+    super.register(app, TriggerScheduler.class, watchdog);
+    when(quarantine.budgetMs(anyInt())).thenReturn(50L);
+    ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+    // the watchdog fires right before the analysis returns its results
+    when(configurator.analyzeModules(anyListOf(Module.class), anyListOf(VirtualFile.class), any(IssueListener.class)))
+      .thenAnswer(invocation -> {
+        verify(watchdog).schedule(any(), eq(50L), timeout.capture());
+        timeout.getValue().run();
+        return analysisResults;
+      });
+
+    task.run(progress);
+
+    verify(quarantine).quarantine(file, inputFile);
+    verify(quarantine, never()).cleared(anyCollectionOf(VirtualFile.class));
+    verifyZeroInteractions(processor);
+  }
+
+  private void analysisNeverEnds() {
+    when(configurator.analyzeModules(anyListOf(Module.class), anyListOf(VirtualFile.class), any(IssueListener.class)))
+      .thenAnswer(invocation -> {
+        try {
+          Thread.sleep(10_000);
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+        return analysisResults;
+      });
+  }
+
+  @Test
+  public void testChunks() {
+    List<Integer> list = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      list.add(i);
+    }
+    List<List<Integer>> chunks = SonarLintTask.chunks(list, 5);
+    assertThat(chunks).hasSize(6);
+    assertThat(chunks.get(0)).containsExactly(0);
+    assertThat(chunks.get(1)).containsExactly(1, 2);
+    assertThat(chunks.get(2)).containsExactly(3, 4, 5, 6);
+    assertThat(chunks.get(3)).containsExactly(7, 8, 9, 10, 11);
+    assertThat(chunks.get(5)).containsExactly(17, 18, 19);
+    assertThat(SonarLintTask.chunks(new ArrayList<>(), 5)).isEmpty();
+  }
+
   @Test
   public void testCallListenerOnError() {
     TaskListener listener = mock(TaskListener.class);
     getProject().getMessageBus().connect(getProject()).subscribe(TaskListener.SONARLINT_TASK_TOPIC, listener);
 
-    doThrow(new IllegalStateException("error")).when(configurator).analyzeModule(eq(module), eq(job.files()), any(IssueListener.class));
+    doThrow(new IllegalStateException("error")).when(configurator).analyzeModules(eq(job.modules()), eq(job.files()), any(IssueListener.class));
     task.run(progress);
 
     // never called because of error
@@ -114,6 +299,15 @@ public class SonarLintTaskTest extends SonarTest {
     verifyNoMoreInteractions(listener);
   }
 
+  @Test
+  public void testCancelBeforeRun() {
+    task.cancel();
+    task.run(progress);
+
+    verify(progress).cancel();
+    assertThat(task.getJob()).isEqualTo(job);
+  }
+
   private SonarLintJob createJob() {
     return new SonarLintJob(module, files, TriggerType.ACTION);
   }
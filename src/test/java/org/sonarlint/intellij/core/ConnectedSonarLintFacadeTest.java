@@ -21,8 +21,13 @@ package org.sonarlint.intellij.core;
 
 import com.intellij.openapi.project.Project;
 import java.util.Collections;
+import java.util.Date;
+import java.nio.file.Path;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sonarlint.intellij.config.project.SonarLintProjectSettings;
@@ -33,13 +38,17 @@ import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults
 import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
 import org.sonarsource.sonarlint.core.client.api.connected.ConnectedAnalysisConfiguration;
 import org.sonarsource.sonarlint.core.client.api.connected.ConnectedSonarLintEngine;
+import org.sonarsource.sonarlint.core.client.api.connected.ModuleUpdateStatus;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ConnectedSonarLintFacadeTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
   private final String moduleKey = "module1";
 
   @Mock
@@ -56,7 +65,7 @@ public class ConnectedSonarLintFacadeTest {
   public void setUp() {
     MockitoAnnotations.initMocks(this);
     settings = new SonarLintProjectSettings();
-    when(project.getBasePath()).thenReturn("");
+    when(project.getBasePath()).thenReturn(temp.getRoot().getAbsolutePath());
     facade = new ConnectedSonarLintFacade(engine, settings, console, project, moduleKey);
   }
 
@@ -85,4 +94,31 @@ public class ConnectedSonarLintFacadeTest {
     when(engine.analyze(any(ConnectedAnalysisConfiguration.class), any(IssueListener.class), any(LogOutput.class))).thenReturn(results);
     assertThat(facade.startAnalysis(Collections.emptyList(), mock(IssueListener.class), Collections.emptyMap())).isEqualTo(results);
   }
+
+  @Test
+  public void should_use_own_work_dir() {
+    ArgumentCaptor<ConnectedAnalysisConfiguration> captor = ArgumentCaptor.forClass(ConnectedAnalysisConfiguration.class);
+    facade.startAnalysis(Collections.emptyList(), mock(IssueListener.class), Collections.emptyMap());
+    verify(engine).analyze(captor.capture(), any(IssueListener.class), any(LogOutput.class));
+
+    Path workDir = captor.getValue().workDir();
+    assertThat(workDir.getParent()).isEqualTo(temp.getRoot().toPath().resolve(".idea").resolve("sonarlint").resolve("work"));
+    assertThat(workDir.toFile()).doesNotExist();
+  }
+
+  @Test
+  public void should_change_fingerprint_when_storage_is_updated() {
+    ModuleUpdateStatus moduleStatus = mock(ModuleUpdateStatus.class);
+    when(moduleStatus.getLastUpdateDate()).thenReturn(new Date(1000));
+    when(engine.getModuleUpdateStatus(moduleKey)).thenReturn(moduleStatus);
+    String fingerprint = facade.getConfigurationFingerprint();
+    assertThat(facade.getConfigurationFingerprint()).isEqualTo(fingerprint);
+
+    when(moduleStatus.getLastUpdateDate()).thenReturn(new Date(2000));
+    assertThat(facade.getConfigurationFingerprint()).isNotEqualTo(fingerprint);
+    fingerprint = facade.getConfigurationFingerprint();
+
+    settings.setAdditionalProperties(Collections.singletonMap("sonar.java.source", "8"));
+    assertThat(facade.getConfigurationFingerprint()).isNotEqualTo(fingerprint);
+  }
 }
@@ -0,0 +1,78 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobWorkDirsTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  private Path baseDir;
+
+  @Before
+  public void setUp() throws IOException {
+    baseDir = temp.newFolder().toPath();
+  }
+
+  @Test
+  public void create_and_delete() {
+    Path workDir = JobWorkDirs.create(baseDir);
+    assertThat(Files.isDirectory(workDir)).isTrue();
+    assertThat(workDir.startsWith(baseDir.resolve(".idea").resolve("sonarlint").resolve("work"))).isTrue();
+
+    JobWorkDirs.delete(workDir);
+    assertThat(Files.exists(workDir)).isFalse();
+  }
+
+  @Test
+  public void purge_stale_work_dirs() throws IOException {
+    Path stale = JobWorkDirs.create(baseDir);
+    Files.write(stale.resolve("file"), new byte[] {1});
+
+    JobWorkDirs.markStale(baseDir);
+    assertThat(Files.exists(stale)).isFalse();
+
+    // analyses can start before the stale directories are deleted
+    Path workDir = JobWorkDirs.create(baseDir);
+    JobWorkDirs.deleteStale(baseDir);
+
+    assertThat(Files.isDirectory(workDir)).isTrue();
+    try (Stream<Path> files = Files.list(baseDir.resolve(".idea").resolve("sonarlint"))) {
+      assertThat(files.map(p -> p.getFileName().toString()).collect(Collectors.toList())).containsOnly("work");
+    }
+  }
+
+  @Test
+  public void nothing_to_purge() {
+    JobWorkDirs.markStale(baseDir);
+    JobWorkDirs.deleteStale(baseDir);
+    assertThat(Files.exists(baseDir.resolve(".idea"))).isFalse();
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.core;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LanguageRegistryTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void testPluginKey() throws IOException {
+    Path jar = temp.newFile("plugin.jar").toPath();
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().putValue(LanguageRegistry.PLUGIN_KEY_ATTRIBUTE, "java");
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar.toFile()), manifest)) {
+      // only the manifest
+    }
+
+    assertThat(LanguageRegistry.pluginKey(jar)).isEqualTo("java");
+  }
+
+  @Test
+  public void testSkipMissingLanguages() {
+    LanguageRegistry.Languages languages = LanguageRegistry.Languages.of(Arrays.asList("java", "php", "findbugs"));
+
+    assertThat(languages.accepts("foo.java")).isTrue();
+    assertThat(languages.accepts("foo.phtml")).isTrue();
+    assertThat(languages.accepts("foo.py")).isFalse();
+    assertThat(languages.accepts("pom.xml")).isFalse();
+    // suffixes of the loaded languages can be changed on the server
+    assertThat(languages.accepts("foo.md")).isTrue();
+    assertThat(languages.accepts("java")).isTrue();
+  }
+
+  @Test
+  public void testUnknownPluginAcceptsAll() {
+    LanguageRegistry.Languages languages = LanguageRegistry.Languages.of(Arrays.asList("java", "mylanguage"));
+
+    assertThat(languages.accepts("foo.py")).isTrue();
+    assertThat(LanguageRegistry.Languages.ALL.accepts("foo.py")).isTrue();
+  }
+
+  @Test
+  public void testCustomSuffixes() {
+    Map<String, String> props = new HashMap<>();
+    props.put("sonar.php.file.suffixes", ".module, Inc");
+    props.put("sonar.exclusions", "**/*.md");
+
+    assertThat(LanguageRegistry.customSuffixes(props)).containsOnly("module", "inc");
+    assertThat(LanguageRegistry.customSuffixes(Collections.emptyMap())).isEmpty();
+  }
+}
@@ -22,7 +22,9 @@ package org.sonarlint.intellij.core;
 import com.intellij.openapi.project.Project;
 import java.util.Collections;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sonarlint.intellij.config.project.SonarLintProjectSettings;
@@ -41,6 +43,8 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class StandaloneSonarLintFacadeTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
   @Mock
   private StandaloneSonarLintEngine engine;
   @Mock
@@ -55,7 +59,7 @@ public class StandaloneSonarLintFacadeTest {
   public void setUp() {
     MockitoAnnotations.initMocks(this);
     settings = new SonarLintProjectSettings();
-    when(project.getBasePath()).thenReturn("");
+    when(project.getBasePath()).thenReturn(temp.getRoot().getAbsolutePath());
     facade = new StandaloneSonarLintFacade(settings, console, project, engine);
   }
 
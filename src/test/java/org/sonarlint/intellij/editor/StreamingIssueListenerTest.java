@@ -0,0 +1,75 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.editor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StreamingIssueListenerTest {
+  private StreamingIssueListener listener;
+
+  @Before
+  public void setUp() {
+    listener = new StreamingIssueListener();
+  }
+
+  @Test
+  public void should_group_issues_per_file() {
+    ClientInputFile file1 = mock(ClientInputFile.class);
+    ClientInputFile file2 = mock(ClientInputFile.class);
+    Issue i1 = issue(file1);
+    Issue i2 = issue(file2);
+    Issue i3 = issue(file1);
+    Issue projectIssue = issue(null);
+
+    listener.handle(i1);
+    listener.handle(i2);
+    listener.handle(i3);
+    listener.handle(projectIssue);
+
+    assertThat(listener.drain()).containsExactly(projectIssue, i1, i3, i2);
+    assertThat(listener.total()).isEqualTo(4);
+  }
+
+  @Test
+  public void should_release_drained_issues() {
+    Issue i1 = issue(mock(ClientInputFile.class));
+    Issue i2 = issue(mock(ClientInputFile.class));
+
+    listener.handle(i1);
+    assertThat(listener.drain()).containsExactly(i1);
+    listener.handle(i2);
+    assertThat(listener.drain()).containsExactly(i2);
+    assertThat(listener.drain()).isEmpty();
+    assertThat(listener.total()).isEqualTo(2);
+  }
+
+  private static Issue issue(ClientInputFile file) {
+    Issue issue = mock(Issue.class);
+    when(issue.getInputFile()).thenReturn(file);
+    return issue;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.issue;
+
+import org.junit.Test;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RawIssueTrackableTest {
+  private static final String[] LINES = RawIssueTrackable.lines("class Foo {\r\n  int a = 1;\n  int b = 2;\n}");
+
+  @Test
+  public void testLines() {
+    assertThat(LINES).containsExactly("class Foo {", "  int a = 1;", "  int b = 2;", "}");
+    assertThat(RawIssueTrackable.lines("")).containsExactly("");
+  }
+
+  @Test
+  public void testHashes() {
+    Issue issue = issue(2, 3, 6, 5);
+    RawIssueTrackable trackable = new RawIssueTrackable(issue, LINES);
+    assertThat(trackable.getLine()).isEqualTo(2);
+    assertThat(trackable.getMessage()).isEqualTo("msg");
+    assertThat(trackable.getRuleKey()).isEqualTo("squid:S123");
+    assertThat(trackable.getLineHash()).isEqualTo(LiveIssue.checksum("  int a = 1;"));
+    assertThat(trackable.getTextRangeHash()).isEqualTo(LiveIssue.checksum("a = 1;\n  int"));
+    assertThat(trackable.getCreationDate()).isNull();
+    assertThat(trackable.getServerIssueKey()).isNull();
+  }
+
+  @Test
+  public void testFileLevelIssue() {
+    Issue issue = mock(Issue.class);
+    RawIssueTrackable trackable = new RawIssueTrackable(issue, LINES);
+    assertThat(trackable.getLine()).isNull();
+    assertThat(trackable.getLineHash()).isNull();
+    assertThat(trackable.getTextRangeHash()).isNull();
+  }
+
+  @Test
+  public void testOutOfDateRange() {
+    Issue issue = issue(10, 12, 0, 1);
+    RawIssueTrackable trackable = new RawIssueTrackable(issue, LINES);
+    assertThat(trackable.getLine()).isNull();
+    assertThat(trackable.getLineHash()).isNull();
+  }
+
+  private static Issue issue(int startLine, int endLine, int startOffset, int endOffset) {
+    Issue issue = mock(Issue.class);
+    when(issue.getMessage()).thenReturn("msg");
+    when(issue.getRuleKey()).thenReturn("squid:S123");
+    when(issue.getStartLine()).thenReturn(startLine);
+    when(issue.getEndLine()).thenReturn(endLine);
+    when(issue.getStartLineOffset()).thenReturn(startOffset);
+    when(issue.getEndLineOffset()).thenReturn(endOffset);
+    return issue;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.intellij.SonarTest;
+import org.sonarlint.intellij.analysis.SonarLintJob;
+import org.sonarlint.intellij.messages.AnalysisDurationListener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AdaptiveDebounceTest extends SonarTest {
+  private AdaptiveDebounce debounce;
+  private VirtualFile file;
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    debounce = new AdaptiveDebounce(getProject(), 300, 5000);
+    file = mock(VirtualFile.class);
+    when(file.getPath()).thenReturn("/src/File.java");
+  }
+
+  @Test
+  public void should_use_defaults() {
+    assertThat(debounce.delayMs(file)).isEqualTo(AdaptiveDebounce.DEFAULT_PAUSE_MS + AdaptiveDebounce.DEFAULT_ANALYSIS_MS);
+  }
+
+  @Test
+  public void should_fire_sooner_for_fast_typing_and_analysis() {
+    for (int i = 0; i < 10; i++) {
+      debounce.changed(file, i * 100);
+    }
+    publish(50);
+
+    assertThat(debounce.delayMs(file)).isEqualTo(350);
+  }
+
+  @Test
+  public void should_wait_longer_for_slow_analysis() {
+    publish(4000);
+    assertThat(debounce.delayMs(file)).isEqualTo(5000);
+  }
+
+  @Test
+  public void should_ignore_pauses() {
+    debounce.changed(file, 0);
+    debounce.changed(file, 10_000);
+    assertThat(debounce.getState().typingIntervalMs).isEmpty();
+  }
+
+  @Test
+  public void should_forget_least_recently_changed_files() {
+    debounce.changed(file, 0);
+    for (int i = 0; i < AdaptiveDebounce.MAX_FILES; i++) {
+      VirtualFile other = mock(VirtualFile.class);
+      when(other.getPath()).thenReturn("/src/Other" + i + ".java");
+      debounce.changed(other, 0);
+    }
+
+    // the previous change was evicted, so no typing interval is learned
+    debounce.changed(file, 100);
+    assertThat(debounce.delayMs(file)).isEqualTo(AdaptiveDebounce.DEFAULT_PAUSE_MS + AdaptiveDebounce.DEFAULT_ANALYSIS_MS);
+  }
+
+  @Test
+  public void should_restore_state() {
+    publish(200);
+    AdaptiveDebounce other = new AdaptiveDebounce(getProject(), 300, 5000);
+    other.loadState(debounce.getState());
+    assertThat(other.delayMs(file)).isEqualTo(debounce.delayMs(file));
+  }
+
+  @Test
+  public void fixed_delay() {
+    publish(4000);
+    assertThat(AdaptiveDebounce.fixed(getProject(), 500).delayMs(file)).isEqualTo(500);
+  }
+
+  private void publish(long durationMs) {
+    Module module = createModule();
+    SonarLintJob job = mock(SonarLintJob.class);
+    when(job.module()).thenReturn(module);
+    when(job.files()).thenReturn(Collections.singleton(file));
+    getProject().getMessageBus().syncPublisher(AnalysisDurationListener.SONARLINT_ANALYSIS_DURATION_TOPIC).analysisDone(job, durationMs);
+  }
+}
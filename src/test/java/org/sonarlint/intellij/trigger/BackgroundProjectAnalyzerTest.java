@@ -0,0 +1,142 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger;
+
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.intellij.SonarTest;
+import org.sonarlint.intellij.analysis.SonarLintJobManager;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.util.SonarLintAppUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BackgroundProjectAnalyzerTest extends SonarTest {
+  private SonarLintJobManager jobManager = mock(SonarLintJobManager.class);
+  private FileEditorManager editorManager = mock(FileEditorManager.class);
+  private SonarLintAppUtils utils = mock(SonarLintAppUtils.class);
+  private TriggerScheduler triggerScheduler = mock(TriggerScheduler.class);
+  private SonarLintGlobalSettings globalSettings;
+  private List<VirtualFile> files;
+  private BackgroundProjectAnalyzer analyzer;
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    when(project.getBasePath()).thenReturn("/base");
+    VirtualFile baseDir = mock(VirtualFile.class);
+    when(project.getBaseDir()).thenReturn(baseDir);
+    globalSettings = new SonarLintGlobalSettings();
+    files = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      VirtualFile file = mock(VirtualFile.class);
+      when(file.isValid()).thenReturn(true);
+      when(file.getPath()).thenReturn("/base/File" + i + ".java");
+      when(baseDir.findFileByRelativePath("File" + i + ".java")).thenReturn(file);
+      when(utils.findModuleForFile(file, project)).thenReturn(module);
+      when(utils.shouldAnalyzeAutomatically(file, module)).thenReturn(true);
+      files.add(file);
+    }
+    analyzer = new BackgroundProjectAnalyzer(project, globalSettings, jobManager, editorManager, utils, triggerScheduler);
+  }
+
+  @Test
+  public void submits_dirty_files_as_background_jobs() {
+    analyzer.markDirty(Arrays.asList("File0.java", "File1.java"), Collections.emptyList());
+    verify(triggerScheduler).schedule(any(), eq(BackgroundProjectAnalyzer.QUIET_MS), any(Runnable.class));
+
+    analyzer.analyzeNextBatch();
+
+    verify(jobManager).submitAsync(module, Arrays.asList(files.get(0), files.get(1)), TriggerType.BACKGROUND);
+    assertThat(analyzer.getDirty()).isEmpty();
+    // saved until the batch is done
+    assertThat(analyzer.getState().dirtyFiles).containsExactly("File0.java", "File1.java");
+  }
+
+  @Test
+  public void one_batch_at_a_time() {
+    analyzer.markDirty(Collections.singletonList("File0.java"), Collections.emptyList());
+    analyzer.analyzeNextBatch();
+    analyzer.markDirty(Collections.singletonList("File1.java"), Collections.emptyList());
+    when(jobManager.hasPending(Collections.singletonList(files.get(0)))).thenReturn(true);
+
+    analyzer.analyzeNextBatch();
+    verify(jobManager, times(1)).submitAsync(any(), anyCollectionOf(VirtualFile.class), any(TriggerType.class));
+    assertThat(analyzer.getDirty()).containsExactly("File1.java");
+
+    when(jobManager.hasPending(Collections.singletonList(files.get(0)))).thenReturn(false);
+    analyzer.analyzeNextBatch();
+    verify(jobManager).submitAsync(module, Collections.singletonList(files.get(1)), TriggerType.BACKGROUND);
+    assertThat(analyzer.getState().dirtyFiles).containsExactly("File1.java");
+  }
+
+  @Test
+  public void opened_files_are_left_to_other_triggers() {
+    when(editorManager.isFileOpen(files.get(0))).thenReturn(true);
+    analyzer.markDirty(Arrays.asList("File0.java", "File1.java"), Collections.emptyList());
+
+    analyzer.analyzeNextBatch();
+
+    verify(jobManager).submitAsync(module, Collections.singletonList(files.get(1)), TriggerType.BACKGROUND);
+  }
+
+  @Test
+  public void nothing_collected_when_disabled() {
+    globalSettings.setBackgroundAnalysis(false);
+    analyzer.markDirty(Collections.singletonList("File0.java"), Collections.emptyList());
+
+    assertThat(analyzer.getDirty()).isEmpty();
+    verify(triggerScheduler, never()).schedule(any(), anyLong(), any(Runnable.class));
+  }
+
+  @Test
+  public void oldest_changes_are_forgotten() {
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i <= BackgroundProjectAnalyzer.MAX_DIRTY; i++) {
+      keys.add("Other" + i + ".java");
+    }
+    analyzer.markDirty(keys, Collections.emptyList());
+
+    assertThat(analyzer.getDirty()).hasSize(BackgroundProjectAnalyzer.MAX_DIRTY).doesNotContain("Other0.java");
+  }
+
+  @Test
+  public void deleted_files_are_not_dirty() {
+    analyzer.markDirty(Arrays.asList("File0.java", "File1.java"), Collections.emptyList());
+    analyzer.markDirty(Collections.emptyList(), Collections.singletonList("File0.java"));
+
+    assertThat(analyzer.getDirty()).containsExactly("File1.java");
+  }
+}
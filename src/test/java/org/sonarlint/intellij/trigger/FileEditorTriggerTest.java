@@ -27,6 +27,7 @@ import com.intellij.openapi.vfs.VirtualFile;
 import java.util.Collections;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sonarlint.intellij.SonarLintTestUtils;
@@ -34,7 +35,9 @@ import org.sonarlint.intellij.analysis.SonarLintJobManager;
 import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
 import org.sonarlint.intellij.util.SonarLintAppUtils;
 
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -70,6 +73,39 @@ public class FileEditorTriggerTest {
     verify(jobManager).submitAsync(m1, Collections.singleton(f1), TriggerType.EDITOR_OPEN);
   }
 
+  @Test
+  public void should_batch_on_startup() {
+    globalSettings.setAutoTrigger(true);
+    VirtualFile f1 = mock(VirtualFile.class);
+    VirtualFile f2 = mock(VirtualFile.class);
+    VirtualFile f3 = mock(VirtualFile.class);
+    Module m1 = mock(Module.class);
+    Module m2 = mock(Module.class);
+    when(utils.findModuleForFile(f1, project)).thenReturn(m1);
+    when(utils.findModuleForFile(f2, project)).thenReturn(m1);
+    when(utils.findModuleForFile(f3, project)).thenReturn(m2);
+    when(utils.shouldAnalyzeAutomatically(f1, m1)).thenReturn(true);
+    when(utils.shouldAnalyzeAutomatically(f2, m1)).thenReturn(true);
+    when(utils.shouldAnalyzeAutomatically(f3, m2)).thenReturn(true);
+    when(utils.getSelectedFile(project)).thenReturn(f2);
+
+    editorTrigger.startBatching();
+    editorTrigger.fileOpened(mock(FileEditorManager.class), f1);
+    editorTrigger.fileOpened(mock(FileEditorManager.class), f2);
+    editorTrigger.fileOpened(mock(FileEditorManager.class), f3);
+    verifyZeroInteractions(jobManager);
+
+    editorTrigger.flush();
+    InOrder inOrder = inOrder(jobManager);
+    inOrder.verify(jobManager).submitAsync(m1, Collections.singleton(f2), TriggerType.EDITOR_OPEN);
+    inOrder.verify(jobManager).submitAsync(m1, Collections.singleton(f1), TriggerType.EDITOR_OPEN);
+    inOrder.verify(jobManager).submitAsync(m2, Collections.singleton(f3), TriggerType.EDITOR_OPEN);
+
+    // batching is over
+    editorTrigger.fileOpened(mock(FileEditorManager.class), f3);
+    verify(jobManager, times(2)).submitAsync(m2, Collections.singleton(f3), TriggerType.EDITOR_OPEN);
+  }
+
   @Test
   public void should_do_nothing_closed() {
     VirtualFile f1 = mock(VirtualFile.class);
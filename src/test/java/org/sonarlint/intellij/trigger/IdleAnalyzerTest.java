@@ -0,0 +1,166 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger;
+
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.intellij.SonarTest;
+import org.sonarlint.intellij.analysis.SonarLintJob;
+import org.sonarlint.intellij.analysis.SonarLintJobManager;
+import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
+import org.sonarlint.intellij.issue.LiveIssue;
+import org.sonarlint.intellij.issue.persistence.IssuePersistence;
+import org.sonarlint.intellij.messages.IssueStoreListener;
+import org.sonarlint.intellij.messages.TaskListener;
+import org.sonarlint.intellij.util.SonarLintAppUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class IdleAnalyzerTest extends SonarTest {
+  private SonarLintJobManager jobManager = mock(SonarLintJobManager.class);
+  private IssuePersistence persistence = mock(IssuePersistence.class);
+  private FileEditorManager editorManager = mock(FileEditorManager.class);
+  private SonarLintAppUtils utils = mock(SonarLintAppUtils.class);
+  private SonarLintGlobalSettings globalSettings;
+  private List<VirtualFile> files;
+  private boolean dumb;
+  private boolean runPooledTasks = true;
+  private int pooledTasks = 0;
+  private IdleAnalyzer analyzer;
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    when(project.getBasePath()).thenReturn("/base");
+    globalSettings = new SonarLintGlobalSettings();
+    files = new ArrayList<>();
+    for (int i = 0; i < IdleAnalyzer.BATCH_SIZE + 2; i++) {
+      VirtualFile file = mock(VirtualFile.class);
+      when(file.isValid()).thenReturn(true);
+      when(file.getPath()).thenReturn("/base/File" + i + ".java");
+      when(file.getTimeStamp()).thenReturn(100L);
+      when(file.getModificationStamp()).thenReturn(1L);
+      when(utils.findModuleForFile(file, project)).thenReturn(module);
+      when(utils.shouldAnalyzeAutomatically(file, module)).thenReturn(true);
+      files.add(file);
+    }
+    when(editorManager.getOpenFiles()).thenReturn(files.toArray(new VirtualFile[0]));
+    analyzer = new IdleAnalyzer(project, globalSettings, jobManager, persistence, editorManager, utils, () -> dumb);
+    when(app.executeOnPooledThread(any(Runnable.class))).thenAnswer(invocation -> {
+      pooledTasks++;
+      if (runPooledTasks) {
+        ((Runnable) invocation.getArguments()[0]).run();
+      }
+      return null;
+    });
+  }
+
+  @Test
+  public void should_find_candidates_out_of_the_edt() {
+    runPooledTasks = false;
+    analyzer.onIdle();
+
+    assertThat(pooledTasks).isEqualTo(1);
+    verifyZeroInteractions(persistence);
+    verifyZeroInteractions(jobManager);
+  }
+
+  @Test
+  public void should_analyze_in_batches() {
+    analyzer.onIdle();
+    List<VirtualFile> firstBatch = files.subList(0, IdleAnalyzer.BATCH_SIZE);
+    verify(jobManager).submitAsync(module, new HashSet<>(firstBatch), TriggerType.IDLE);
+
+    analysisDone(firstBatch);
+    verify(jobManager).submitAsync(module, new HashSet<>(files.subList(IdleAnalyzer.BATCH_SIZE, files.size())), TriggerType.IDLE);
+    assertThat(analyzer.getPending()).isEmpty();
+  }
+
+  @Test
+  public void should_resume_after_input() {
+    analyzer.onIdle();
+    analyzer.onActivity();
+    verify(jobManager).cancel(TriggerType.IDLE);
+    assertThat(analyzer.getPending()).containsExactlyElementsOf(files);
+
+    analyzer.onIdle();
+    verify(jobManager, times(2)).submitAsync(module, new HashSet<>(files.subList(0, IdleAnalyzer.BATCH_SIZE)), TriggerType.IDLE);
+  }
+
+  @Test
+  public void should_skip_analyzed_files() {
+    analysisDone(files);
+    when(persistence.lastModified(anyString())).thenReturn(200L);
+    analyzer.visited(files.get(0));
+
+    analyzer.onIdle();
+    verifyZeroInteractions(jobManager);
+  }
+
+  @Test
+  public void should_analyze_modified_files() {
+    analysisDone(files);
+    when(files.get(1).getModificationStamp()).thenReturn(2L);
+
+    analyzer.onIdle();
+    verify(jobManager).submitAsync(module, Collections.singleton(files.get(1)), TriggerType.IDLE);
+  }
+
+  @Test
+  public void dont_analyze_while_indexing() {
+    dumb = true;
+    analyzer.onIdle();
+    verifyZeroInteractions(jobManager);
+  }
+
+  @Test
+  public void dont_analyze_if_auto_disabled() {
+    globalSettings.setAutoTrigger(false);
+    analyzer.onIdle();
+    verifyZeroInteractions(jobManager);
+  }
+
+  private void analysisDone(List<VirtualFile> analyzed) {
+    Map<VirtualFile, Collection<LiveIssue>> map = new HashMap<>();
+    analyzed.forEach(f -> map.put(f, Collections.emptyList()));
+    project.getMessageBus().syncPublisher(IssueStoreListener.SONARLINT_ISSUE_STORE_TOPIC).filesChanged(map);
+
+    SonarLintJob job = mock(SonarLintJob.class);
+    when(job.files()).thenReturn(new HashSet<>(analyzed));
+    when(job.trigger()).thenReturn(TriggerType.IDLE);
+    project.getMessageBus().syncPublisher(TaskListener.SONARLINT_TASK_TOPIC).ended(job);
+  }
+}
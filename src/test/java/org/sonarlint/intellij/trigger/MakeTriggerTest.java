@@ -30,6 +30,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sonarlint.intellij.SonarLintTestUtils;
 import org.sonarlint.intellij.SonarTest;
+import org.sonarlint.intellij.analysis.JavaConfigurationCache;
 import org.sonarlint.intellij.ui.SonarLintConsole;
 
 import static org.mockito.Matchers.any;
@@ -49,6 +50,8 @@ public class MakeTriggerTest extends SonarTest {
   private CompileContext context;
   @Mock
   private CompilerManager compilerManager;
+  @Mock
+  private JavaConfigurationCache configurationCache;
 
   private MakeTrigger trigger;
 
@@ -58,13 +61,14 @@ public class MakeTriggerTest extends SonarTest {
     super.setUp();
     MockitoAnnotations.initMocks(this);
     SonarLintTestUtils.mockMessageBus(app);
-    trigger = new MakeTrigger(project, submitter, console, compilerManager);
+    trigger = new MakeTrigger(project, submitter, console, compilerManager, configurationCache);
     when(context.getProject()).thenReturn(project);
   }
 
   @Test
   public void should_trigger_on_compilation() {
     trigger.compilationFinished(false, 0, 0, context);
+    verify(configurationCache).invalidate();
     verify(submitter).submitIfAutoEnabled(TriggerType.COMPILATION);
   }
 
@@ -81,13 +85,14 @@ public class MakeTriggerTest extends SonarTest {
     trigger.compilationFinished(false, 0, 0, context);
     trigger.buildFinished(mock(Project.class), UUID.randomUUID(), true);
 
-    verifyZeroInteractions(submitter);
+    verifyZeroInteractions(submitter, configurationCache);
   }
 
   @Test
   public void should_not_trigger_if_not_automake() {
     when(context.getProject()).thenReturn(mock(Project.class));
     trigger.buildFinished(project, UUID.randomUUID(), false);
+    verify(configurationCache).invalidate();
     verifyZeroInteractions(submitter);
   }
 
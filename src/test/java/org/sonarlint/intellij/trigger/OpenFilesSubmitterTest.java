@@ -72,7 +72,7 @@ public class OpenFilesSubmitterTest {
     when(fileEditorManager.getOpenFiles()).thenReturn(new VirtualFile[] {f1});
 
     submitter.submit(TriggerType.BINDING_CHANGE);
-    verify(sonarLintJobManager).submitAsync(eq(m1), eq(Collections.singleton(f1)), eq(TriggerType.BINDING_CHANGE));
+    verify(sonarLintJobManager).submitAsync(eq(Collections.singletonMap(m1, Collections.singleton(f1))), eq(TriggerType.BINDING_CHANGE));
   }
 
   @Test
@@ -19,6 +19,8 @@
  */
 package org.sonarlint.intellij.trigger;
 
+import com.intellij.openapi.command.CommandEvent;
+import com.intellij.openapi.command.CommandListener;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.EditorFactory;
 import com.intellij.openapi.editor.event.DocumentEvent;
@@ -28,17 +30,24 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sonarlint.intellij.SonarLintTestUtils;
+import org.sonarlint.intellij.analysis.AnalysisCostProfile;
 import org.sonarlint.intellij.analysis.SonarLintJobManager;
 import org.sonarlint.intellij.config.global.SonarLintGlobalSettings;
 import org.sonarlint.intellij.util.SonarLintAppUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -55,6 +64,8 @@ public class SonarDocumentListenerTest {
   private SonarLintAppUtils utils;
   @Mock
   private FileDocumentManager docManager;
+  @Mock
+  private AnalysisCostProfile costProfile;
 
   private SonarLintGlobalSettings globalSettings;
   private SonarDocumentListener listener;
@@ -67,7 +78,7 @@ public class SonarDocumentListenerTest {
     when(editorFactory.getEventMulticaster()).thenReturn(mock(EditorEventMulticaster.class));
     globalSettings = new SonarLintGlobalSettings();
     globalSettings.setAutoTrigger(true);
-    listener = new SonarDocumentListener(project, globalSettings, jobManager, editorFactory, utils, docManager, 500);
+    listener = new SonarDocumentListener(project, globalSettings, jobManager, editorFactory, utils, docManager, 500, costProfile);
     listener.initComponent();
   }
 
@@ -90,6 +101,115 @@ public class SonarDocumentListenerTest {
     verify(jobManager, timeout(1000)).submitAsync(m1, Collections.singleton(file), TriggerType.EDITOR_CHANGE);
   }
 
+  @Test
+  public void should_submit_demoted_file_on_save() {
+    Module m1 = mock(Module.class);
+    VirtualFile file = mock(VirtualFile.class);
+    Document doc = mock(Document.class);
+    DocumentEvent event = mock(DocumentEvent.class);
+
+    when(file.isValid()).thenReturn(true);
+    when(event.getDocument()).thenReturn(doc);
+    when(docManager.getFile(doc)).thenReturn(file);
+    when(utils.guessProjectForFile(file)).thenReturn(project);
+    when(utils.findModuleForFile(file, project)).thenReturn(m1);
+    when(utils.shouldAnalyzeAutomatically(file, m1)).thenReturn(true);
+    when(costProfile.isDemoted(file)).thenReturn(true);
+
+    listener.documentChanged(event);
+    listener.documentSaving(doc);
+    assertThat(listener.getEvents()).isEmpty();
+    verify(jobManager).submitAsync(m1, Collections.singleton(file), TriggerType.SAVE);
+    verify(jobManager, never()).submitAsync(any(Module.class), anyCollectionOf(VirtualFile.class), eq(TriggerType.EDITOR_CHANGE));
+
+    // nothing changed since the last save
+    listener.documentSaving(doc);
+    verify(jobManager).submitAsync(any(Module.class), anyCollectionOf(VirtualFile.class), eq(TriggerType.SAVE));
+  }
+
+  @Test
+  public void should_not_submit_demoted_file_on_save_once_analyzed() {
+    Module m1 = mock(Module.class);
+    VirtualFile file = mock(VirtualFile.class);
+    Document doc = mock(Document.class);
+    DocumentEvent event = mock(DocumentEvent.class);
+
+    when(file.isValid()).thenReturn(true);
+    when(event.getDocument()).thenReturn(doc);
+    when(docManager.getFile(doc)).thenReturn(file);
+    when(utils.guessProjectForFile(file)).thenReturn(project);
+    when(utils.findModuleForFile(file, project)).thenReturn(m1);
+    when(utils.shouldAnalyzeAutomatically(file, m1)).thenReturn(true);
+    when(costProfile.isDemoted(file)).thenReturn(true);
+
+    listener.documentChanged(event);
+    // a job analyzing the unsaved changes started, for example after a compilation
+    listener.removeFiles(Collections.singleton(file));
+    listener.documentSaving(doc);
+    verify(jobManager, never()).submitAsync(any(Module.class), anyCollectionOf(VirtualFile.class), eq(TriggerType.SAVE));
+  }
+
+  @Test
+  public void should_collapse_storm() {
+    Module m1 = mock(Module.class);
+    Set<VirtualFile> files = new HashSet<>();
+    for (int i = 0; i <= SonarDocumentListener.STORM_THRESHOLD; i++) {
+      VirtualFile file = mock(VirtualFile.class);
+      Document doc = mock(Document.class);
+      DocumentEvent event = mock(DocumentEvent.class);
+      when(file.isValid()).thenReturn(true);
+      when(event.getDocument()).thenReturn(doc);
+      when(docManager.getFile(doc)).thenReturn(file);
+      when(utils.guessProjectForFile(file)).thenReturn(project);
+      when(utils.findModuleForFile(file, project)).thenReturn(m1);
+      when(utils.shouldAnalyzeAutomatically(file, m1)).thenReturn(true);
+      files.add(file);
+      listener.documentChanged(event);
+    }
+
+    assertThat(listener.isStorm()).isTrue();
+    assertThat(listener.getEvents()).isEmpty();
+    verify(jobManager, timeout(SonarDocumentListener.STORM_QUIET_MS + 2000)).submitAsync(m1, files, TriggerType.BULK_CHANGE);
+    verify(jobManager, never()).submitAsync(any(Module.class), anyCollectionOf(VirtualFile.class), eq(TriggerType.EDITOR_CHANGE));
+    assertThat(listener.isStorm()).isFalse();
+  }
+
+  @Test
+  public void should_ignore_commands_of_other_projects() {
+    Module m1 = mock(Module.class);
+    CommandListener commandListener = listener.commandListener();
+    CommandEvent otherCommand = mock(CommandEvent.class);
+    when(otherCommand.getProject()).thenReturn(mock(Project.class));
+
+    commandListener.commandStarted(otherCommand);
+    for (int i = 0; i < 2; i++) {
+      listener.documentChanged(changeOf(mock(VirtualFile.class), m1));
+    }
+    commandListener.commandFinished(otherCommand);
+    assertThat(listener.isStorm()).isFalse();
+
+    CommandEvent command = mock(CommandEvent.class);
+    when(command.getProject()).thenReturn(project);
+    commandListener.commandStarted(command);
+    for (int i = 0; i < 2; i++) {
+      listener.documentChanged(changeOf(mock(VirtualFile.class), m1));
+    }
+    assertThat(listener.isStorm()).isTrue();
+    commandListener.commandFinished(command);
+  }
+
+  private DocumentEvent changeOf(VirtualFile file, Module module) {
+    Document doc = mock(Document.class);
+    DocumentEvent event = mock(DocumentEvent.class);
+    when(file.isValid()).thenReturn(true);
+    when(event.getDocument()).thenReturn(doc);
+    when(docManager.getFile(doc)).thenReturn(file);
+    when(utils.guessProjectForFile(file)).thenReturn(project);
+    when(utils.findModuleForFile(file, project)).thenReturn(module);
+    when(utils.shouldAnalyzeAutomatically(file, module)).thenReturn(true);
+    return event;
+  }
+
   @Test
   public void dont_trigger_if_auto_disabled() {
     globalSettings.setAutoTrigger(false);
@@ -0,0 +1,75 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TriggerSchedulerTest {
+  private TriggerScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    scheduler = new TriggerScheduler();
+  }
+
+  @After
+  public void tearDown() {
+    scheduler.disposeComponent();
+  }
+
+  @Test
+  public void should_run_at_deadline() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+    scheduler.schedule("key", 10, latch::countDown);
+    assertThat(latch.await(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(scheduler.isScheduled("key")).isFalse();
+  }
+
+  @Test
+  public void should_replace_pending_task() throws InterruptedException {
+    AtomicInteger first = new AtomicInteger();
+    CountDownLatch latch = new CountDownLatch(1);
+    scheduler.schedule("key", 200, first::incrementAndGet);
+    scheduler.schedule("key", 10, latch::countDown);
+
+    assertThat(latch.await(1, TimeUnit.SECONDS)).isTrue();
+    Thread.sleep(300);
+    assertThat(first.get()).isZero();
+  }
+
+  @Test
+  public void should_cancel() throws InterruptedException {
+    AtomicInteger count = new AtomicInteger();
+    scheduler.schedule("key", 50, count::incrementAndGet);
+    assertThat(scheduler.isScheduled("key")).isTrue();
+    scheduler.cancel("key");
+    assertThat(scheduler.isScheduled("key")).isFalse();
+
+    Thread.sleep(150);
+    assertThat(count.get()).isZero();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger.admission;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AdmissionChecksTest {
+  @Test
+  public void testFileSize() {
+    VirtualFile file = file("big.js");
+    when(file.getLength()).thenReturn(FileSizeCheck.MAX_LENGTH + 1);
+    assertThat(new FileSizeCheck().reject(new AdmissionCandidate(file, null))).contains("bigger than");
+
+    when(file.getLength()).thenReturn(FileSizeCheck.MAX_LENGTH);
+    assertThat(new FileSizeCheck().reject(new AdmissionCandidate(file, null))).isNull();
+  }
+
+  @Test
+  public void testVendoredDirectory() {
+    VirtualFile root = file("project");
+    VirtualFile nodeModules = file("node_modules");
+    when(nodeModules.getParent()).thenReturn(root);
+    VirtualFile lib = file("lib");
+    when(lib.getParent()).thenReturn(nodeModules);
+    VirtualFile file = file("index.js");
+    when(file.getParent()).thenReturn(lib);
+    assertThat(new VendoredDirectoryCheck().reject(new AdmissionCandidate(file, null, () -> root))).contains("node_modules");
+
+    when(lib.getParent()).thenReturn(root);
+    assertThat(new VendoredDirectoryCheck().reject(new AdmissionCandidate(file, null, () -> root))).isNull();
+  }
+
+  @Test
+  public void testVendoredDirectoryOutsideOfProject() {
+    VirtualFile vendor = file("vendor");
+    VirtualFile root = file("project");
+    when(root.getParent()).thenReturn(vendor);
+    VirtualFile file = file("index.php");
+    when(file.getParent()).thenReturn(root);
+    assertThat(new VendoredDirectoryCheck().reject(new AdmissionCandidate(file, null, () -> root))).isNull();
+    assertThat(new VendoredDirectoryCheck().reject(new AdmissionCandidate(file, null))).isNull();
+  }
+
+  @Test
+  public void testMinified() {
+    assertThat(new MinifiedFileCheck().reject(candidate("app.min.js", ""))).isEqualTo("file is minified");
+
+    String minified = StringUtils.repeat("var a=function(b){return b};", 200);
+    assertThat(new MinifiedFileCheck().reject(candidate("bundle.js", minified + "\n" + minified))).contains("minified");
+
+    String code = StringUtils.repeat("function a(b) {\n  return b;\n}\n", 200);
+    assertThat(new MinifiedFileCheck().reject(candidate("app.js", code))).isNull();
+    // a single long line is not enough
+    assertThat(new MinifiedFileCheck().reject(candidate("app.js", minified + "\n" + code))).isNull();
+  }
+
+  @Test
+  public void testGenerated() {
+    assertThat(new GeneratedFileCheck().reject(candidate("A.java", "/**\n * @generated by protoc\n */\npackage a;"))).contains("@generated");
+    assertThat(new GeneratedFileCheck().reject(candidate("a.go", "// Code generated by stringer. DO NOT EDIT.\n\npackage a"))).contains("DO NOT EDIT");
+    assertThat(new GeneratedFileCheck().reject(candidate("A.java", "package a;\nclass A {}"))).isNull();
+
+    String marker = StringUtils.repeat(" ", GeneratedFileCheck.HEADER_LENGTH) + "@generated";
+    assertThat(new GeneratedFileCheck().reject(candidate("A.java", marker))).isNull();
+  }
+
+  @Test
+  public void testHandwrittenFilesMentioningGeneration() {
+    assertThat(new GeneratedFileCheck().reject(candidate("Parser.java", "// Generated by ANTLR 4.5\npackage a;"))).isNull();
+    assertThat(new GeneratedFileCheck().reject(candidate("a.js", "/* DO NOT EDIT without reading the docs */"))).isNull();
+    assertThat(new GeneratedFileCheck().reject(candidate("a.go", "// Code generated files must not be edited\npackage a"))).isNull();
+  }
+
+  private static AdmissionCandidate candidate(String name, String content) {
+    Document document = mock(Document.class);
+    when(document.getImmutableCharSequence()).thenReturn(content);
+    when(document.getTextLength()).thenReturn(content.length());
+    return new AdmissionCandidate(file(name), document);
+  }
+
+  private static VirtualFile file(String name) {
+    VirtualFile file = mock(VirtualFile.class);
+    when(file.getName()).thenReturn(name);
+    return file;
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.trigger.admission;
+
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.intellij.ui.SonarLintConsole;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AdmissionPolicyTest {
+  private SonarLintConsole console = mock(SonarLintConsole.class);
+  private AdmissionCheck check = mock(AdmissionCheck.class);
+  private VirtualFile file = mock(VirtualFile.class);
+  private AdmissionPolicy policy;
+
+  @Before
+  public void setUp() {
+    when(file.getName()).thenReturn("bundle.js");
+    when(file.getModificationStamp()).thenReturn(1L);
+    policy = new AdmissionPolicy(mock(Project.class), console, mock(FileDocumentManager.class), () -> new AdmissionCheck[] {check});
+  }
+
+  @Test
+  public void testAdmit() {
+    assertThat(policy.admit(file)).isTrue();
+  }
+
+  @Test
+  public void testRejectAndCacheDecision() {
+    when(check.reject(any(AdmissionCandidate.class))).thenReturn("file is minified");
+
+    assertThat(policy.admit(file)).isFalse();
+    assertThat(policy.admit(file)).isFalse();
+    verify(check, times(1)).reject(any(AdmissionCandidate.class));
+    verify(console, times(1)).info(anyString());
+  }
+
+  @Test
+  public void testEvaluateAgainWhenContentChanges() {
+    when(check.reject(any(AdmissionCandidate.class))).thenReturn("file is minified");
+    assertThat(policy.admit(file)).isFalse();
+
+    when(file.getModificationStamp()).thenReturn(2L);
+    when(check.reject(any(AdmissionCandidate.class))).thenReturn(null);
+    assertThat(policy.admit(file)).isTrue();
+    verify(check, times(2)).reject(any(AdmissionCandidate.class));
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * SonarLint for IntelliJ IDEA
+ * Copyright (C) 2015 SonarSource
+ * sonarlint@sonarsource.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonarlint.intellij.util;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.roots.ContentEntry;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.SourceFolder;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.jps.model.java.JavaResourceRootType;
+import org.jetbrains.jps.model.java.JavaSourceRootType;
+import org.jetbrains.jps.model.module.JpsModuleSourceRoot;
+import org.jetbrains.jps.model.module.JpsModuleSourceRootType;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonarlint.intellij.SonarTest;
+import org.sonarlint.intellij.util.FileClassificationIndex.Classification;
+import org.sonarlint.intellij.util.FileClassificationIndex.Kind;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FileClassificationIndexTest extends SonarTest {
+  private FileClassificationIndex index;
+  private ModuleManager moduleManager;
+  private ModuleRootManager rootManager1;
+  private Module module2;
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    when(app.runReadAction(any(Computable.class))).thenAnswer(i -> ((Computable) i.getArguments()[0]).compute());
+    moduleManager = mock(ModuleManager.class);
+    register(ModuleManager.class, moduleManager);
+
+    rootManager1 = mock(ModuleRootManager.class);
+    register(module, ModuleRootManager.class, rootManager1);
+    ContentEntry entry1 = mock(ContentEntry.class);
+    when(entry1.getFile()).thenReturn(file("/project"));
+    when(entry1.getSourceFolders()).thenReturn(new SourceFolder[] {
+      sourceFolder("/project/src/main/java", JavaSourceRootType.SOURCE, false),
+      sourceFolder("/project/src/test/java", JavaSourceRootType.TEST_SOURCE, true),
+      sourceFolder("/project/src/main/resources", JavaResourceRootType.RESOURCE, false)
+    });
+    when(entry1.getExcludeFolderFiles()).thenReturn(new VirtualFile[] {file("/project/target")});
+    when(rootManager1.getContentEntries()).thenReturn(new ContentEntry[] {entry1});
+
+    // nested in the content of the first module
+    module2 = createModule();
+    ModuleRootManager rootManager2 = mock(ModuleRootManager.class);
+    register(module2, ModuleRootManager.class, rootManager2);
+    ContentEntry entry2 = mock(ContentEntry.class);
+    when(entry2.getFile()).thenReturn(file("/project/sub"));
+    when(entry2.getSourceFolders()).thenReturn(new SourceFolder[] {sourceFolder("/project/sub", JavaSourceRootType.SOURCE, false)});
+    when(entry2.getExcludeFolderFiles()).thenReturn(new VirtualFile[0]);
+    when(rootManager2.getContentEntries()).thenReturn(new ContentEntry[] {entry2});
+
+    when(moduleManager.getModules()).thenReturn(new Module[] {module, module2});
+    index = new FileClassificationIndex(project);
+  }
+
+  @Test
+  public void should_classify_files() {
+    assertClassification("/project/src/main/java/org/Foo.java", module, Kind.SOURCE, false);
+    assertClassification("/project/src/test/java/org/FooTest.java", module, Kind.SOURCE, true);
+    assertClassification("/project/src/main/resources/app.properties", module, Kind.RESOURCE, false);
+    assertClassification("/project/target/classes/Foo.class", module, Kind.EXCLUDED, false);
+    assertClassification("/project/pom.xml", module, Kind.CONTENT, false);
+    assertClassification("/project/sub/Bar.java", module2, Kind.SOURCE, false);
+    assertClassification("/other/Foo.java", null, Kind.NONE, false);
+    // prefix of a root, but not the same directory
+    assertClassification("/project/src/main/java2/Foo.java", module, Kind.CONTENT, false);
+  }
+
+  @Test
+  public void excluded_files_dont_belong_to_module() {
+    assertThat(index.getModule(file("/project/target/classes/Foo.class"))).isNull();
+    assertThat(index.getModule(file("/project/pom.xml"))).isEqualTo(module);
+    assertThat(index.getModule(file("/other/Foo.java"))).isNull();
+  }
+
+  @Test
+  public void should_build_once_until_roots_change() {
+    index.classify(file("/project/pom.xml"));
+    index.classify(file("/project/sub/Bar.java"));
+    verify(moduleManager, times(1)).getModules();
+
+    index.invalidate();
+    when(moduleManager.getModules()).thenReturn(new Module[] {module});
+    assertThat(index.getModule(file("/project/sub/Bar.java"))).isEqualTo(module);
+    verify(moduleManager, times(2)).getModules();
+  }
+
+  private void assertClassification(String path, Module expectedModule, Kind expectedKind, boolean expectedTest) {
+    Classification c = index.classify(file(path));
+    assertThat(c.module()).isEqualTo(expectedModule);
+    assertThat(c.kind()).isEqualTo(expectedKind);
+    assertThat(c.isTest()).isEqualTo(expectedTest);
+  }
+
+  private static VirtualFile file(String path) {
+    VirtualFile file = mock(VirtualFile.class);
+    when(file.getPath()).thenReturn(path);
+    return file;
+  }
+
+  private static SourceFolder sourceFolder(String path, JpsModuleSourceRootType<?> type, boolean test) {
+    SourceFolder folder = mock(SourceFolder.class);
+    VirtualFile file = file(path);
+    when(folder.getFile()).thenReturn(file);
+    when(folder.isTestSource()).thenReturn(test);
+    doReturn(type).when(folder).getRootType();
+    when(folder.getJpsElement()).thenReturn(mock(JpsModuleSourceRoot.class));
+    return folder;
+  }
+}
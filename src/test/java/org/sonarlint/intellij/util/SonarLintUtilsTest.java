@@ -29,6 +29,7 @@ import org.junit.Test;
 import org.sonarlint.intellij.SonarApplication;
 import org.sonarlint.intellij.SonarTest;
 import org.sonarlint.intellij.config.global.SonarQubeServer;
+import org.sonarlint.intellij.core.LanguageRegistry;
 import org.sonarsource.sonarlint.core.client.api.connected.ServerConfiguration;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -37,6 +38,7 @@ import static org.mockito.Mockito.when;
 
 public class SonarLintUtilsTest extends SonarTest {
   private VirtualFile testFile;
+  private LanguageRegistry languageRegistry;
 
   private FileType binary;
   private FileType notBinary;
@@ -55,6 +57,10 @@ public class SonarLintUtilsTest extends SonarTest {
     when(testFile.isValid()).thenReturn(true);
     when(testFile.isInLocalFileSystem()).thenReturn(true);
     when(testFile.getFileType()).thenReturn(notBinary);
+
+    languageRegistry = mock(LanguageRegistry.class);
+    when(languageRegistry.isSupported(testFile, project)).thenReturn(true);
+    super.register(app, LanguageRegistry.class, languageRegistry);
   }
 
   @Test
@@ -83,6 +89,12 @@ public class SonarLintUtilsTest extends SonarTest {
     assertThat(SonarLintUtils.shouldAnalyze(testFile, module)).isFalse();
   }
 
+  @Test
+  public void testShouldNotAnalyzeUnsupportedLanguage() {
+    when(languageRegistry.isSupported(testFile, project)).thenReturn(false);
+    assertThat(SonarLintUtils.shouldAnalyze(testFile, module)).isFalse();
+  }
+
   @Test
   public void testShouldAnalyzeDisposed() {
     Project disposed = mock(Project.class);